@@ -0,0 +1,62 @@
+package dbproject.bench;
+
+import dbproject.game.Board;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the line queries of a {@link Board} in a middle game position. Every call asks for
+ * the next line, so the JIT compiler cannot fold the result into a constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    private Board board;
+    private int location;
+
+    /**
+     * Creates the middle game position.
+     */
+    @Setup
+    public void setUp() {
+        board = Positions.afterMoves(30).getBoard();
+    }
+
+    private int nextLine() {
+        location = location + 1 == board.getLineCount() ? 0 : location + 1;
+        return location;
+    }
+
+    /**
+     * Finds the boxes a line would complete.
+     *
+     * @return the boxes, so the call is not eliminated
+     */
+    @Benchmark
+    public int[] completeBox() {
+        return board.completeBox(nextLine());
+    }
+
+    /**
+     * Checks the orientation of a line.
+     *
+     * @return the orientation, so the call is not eliminated
+     */
+    @Benchmark
+    public boolean isHorizontalLine() {
+        return board.isHorizontalLine(nextLine());
+    }
+}
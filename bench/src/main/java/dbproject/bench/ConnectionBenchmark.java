@@ -0,0 +1,168 @@
+package dbproject.bench;
+
+import dbproject.networking.Protocol;
+import dbproject.networking.ThreadMode;
+import dbproject.server.Server;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the cost of idle client connections on a {@link Server} that reads every connection
+ * with a platform thread, with a virtual thread, or with a few event loops.
+ * <p>
+ * Every connection is opened, says hello and then stays idle. The time from connecting to the
+ * hello reply is the accept latency. Once all connections are idle, the heap in use, the
+ * resident memory of the process and the number of platform threads are measured. The clients
+ * run in the same process, so their sockets are part of every footprint; the difference between
+ * the modes is what the server spends.
+ * <p>
+ * Without arguments every mode runs in a JVM of its own, so the modes do not share a heap.
+ * Tens of thousands of connections need a raised open file limit ({@code ulimit -n}): every
+ * connection takes two file descriptors, one for the client and one for the server.
+ * <p>
+ * The virtual mode is only measured on a Java 21 runtime. On older runtimes
+ * {@link ThreadMode#VIRTUAL} falls back to platform threads, and measuring that would only
+ * repeat the platform row under another name, so the mode is skipped.
+ */
+public class ConnectionBenchmark {
+    private static final String EVENT_LOOPS = "loops";
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional number of connections (default: 50000), and one of "platform",
+     *             "virtual" or "loops" to measure a single mode in this JVM
+     * @throws Exception if the server cannot be started or a connection fails
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        if (args.length > 1) {
+            run(args[1], connections);
+            return;
+        }
+        System.out.printf("%-9s %12s %10s %10s %10s %12s %12s %9s%n", "mode", "connections",
+                          "p50 (us)", "p99 (us)", "max (us)", "heap (B/c)", "rss (B/c)",
+                          "threads");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (String mode : new String[]{"platform", "virtual", EVENT_LOOPS}) {
+            if (mode.equals("virtual") && !ThreadMode.isVirtualAvailable()) {
+                System.out.printf("%-9s not measured: needs a Java 21 runtime, this is %s%n",
+                                  mode, Runtime.version());
+                continue;
+            }
+            Process process = new ProcessBuilder(java, "-cp",
+                                                 System.getProperty("java.class.path"),
+                                                 ConnectionBenchmark.class.getName(),
+                                                 String.valueOf(connections), mode)
+                    .inheritIO().start();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Measures one mode.
+     *
+     * @param mode        "platform", "virtual" or "loops"
+     * @param connections number of idle connections
+     * @throws Exception if the server cannot be started or a connection fails
+     */
+    private static void run(String mode, int connections) throws Exception {
+        if (mode.equals("virtual") && !ThreadMode.isVirtualAvailable()) {
+            throw new IllegalStateException("virtual threads need a Java 21 runtime");
+        }
+        PrintStream out = System.out;
+        //the server reports every connection and disconnection, which would drown the results
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Server server = new Server(0);
+        Thread acceptor = new Thread(() -> {
+            try {
+                if (mode.equals(EVENT_LOOPS)) {
+                    server.acceptConnections(Runtime.getRuntime().availableProcessors());
+                } else {
+                    server.acceptConnections(ThreadMode.valueOf(mode.toUpperCase()));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        long heapBefore = usedHeap();
+        long rssBefore = residentMemory();
+        List<Socket> sockets = new ArrayList<>(connections);
+        long[] latencies = new long[connections];
+        try {
+            for (int i = 0; i < connections; i++) {
+                long start = System.nanoTime();
+                Socket socket = new Socket("localhost", server.getPort());
+                sockets.add(socket);
+                socket.getOutputStream().write((Protocol.HELLO + Protocol.SEPARATOR + "bench\n")
+                                                       .getBytes(StandardCharsets.UTF_8));
+                //reading the reply byte by byte leaves nothing buffered for later
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1);
+                in.readLine();
+                latencies[i] = System.nanoTime() - start;
+            }
+            long heap = usedHeap() - heapBefore;
+            long rss = residentMemory() - rssBefore;
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+            Arrays.sort(latencies);
+            out.printf("%-9s %12d %10.0f %10.0f %10.0f %12d %12s %9d%n", mode, connections,
+                       latencies[connections / 2] / 1e3,
+                       latencies[(int) (connections * 0.99)] / 1e3,
+                       latencies[connections - 1] / 1e3, heap / connections,
+                       rssBefore < 0 ? "n/a" : String.valueOf(rss / connections), threads);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            server.close();
+        }
+    }
+
+    /**
+     * Returns the heap in use after a garbage collection.
+     *
+     * @return used heap in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Returns the resident memory of this process, which includes the thread stacks.
+     *
+     * @return resident memory in bytes, or -1 if the system does not report it
+     */
+    private static long residentMemory() {
+        File status = new File("/proc/self/status");
+        try {
+            for (String line : Files.readAllLines(status.toPath())) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // not on Linux
+        }
+        return -1;
+    }
+}
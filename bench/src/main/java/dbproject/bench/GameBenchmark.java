@@ -0,0 +1,85 @@
+package dbproject.bench;
+
+import dbproject.game.Game;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures making moves, generating moves and copying a {@link Game} in a middle game
+ * position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    private Game game;
+    private int[] moves;
+    private int moveCount;
+    private int index;
+    private int[] buffer;
+
+    /**
+     * Creates the middle game position and its valid moves.
+     */
+    @Setup
+    public void setUp() {
+        game = Positions.afterMoves(30);
+        moves = game.getValidMoves();
+        moveCount = moves.length;
+        buffer = new int[game.getBoard().getLineCount()];
+    }
+
+    /**
+     * Makes one of the valid moves and takes it back, so the position stays the same.
+     *
+     * @return the undone move, so the calls are not eliminated
+     */
+    @Benchmark
+    public int doMove() {
+        index = index + 1 == moveCount ? 0 : index + 1;
+        game.doMove(moves[index]);
+        return game.undoMove();
+    }
+
+    /**
+     * Generates the valid moves into a new array.
+     *
+     * @return the moves
+     */
+    @Benchmark
+    public int[] getValidMoves() {
+        return game.getValidMoves();
+    }
+
+    /**
+     * Generates the valid moves into a reused buffer.
+     *
+     * @return the number of moves
+     */
+    @Benchmark
+    public int getValidMovesBuffer() {
+        return game.getValidMoves(buffer);
+    }
+
+    /**
+     * Copies the game.
+     *
+     * @return the copy
+     */
+    @Benchmark
+    public Game deepCopy() {
+        return game.deepCopy();
+    }
+}
@@ -0,0 +1,55 @@
+package dbproject.bench;
+
+import dbproject.game.Game;
+import dbproject.players.MonteCarloStrategy;
+import dbproject.players.MonteCarloStrategy.Parallelism;
+
+/**
+ * Compares the playouts per second of the {@link MonteCarloStrategy} with root and tree
+ * parallelisation, from 1 to N threads.
+ */
+public class MonteCarloBenchmark {
+    private static final int RUNS = 3;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional maximum number of threads (default: available processors) and time
+     *             per search in milliseconds (default: 2000)
+     */
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) :
+                Runtime.getRuntime().availableProcessors();
+        long time = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        Game game = new Game("player1", "player2");
+
+        //warm up the JIT compiler
+        new MonteCarloStrategy(time, Long.MAX_VALUE).determineMove(game);
+
+        System.out.printf("%8s %8s %16s %10s%n", "mode", "threads", "playouts/sec", "speedup");
+        for (Parallelism parallelism : Parallelism.values()) {
+            double baseline = 0;
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                long playouts = 0;
+                long nanos = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    //a fresh strategy per run, so no tree is reused
+                    try (MonteCarloStrategy strategy = new MonteCarloStrategy(
+                            time, Long.MAX_VALUE, threads, parallelism)) {
+                        long start = System.nanoTime();
+                        strategy.determineMove(game);
+                        nanos += System.nanoTime() - start;
+                        playouts += strategy.getLastIterationCount();
+                    }
+                }
+                double perSecond = playouts / (nanos / 1e9);
+                if (threads == 1) {
+                    baseline = perSecond;
+                }
+                System.out.printf("%8s %8d %16.0f %10.2f%n", parallelism, threads, perSecond,
+                                  perSecond / baseline);
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,62 @@
+package dbproject.bench;
+
+import dbproject.game.Game;
+import dbproject.players.AlphaBetaStrategy;
+import dbproject.players.TranspositionTable;
+import java.util.Arrays;
+
+/**
+ * Measures the speedup of the parallel {@link AlphaBetaStrategy} search from 1 to N threads.
+ * <p>
+ * Every run searches the same middle game position to a fixed depth with a fresh transposition
+ * table, and the median time to depth of a number of runs is compared with the single-threaded
+ * time.
+ */
+public class ParallelSearchBenchmark {
+    private static final int OPENING_MOVES = 20;
+    private static final int RUNS = 3;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional maximum number of threads (default: available processors) and
+     *             search depth (default: 8)
+     */
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) :
+                Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        Game position = Positions.afterMoves(OPENING_MOVES);
+        System.out.println(position);
+        System.out.printf("%8s %12s %14s %10s%n", "threads", "time (ms)", "nodes", "speedup");
+
+        //warm up the JIT compiler, so the single-threaded baseline is not penalised
+        new AlphaBetaStrategy(Long.MAX_VALUE / 2_000_000L, depth, new TranspositionTable(
+                64, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED)).determineMove(position);
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            long[] times = new long[RUNS];
+            long nodes = 0;
+            for (int run = 0; run < RUNS; run++) {
+                TranspositionTable table = new TranspositionTable(
+                        64, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+                try (AlphaBetaStrategy strategy = new AlphaBetaStrategy(
+                        Long.MAX_VALUE / 2_000_000L, depth, table, threads)) {
+                    long start = System.nanoTime();
+                    strategy.determineMove(position);
+                    times[run] = System.nanoTime() - start;
+                    nodes = strategy.getLastNodeCount();
+                }
+            }
+            Arrays.sort(times);
+            double millis = times[RUNS / 2] / 1e6;
+            if (threads == 1) {
+                baseline = millis;
+            }
+            System.out.printf("%8d %12.1f %14d %10.2f%n", threads, millis, nodes,
+                              baseline / millis);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,33 @@
+package dbproject.bench;
+
+import dbproject.game.Game;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Reproducible positions for the benchmarks.
+ */
+final class Positions {
+    private static final long SEED = 2024;
+
+    private Positions() {
+    }
+
+    /**
+     * Plays a fixed sequence of pseudo-random moves from the empty board of the default
+     * dimension.
+     *
+     * @param moves number of moves to play
+     * @return the resulting game
+     */
+    static Game afterMoves(int moves) {
+        Game game = new Game("player1", "player2");
+        Random random = new Random(SEED);
+        for (int i = 0; i < moves && !game.gameOver(); i++) {
+            int[] valid = game.getValidMoves();
+            Arrays.sort(valid);
+            game.doMove(valid[random.nextInt(valid.length)]);
+        }
+        return game;
+    }
+}
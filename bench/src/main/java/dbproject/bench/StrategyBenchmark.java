@@ -0,0 +1,67 @@
+package dbproject.bench;
+
+import dbproject.game.Game;
+import dbproject.players.SmartStrategy;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the move choice of the {@link SmartStrategy} and complete games of random moves,
+ * the inner loop of playout-based strategies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyBenchmark {
+    private final SmartStrategy smart = new SmartStrategy();
+    private final SplittableRandom random = new SplittableRandom(2024);
+    private Game middleGame;
+    private int[] buffer;
+
+    /**
+     * Creates the middle game position.
+     */
+    @Setup
+    public void setUp() {
+        middleGame = Positions.afterMoves(30);
+        buffer = new int[middleGame.getBoard().getLineCount()];
+    }
+
+    /**
+     * Chooses a move in the middle game position.
+     *
+     * @return the move
+     */
+    @Benchmark
+    public int smartDetermineMove() {
+        return smart.determineMove(middleGame);
+    }
+
+    /**
+     * Plays a game of random moves from the empty board to the end.
+     *
+     * @return the final score difference, so the game is not eliminated
+     */
+    @Benchmark
+    public int randomPlayout() {
+        Game game = new Game("player1", "player2");
+        while (!game.gameOver()) {
+            int count = game.getValidMoves(buffer);
+            game.doMove(buffer[random.nextInt(count)]);
+        }
+        return game.getScoreDifference();
+    }
+}
@@ -1,6 +1,7 @@
 package dbproject.client;
 
 import dbproject.exceptions.IllegalMoveException;
+import dbproject.game.Board;
 import dbproject.game.Game;
 import dbproject.networking.Protocol;
 import dbproject.players.Player;
@@ -102,6 +103,16 @@ public class Client {
         clientConnection.sendQueue();
     }
 
+    /**
+     * Sends queue entry request message to server, for a game on a board of the given
+     * dimension.
+     *
+     * @param dimension dimension of the board to play on
+     */
+    public void sendQueueEntry(int dimension) {
+        clientConnection.sendQueue(dimension);
+    }
+
     /**
      * Sends move to server if move is valid.
      *
@@ -171,7 +182,19 @@ public class Client {
      * @param player2 Username of player 2
      */
     public void receiveNewGame(String player1, String player2) {
-        game = new Game(player1, player2);
+        receiveNewGame(player1, player2, Board.DIM);
+    }
+
+    /**
+     * Passes new game message to listeners and starts a new game on a board of the given
+     * dimension. Asks for move if client is first to move.
+     *
+     * @param player1   Username of player 1
+     * @param player2   Username of player 2
+     * @param dimension Dimension of the board
+     */
+    public void receiveNewGame(String player1, String player2, int dimension) {
+        game = new Game(player1, player2, dimension);
         for (ClientListener clientListener : clientListeners) {
             clientListener.newGame();
         }
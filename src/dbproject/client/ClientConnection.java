@@ -1,5 +1,6 @@
 package dbproject.client;
 
+import dbproject.game.Board;
 import dbproject.networking.Protocol;
 import dbproject.networking.SocketConnection;
 
@@ -67,7 +68,9 @@ public class ClientConnection extends SocketConnection {
                     }
                     String player1 = messageParts[1];
                     String player2 = messageParts[2];
-                    client.receiveNewGame(player1, player2);
+                    int dimension = messageParts.length > 3 ?
+                            Integer.parseInt(messageParts[3]) : Board.DIM;
+                    client.receiveNewGame(player1, player2, dimension);
                     break;
                 case Protocol.MOVE:
                     if (messageParts.length < 2) {
@@ -151,6 +154,19 @@ public class ClientConnection extends SocketConnection {
         super.sendMessage(Protocol.QUEUE);
     }
 
+    /**
+     * Sends a request to enter or exit the queue for games on a board of the given dimension.
+     *
+     * @param dimension dimension of the board to play on
+     */
+    public void sendQueue(int dimension) {
+        if (dimension == Board.DIM) {
+            sendQueue();
+            return;
+        }
+        super.sendMessage(Protocol.QUEUE + Protocol.SEPARATOR + dimension);
+    }
+
     /**
      * Sends a move.
      * Passes a location. Does not validate the location.
@@ -1,5 +1,6 @@
 package dbproject.client;
 
+import dbproject.game.Board;
 import dbproject.networking.Protocol;
 import dbproject.players.*;
 import dbproject.exceptions.*;
@@ -37,6 +38,7 @@ public class ClientTUI implements ClientListener, ClientMoveInput {
     private static final int DEFAULT_PORT = 4567;
     private static final String NAIVE = "Naive";
     private static final String SMART = "Smart";
+    private static final String EXPERT = "Expert";
     private static final int POLLING_INTERVAL = 50;
     private final NonBlockingScanner nonBlockingScanner;
     private final PrintStream out;
@@ -236,7 +238,7 @@ public class ClientTUI implements ClientListener, ClientMoveInput {
      */
     private void askForAILevel() {
         setCallbackState(UIState.ASK_FOR_AI_LEVEL);
-        out.print("AI Level (" + NAIVE + " or " + SMART + ")? ");
+        out.print("AI Level (" + NAIVE + ", " + SMART + " or " + EXPERT + ")? ");
     }
 
     /**
@@ -256,7 +258,7 @@ public class ClientTUI implements ClientListener, ClientMoveInput {
      */
     private void mainMenu() {
         setCallbackState(UIState.MAIN_MENU);
-        out.print("Press enter to queue for game: ");
+        out.print("Press enter to queue for game (or type a board size, e.g. 3): ");
     }
 
     /**
@@ -496,6 +498,8 @@ public class ClientTUI implements ClientListener, ClientMoveInput {
      * <p>
      * If input matches naive, sets client player to {@link AIPlayer} with {@link NaiveStrategy}.
      * If input matches smart, adds state {@link AIPlayer} with {@link NaiveStrategy}.
+     * If input matches expert, sets client player to {@link AIPlayer} with
+     * {@link AlphaBetaStrategy}.
      * Also, if input is valid, adds state {@link UIState#ASK_FOR_USERNAME}.
      * Otherwise, adds state {@link UIState#ASK_FOR_AI_LEVEL}.
      *
@@ -508,6 +512,8 @@ public class ClientTUI implements ClientListener, ClientMoveInput {
             strategy = new NaiveStrategy();
         } else if (input.toUpperCase().startsWith(SMART.substring(0, 1).toUpperCase())) {
             strategy = new SmartStrategy();
+        } else if (input.toUpperCase().startsWith(EXPERT.substring(0, 1).toUpperCase())) {
+            strategy = new AlphaBetaStrategy();
         } else {
             out.println("Invalid AI level.");
             addState(UIState.ASK_FOR_AI_LEVEL);
@@ -539,6 +545,7 @@ public class ClientTUI implements ClientListener, ClientMoveInput {
      * Parse user input for main menu.
      * <p>
      * If input is empty, send queue entry to server.
+     * If input is a supported board size, send queue entry for that size to server.
      * Otherwise, adds state {@link UIState#MAIN_MENU}
      *
      * @param input User input to parse.
@@ -548,10 +555,21 @@ public class ClientTUI implements ClientListener, ClientMoveInput {
             clearCallbackState();
             client.sendQueueEntry();
             out.println("Waiting for new game...");
-        } else {
-            out.println("Invalid command.");
-            addState(UIState.MAIN_MENU);
+            return;
+        }
+        try {
+            int dimension = Integer.parseInt(input.trim());
+            if (Board.isValidDimension(dimension)) {
+                clearCallbackState();
+                client.sendQueueEntry(dimension);
+                out.println("Waiting for new game on a board of size " + dimension + "...");
+                return;
+            }
+        } catch (NumberFormatException ignore) {
+            //not a board size, handled as an invalid command below
         }
+        out.println("Invalid command.");
+        addState(UIState.MAIN_MENU);
     }
 
     /**
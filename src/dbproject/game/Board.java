@@ -1,25 +1,25 @@
 package dbproject.game;
 
+import java.util.Arrays;
+
 /**
  * Board for the Dots and Boxes game.
+ * <p>
+ * Lines and boxes are stored as bitboards: one bit per line (or box) records whether it is
+ * occupied, and a second bit records whether it belongs to player 2. All per-line lookups go
+ * through the precomputed tables of a {@link BoardLayout}.
  */
 public class Board {
     /**
-     * Dimension of the board, i.e., if set to 3, the board has 6 rows and 6 columns.
+     * Default dimension of the board, i.e., if set to 3, the board has 6 rows and 6 columns.
      */
     public static final int DIM = 6;
+    /**
+     * Smallest and largest supported dimension of a board.
+     */
+    public static final int MIN_DIM = 2;
+    public static final int MAX_DIM = 64;
     private static final String DELIM = "       ";
-    private static final String[] NUMBERING =
-            {" .  0   .  1   .  2   .  3   .  4   . ", " 5      6      7      8      9      10  ",
-                    " .  11  .  12  .  13  .  14  .  15  . ",
-                    " 16     17     18     19     20     21  ",
-                    " .  22  .  23  .  24  .  25  .  26  . ",
-                    " 27     28     29     30     31     32  ",
-                    " .  33  .  34  .  35  .  36  .  37  . ",
-                    " 38     39     40     41     42     43  ",
-                    " .  44  .  45  .  46  .  47  .  48  . ",
-                    " 49     50     51     52     53     54  ",
-                    " .  55  .  56  .  57  .  58  .  59  . "};
 
     // Declaring ANSI_RESET so that we can reset the color
     public static final String ANSI_RESET = "\u001B[0m";
@@ -29,38 +29,133 @@ public class Board {
     public static final String ANSI_RED = "\u001B[31m";
 
     /*@
-        public invariant lines.length < (DIM-1)*DIM + (DIM-1)*DIM ;
-        public invariant boxes.length < (DIM-1)*(DIM-1);
-        public invariant (\num_of int i; 0 <= i  && i < lines.length ; lines[i] == 1) >=
-        (\num_of int i; 0 <= i  && i < lines.length; lines[i] == 2);
+        public invariant (\forall int i; isLine(i); getLine(i) == 0 || getLine(i) == 1
+                || getLine(i) == 2);
+        public invariant (\forall int i; isBox(i); getBox(i) == 0 || getBox(i) == 1
+                || getBox(i) == 2);
     */
+    private final /*@ spec_public */ int dim;
+    private final BoardLayout layout;
+    /**
+     * The lines of the Dots and Boxes board, one bit per line. See toString for the
+     * coding of the fields. A set bit in lines means the line is drawn, a set bit in
+     * lineOwners means it was drawn by player 2.
+     */
+    private final /*@ spec_public */ long[] lines;
+    private final long[] lineOwners;
     /**
-     * The DIM by DIM fields of the Dots and Boxes board. See NUMBERING for the
-     * coding of the fields.
+     * The boxes of the board, one bit per box, with the same encoding as the lines.
      */
-    private final /*@ spec_public */ int[] lines;
-    private final /*@ spec_public */ int[] boxes;
+    private final /*@ spec_public */ long[] boxes;
+    private final long[] boxOwners;
+    /**
+     * Zobrist keys of the position, updated whenever a line or box changes. lineKey only
+     * covers which lines are drawn, ownerKey covers who drew them and who owns the boxes.
+     */
+    private long lineKey;
+    private long ownerKey;
+    /**
+     * Number of lines that are not drawn yet, updated whenever a line changes.
+     */
+    private int freeLines;
+    /**
+     * Valence of every box: the number of its sides that are drawn, from 0 to 4.
+     */
+    private final byte[] sides;
+    /**
+     * Line bitsets derived from the valences, updated whenever a valence changes. A bit in
+     * captureLines is set if the line borders a box with three sides, a bit in hotLines if it
+     * borders a box with two or more sides. Drawn lines are masked out when they are read.
+     */
+    private final long[] captureLines;
+    private final long[] hotLines;
+    /**
+     * Line key of the board as seen through each {@link Symmetry}, indexed by ordinal: the
+     * xor of the line keys of the images of all drawn lines. The key of IDENTITY is lineKey.
+     */
+    private final long[] symmetricKeys;
 
     // -- Constructors -----------------------------------------------
 
     /**
-     * Creates an empty board.
+     * Creates an empty board of the default dimension {@link #DIM}.
      */
     /*@
-        ensures (\forall int i; (i >= 0 && i < (DIM-1)*DIM + (DIM-1)*DIM); lines[i] == 0);
-        ensures (\forall int i; (i >= 0 && i < (DIM-1)*(DIM-1)); boxes[i] == 0);
+        ensures getDimension() == DIM;
     @*/
     public Board() {
-        lines = new int[(DIM - 1) * DIM + (DIM - 1) * DIM];
-        boxes = new int[(DIM - 1) * (DIM - 1)];
-        //create all lines
-        for (int i = 0; i < (DIM - 1) * DIM + (DIM - 1) * DIM; i++) {
-            lines[i] = 0;
-        }
-        //create all boxes
-        for (int i = 0; i < (DIM - 1) * (DIM - 1); i++) {
-            boxes[i] = 0;
+        this(DIM);
+    }
+
+    /**
+     * Creates an empty board with dim dots on each side. The index tables of a dimension are
+     * computed once and shared by all boards of that dimension.
+     *
+     * @param dim dimension of the board, between {@link #MIN_DIM} and {@link #MAX_DIM}
+     * @throws IllegalArgumentException if dim is out of range
+     */
+    /*@
+        requires dim >= MIN_DIM && dim <= MAX_DIM;
+        ensures getDimension() == dim;
+        ensures (\forall int i; (i >= 0 && i < (dim-1)*dim + (dim-1)*dim); lines[i] == 0);
+        ensures (\forall int i; (i >= 0 && i < (dim-1)*(dim-1)); boxes[i] == 0);
+    @*/
+    public Board(int dim) {
+        this(checkDimension(dim));
+    }
+
+    /**
+     * Creates an empty board with the given layout.
+     *
+     * @param layout index tables of the board
+     */
+    private Board(BoardLayout layout) {
+        this.layout = layout;
+        this.dim = layout.dim;
+        lines = new long[layout.lineWords];
+        lineOwners = new long[layout.lineWords];
+        boxes = new long[layout.boxWords];
+        boxOwners = new long[layout.boxWords];
+        freeLines = layout.lineCount;
+        sides = new byte[layout.boxCount];
+        captureLines = new long[layout.lineWords];
+        hotLines = new long[layout.lineWords];
+        symmetricKeys = new long[layout.symmetricLines.length];
+    }
+
+    /**
+     * Returns whether boards of the given dimension are supported.
+     *
+     * @param dim dimension to check
+     * @return true if MIN_DIM &lt;= dim &lt;= MAX_DIM
+     */
+    //@ ensures \result == (dim >= MIN_DIM && dim <= MAX_DIM);
+    public static boolean isValidDimension(int dim) {
+        return dim >= MIN_DIM && dim <= MAX_DIM;
+    }
+
+    /**
+     * Returns the layout of a dimension, after checking that it is supported.
+     *
+     * @param dim dimension of the board
+     * @return the shared layout of that dimension
+     */
+    private static BoardLayout checkDimension(int dim) {
+        if (!isValidDimension(dim)) {
+            throw new IllegalArgumentException(
+                    "board dimension must be between " + MIN_DIM + " and " + MAX_DIM);
         }
+        return BoardLayout.of(dim);
+    }
+
+    /**
+     * Returns the dimension of this board, the number of dots on each side.
+     *
+     * @return the dimension of this board
+     */
+    //@ pure;
+    public int getDimension() {
+        return dim;
     }
 
     /**
@@ -70,16 +165,24 @@ public class Board {
      */
     /*@
         ensures \result != this;
-        ensures (\forall int i; (i >= 0 && i < (DIM-1)*DIM + (DIM-1)*DIM);
-                    \result.lines[i] == this.lines[i]);
-        ensures (\forall int i; (i >= 0 && i < (DIM-1)*(DIM-1));
-                    \result.boxes[i] == this. boxes[i]);
+        ensures (\forall int i; isLine(i); \result.getLine(i) == this.getLine(i));
+        ensures (\forall int i; isBox(i); \result.getBox(i) == this.getBox(i));
         pure
      @*/
     public Board deepCopy() {
-        Board copiedBoard = new Board();
-        System.arraycopy(this.lines, 0, copiedBoard.lines, 0, (DIM - 1) * DIM + (DIM - 1) * DIM);
-        System.arraycopy(this.boxes, 0, copiedBoard.boxes, 0, (DIM - 1) * (DIM - 1));
+        Board copiedBoard = new Board(layout);
+        System.arraycopy(this.lines, 0, copiedBoard.lines, 0, layout.lineWords);
+        System.arraycopy(this.lineOwners, 0, copiedBoard.lineOwners, 0, layout.lineWords);
+        System.arraycopy(this.boxes, 0, copiedBoard.boxes, 0, layout.boxWords);
+        System.arraycopy(this.boxOwners, 0, copiedBoard.boxOwners, 0, layout.boxWords);
+        copiedBoard.lineKey = lineKey;
+        copiedBoard.ownerKey = ownerKey;
+        copiedBoard.freeLines = freeLines;
+        System.arraycopy(this.sides, 0, copiedBoard.sides, 0, layout.boxCount);
+        System.arraycopy(this.captureLines, 0, copiedBoard.captureLines, 0, layout.lineWords);
+        System.arraycopy(this.hotLines, 0, copiedBoard.hotLines, 0, layout.lineWords);
+        System.arraycopy(this.symmetricKeys, 0, copiedBoard.symmetricKeys, 0,
+                         symmetricKeys.length);
         return copiedBoard;
     }
 
@@ -92,16 +195,16 @@ public class Board {
      * @return the line index belonging to the horizontal (row,col)-line
      */
     /*@
-        requires row >= 0 && row < DIM;
-        requires col >= 0 && col < DIM -1;
-        ensures (row >= 0 && row < DIM && col >= 0 && col < DIM - 1) ==>
-            \result == (row * (2 * DIM - 1)) + col;
+        requires row >= 0 && row < dim;
+        requires col >= 0 && col < dim -1;
+        ensures (row >= 0 && row < dim && col >= 0 && col < dim - 1) ==>
+            \result == (row * (2 * dim - 1)) + col;
         pure
      @*/
     public int horizontalIndex(int row, int col) {
-        if (row >= 0 && row < DIM && col >= 0 && col < DIM - 1) {
-            //2*DIM-1 lines in between 1 row
-            return (row * (2 * DIM - 1)) + col;
+        if (row >= 0 && row < dim && col >= 0 && col < dim - 1) {
+            //2*dim-1 lines in between 1 row
+            return layout.horizontalIndex(row, col);
         }
         throw new IllegalArgumentException(
                 "inputs are not indices of " + "a horizontal line on the board");
@@ -116,15 +219,15 @@ public class Board {
      * @return the line index belonging to the vertical (row,col)-line
      */
     /*@
-        requires row >= 0 && row < DIM -1;
-        requires col >= 0 && col < DIM;
-        ensures (row >= 0 && row < DIM - 1 && col >= 0 && col < DIM) ==>
-                \result == (row + 1) * (DIM - 1) + (row * (DIM - 1) + row) + col;
+        requires row >= 0 && row < dim -1;
+        requires col >= 0 && col < dim;
+        ensures (row >= 0 && row < dim - 1 && col >= 0 && col < dim) ==>
+                \result == (row + 1) * (dim - 1) + (row * (dim - 1) + row) + col;
         pure
      @*/
     public int verticalIndex(int row, int col) {
-        if (row >= 0 && row < DIM - 1 && col >= 0 && col < DIM) {
-            return (row + 1) * (DIM - 1) + row * (DIM - 1) + row + col;
+        if (row >= 0 && row < dim - 1 && col >= 0 && col < dim) {
+            return layout.verticalIndex(row, col);
         }
         throw new IllegalArgumentException(
                 "inputs are not indices of a vertical line " + "on the board");
@@ -141,16 +244,13 @@ public class Board {
         ensures isHorizontalLine(location) ==>
                 getHorizontalLine(\result[0], \result[1]) == location;
         ensures isHorizontalLine(location) ==>
-                \result[0] == (location - \result[1]) / (DIM + DIM - 1);
-        ensures isHorizontalLine(location) ==> \result[1] == location % (DIM + DIM - 1);
+                \result[0] == (location - \result[1]) / (dim + dim - 1);
+        ensures isHorizontalLine(location) ==> \result[1] == location % (dim + dim - 1);
         pure
     */
     public int[] getRowColHorizontal(int location) {
         if (isHorizontalLine(location)) {
-            int[] result = new int[2];
-            result[1] = location % (DIM + DIM - 1);
-            result[0] = (location - result[1]) / (DIM + DIM - 1);
-            return result;
+            return new int[]{layout.lineRow[location], layout.lineCol[location]};
         }
         throw new IllegalArgumentException("location is not horizontal line");
     }
@@ -165,16 +265,13 @@ public class Board {
         requires isVerticalLine(location);
         ensures isVerticalLine(location) ==> getVerticalLine(\result[0], \result[1]) == location;
         ensures isVerticalLine(location) ==>
-                \result[0] == (location - \result[1]) / (DIM + DIM - 1);
-        ensures isVerticalLine(location) ==> \result[1] == (location - (DIM-1)) % (DIM + DIM - 1);
+                \result[0] == (location - \result[1]) / (dim + dim - 1);
+        ensures isVerticalLine(location) ==> \result[1] == (location - (dim-1)) % (dim + dim - 1);
         pure
     */
     public int[] getRowColVertical(int location) {
         if (isVerticalLine(location)) {
-            int[] result = new int[2];
-            result[1] = (location - (DIM - 1)) % (DIM + DIM - 1);
-            result[0] = (location - result[1]) / (DIM + DIM - 1);
-            return result;
+            return new int[]{layout.lineRow[location], layout.lineCol[location]};
         }
         throw new IllegalArgumentException("location is not vertical line");
     }
@@ -183,12 +280,12 @@ public class Board {
      * Returns true if location is a valid index of a line on the board.
      *
      * @param location index of line to check
-     * @return true if 0 &lt;= location &lt; (DIM-1)*DIM + (DIM-1)*DIM
+     * @return true if 0 &lt;= location &lt; (dim-1)*dim + (dim-1)*dim
      */
-    //@ ensures location >= 0 && location < (DIM-1)*DIM + (DIM-1)*DIM ==> \result == true;
+    //@ ensures location >= 0 && location < (dim-1)*dim + (dim-1)*dim ==> \result == true;
     //@ pure;
     public boolean isLine(int location) {
-        return (location >= 0) && (location < (DIM - 1) * DIM + (DIM - 1) * DIM);
+        return (location >= 0) && (location < layout.lineCount);
     }
 
     /**
@@ -205,14 +302,7 @@ public class Board {
         if (!isLine(location)) {
             throw new IllegalArgumentException("location is not valid index for a line");
         }
-        for (int row = 0; row < DIM; row++) {
-            for (int col = 0; col < DIM - 1; col++) {
-                if (horizontalIndex(row, col) == location) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return layout.horizontal[location];
     }
 
     /**
@@ -229,28 +319,21 @@ public class Board {
         if (!isLine(location)) {
             throw new IllegalArgumentException("location is not valid index for a line");
         }
-        for (int row = 0; row < DIM - 1; row++) {
-            for (int col = 0; col < DIM; col++) {
-                if (verticalIndex(row, col) == location) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return !layout.horizontal[location];
     }
 
     /**
      * Returns true if location is a valid index of a box on the board.
      *
      * @param location index of box to check
-     * @return true if 0 &lt;= location &lt; (DIM-1)*(DIM-1)
+     * @return true if 0 &lt;= location &lt; (dim-1)*(dim-1)
      */
     /*@
-        ensures location >= 0 && location < (DIM-1)*(DIM-1) ==> \result == true;
+        ensures location >= 0 && location < (dim-1)*(dim-1) ==> \result == true;
         pure;
     */
     public boolean isBox(int location) {
-        return (location >= 0) && (location < (DIM - 1) * (DIM - 1));
+        return (location >= 0) && (location < layout.boxCount);
     }
 
     /**
@@ -258,20 +341,20 @@ public class Board {
      *
      * @param row row index of box
      * @param column column index of box
-     * @return true if 0 &lt;= row &lt; (DIM-1) &amp;&amp; 0 &lt;= column &lt; (DIM-1)
+     * @return true if 0 &lt;= row &lt; (dim-1) &amp;&amp; 0 &lt;= column &lt; (dim-1)
      */
     /*@
-        ensures row >= 0 && row < (DIM-1) && column >= 0 && column < (DIM-1) ==> \result == true;
+        ensures row >= 0 && row < (dim-1) && column >= 0 && column < (dim-1) ==> \result == true;
         pure;
     */
     public boolean isBox(int row, int column) {
-        return (row >= 0) && (row < (DIM - 1)) && (column >= 0) && (column < (DIM - 1));
+        return (row >= 0) && (row < (dim - 1)) && (column >= 0) && (column < (dim - 1));
     }
 
     /**
      * Returns the content of the line at index location.
      *
-     * @param location the number of the line (see NUMBERING)
+     * @param location the number of the line (see toString)
      * @return the content on the line
      */
     /*@
@@ -283,7 +366,7 @@ public class Board {
         if (!isLine(location)) {
             throw new IllegalArgumentException("location is not valid index for a line");
         }
-        return lines[location];
+        return lineAt(location);
     }
 
     /**
@@ -300,10 +383,11 @@ public class Board {
         pure;
      @*/
     public int getHorizontalLine(int row, int column) {
-        if (!isHorizontalLine(horizontalIndex(row, column))) {
+        int location = horizontalIndex(row, column);
+        if (!isHorizontalLine(location)) {
             throw new IllegalArgumentException("indices do not represent a horizontal line");
         }
-        return lines[horizontalIndex(row, column)];
+        return lineAt(location);
     }
 
     /**
@@ -320,16 +404,17 @@ public class Board {
     pure;
      @*/
     public int getVerticalLine(int row, int column) {
-        if (!isVerticalLine(verticalIndex(row, column))) {
+        int location = verticalIndex(row, column);
+        if (!isVerticalLine(location)) {
             throw new IllegalArgumentException("indices do not represent a vertical line");
         }
-        return lines[verticalIndex(row, column)];
+        return lineAt(location);
     }
 
     /**
      * Returns true if the line at index location is empty.
      *
-     * @param location the index of the line (see NUMBERING)
+     * @param location the index of the line (see toString)
      * @return true if the line is empty
      */
     /*@ requires isLine(location);
@@ -340,13 +425,13 @@ public class Board {
         if (!isLine(location)) {
             throw new IllegalArgumentException("location is not valid index for a line");
         }
-        return getLine(location) == 0;
+        return !isSet(lines, location);
     }
 
     /**
      * Returns the content of box at index location.
      *
-     * @param location the index of the box (see NUMBERING)
+     * @param location the index of the box (see toString)
      * @return the content of the box
      */
     /*@ requires isBox(location);
@@ -357,7 +442,7 @@ public class Board {
         if (!isBox(location)) {
             throw new IllegalArgumentException("location is not valid index for a box");
         }
-        return boxes[location];
+        return boxAt(location);
     }
 
     /**
@@ -375,7 +460,7 @@ public class Board {
         if (!isBox(row, column)) {
             throw new IllegalArgumentException("indices do not represent a box on the board");
         }
-        return boxes[row * (DIM - 1) + column];
+        return boxAt(row * (dim - 1) + column);
     }
 
     /**
@@ -384,23 +469,17 @@ public class Board {
      * @return true if all lines are occupied
      */
     /*@
-        ensures (\forall int i; (i >= 0 && i < (DIM-1)*DIM + (DIM-1)*DIM);
-                lines[i] == 1 || lines[i] == 2);
+        ensures \result <==> (\forall int i; isLine(i); getLine(i) == 1 || getLine(i) == 2);
         pure;
     @*/
     public boolean isFull() {
-        for (int i = 0; i < (DIM - 1) * DIM + (DIM - 1) * DIM; i++) {
-            if (lines[i] == 0) {
-                return false;
-            }
-        }
-        return true;
+        return freeLines == 0;
     }
 
     /**
      * Sets the content of line location to playerNumber.
      *
-     * @param location the line number (see NUMBERING)
+     * @param location the line number (see toString)
      * @param playerNumber the player that set the line
      */
     /*@
@@ -411,7 +490,7 @@ public class Board {
         if (!isLine(location)) {
             throw new IllegalArgumentException("location is not valid index of a line");
         }
-        lines[location] = playerNumber;
+        writeLine(location, playerNumber);
     }
 
     /**
@@ -428,7 +507,7 @@ public class Board {
         if (!isBox(location)) {
             throw new IllegalArgumentException("location is not valid index of a box");
         }
-        boxes[location] = playerNumber;
+        writeBox(location, playerNumber);
     }
 
     /**
@@ -454,41 +533,101 @@ public class Board {
         if (!isLine(location)) {
             throw new IllegalArgumentException("location is not valid index of a line");
         }
-        int[] result = new int[2];
-        if (isHorizontalLine(location)) {
-            for (int col = 0; col < DIM - 1; col++) {
-                if (location == horizontalIndex(0, col)) {
-                    //location has only box above it
-                    result[1] = completeBoxAbove(location);
-                    result[0] = -1;
-                    return result;
-                } else if (location == horizontalIndex(DIM - 1, col)) {
-                    //location has only box under it
-                    result[0] = completeBoxUnder(location);
-                    result[1] = -1;
-                    return result;
-                }
+        int first = layout.completeSlots[2 * location];
+        int second = layout.completeSlots[2 * location + 1];
+        return new int[]{first == -1 || !completesBox(first, location) ? -1 : first,
+                second == -1 || !completesBox(second, location) ? -1 : second};
+    }
+
+    /**
+     * Sets the line at location for playerNumber and assigns every box this completes to
+     * playerNumber. Unlike {@link #completeBox(int)}, this does not allocate.
+     *
+     * @param location     index of the line to set
+     * @param playerNumber the player (1 or 2) that sets the line
+     * @return the number of boxes completed by the line, 0, 1 or 2
+     */
+    /*@
+        requires isLine(location);
+        requires playerNumber == 1 || playerNumber == 2;
+        ensures getLine(location) == playerNumber;
+        ensures \result >= 0 && \result <= 2;
+    */
+    public int playLine(int location, int playerNumber) {
+        if (!isLine(location)) {
+            throw new IllegalArgumentException("location is not valid index of a line");
+        }
+        writeLine(location, playerNumber);
+        int completed = 0;
+        for (int i = 2 * location; i < 2 * location + 2; i++) {
+            int box = layout.completeSlots[i];
+            if (box != -1 && completesBox(box, location)) {
+                writeBox(box, playerNumber);
+                completed++;
             }
-            result[0] = completeBoxAbove(location);
-            result[1] = completeBoxUnder(location);
-            return result;
-        }
-        for (int row = 0; row < DIM - 1; row++) {
-            if (location == verticalIndex(row, 0)) {
-                //location has only box to the right
-                result[1] = completeBoxRight(location);
-                result[0] = -1;
-                return result;
-            } else if (location == verticalIndex(row, DIM - 1)) {
-                //location has only box to the left
-                result[0] = completeBoxLeft(location);
-                result[1] = -1;
-                return result;
+        }
+        return completed;
+    }
+
+    /**
+     * Reverts {@link #playLine(int, int)}: clears the line at location and every box next to
+     * it that was completed. This assumes the line was the last line set on the board, so any
+     * completed box next to it was completed by this line.
+     *
+     * @param location index of the line to clear
+     * @return the number of boxes cleared, 0, 1 or 2
+     */
+    /*@
+        requires isLine(location);
+        ensures getLine(location) == 0;
+        ensures \result >= 0 && \result <= 2;
+    */
+    public int unplayLine(int location) {
+        if (!isLine(location)) {
+            throw new IllegalArgumentException("location is not valid index of a line");
+        }
+        writeLine(location, 0);
+        int cleared = 0;
+        for (int i = 2 * location; i < 2 * location + 2; i++) {
+            int box = layout.completeSlots[i];
+            if (box != -1 && isSet(boxes, box)) {
+                writeBox(box, 0);
+                cleared++;
             }
         }
-        result[0] = completeBoxLeft(location);
-        result[1] = completeBoxRight(location);
-        return result;
+        return cleared;
+    }
+
+    /**
+     * Returns the number of lines on this board.
+     *
+     * @return the number of lines
+     */
+    //@ pure;
+    public int getLineCount() {
+        return layout.lineCount;
+    }
+
+    /**
+     * Returns the number of boxes on this board.
+     *
+     * @return the number of boxes
+     */
+    //@ pure;
+    public int getBoxCount() {
+        return layout.boxCount;
+    }
+
+    /**
+     * Returns true if the three lines of box other than the line at location are all set.
+     *
+     * @param box      index of the box
+     * @param location index of a line surrounding the box
+     * @return true if setting the line at location completes the box
+     */
+    private boolean completesBox(int box, int location) {
+        //the valence counts location itself if it is already drawn
+        return sides[box] - (isSet(lines, location) ? 1 : 0) == 3;
     }
 
     /**
@@ -501,22 +640,19 @@ public class Board {
      */
     /*@
         requires isHorizontalLine(location);
-        requires getRowColHorizontal(location)[0] != DIM-1;
-        ensures getLine(location+(DIM-1))==0 || getLine(location+DIM)==0
-                || getLine(location+(DIM+DIM-1))==0 ==> \result == -1;
+        requires getRowColHorizontal(location)[0] != dim-1;
+        ensures getLine(location+(dim-1))==0 || getLine(location+dim)==0
+                || getLine(location+(dim+dim-1))==0 ==> \result == -1;
         pure
     */
     public int completeBoxAbove(int location) {
-        if (!isHorizontalLine(location) || getRowColHorizontal(location)[0] == DIM - 1) {
+        if (!isHorizontalLine(location) || layout.lineRow[location] == dim - 1) {
             throw new IllegalArgumentException(
                     "location is not horizontal line that has a box above it");
         }
-        if (getLine(location + (DIM - 1)) == 0 || getLine(location + DIM) == 0 ||
-                getLine(location + (DIM + DIM - 1)) == 0) {
-            //the other lines surrounding the box are not all set
-            return -1;
-        }
-        return getRowColHorizontal(location)[1] + (getRowColHorizontal(location)[0] * (DIM - 1));
+        int box = layout.lineCol[location] + layout.lineRow[location] * (dim - 1);
+        //-1 if the other lines surrounding the box are not all set
+        return completesBox(box, location) ? box : -1;
     }
 
     /**
@@ -530,22 +666,18 @@ public class Board {
     /*@
         requires isHorizontalLine(location);
         requires getRowColHorizontal(location)[0] != 0;
-        ensures getLine(location-(DIM-1))==0 || getLine(location-DIM)==0
-                || getLine(location-(DIM+DIM-1))==0 ==> \result == -1;
+        ensures getLine(location-(dim-1))==0 || getLine(location-dim)==0
+                || getLine(location-(dim+dim-1))==0 ==> \result == -1;
         pure
     */
     public int completeBoxUnder(int location) {
-        if (!isHorizontalLine(location) || getRowColHorizontal(location)[0] == 0) {
+        if (!isHorizontalLine(location) || layout.lineRow[location] == 0) {
             throw new IllegalArgumentException(
                     "location is not horizontal line that has a box under it");
         }
-        if (getLine(location - (DIM - 1)) == 0 || getLine(location - DIM) == 0 ||
-                getLine(location - (DIM + DIM - 1)) == 0) {
-            //the other lines surrounding the box are not all set
-            return -1;
-        }
-        return getRowColHorizontal(location)[1] +
-                ((getRowColHorizontal(location)[0] - 1) * (DIM - 1));
+        int box = layout.lineCol[location] + (layout.lineRow[location] - 1) * (dim - 1);
+        //-1 if the other lines surrounding the box are not all set
+        return completesBox(box, location) ? box : -1;
 
     }
 
@@ -559,22 +691,19 @@ public class Board {
      */
     /*@
         requires isVerticalLine(location);
-        requires getRowColVertical(location)[1]!= DIM-1;
-        ensures getLine(location+1)==0 || getLine(location+DIM)==0
-                || getLine(location-(DIM-1))==0 ==> \result == -1;
+        requires getRowColVertical(location)[1]!= dim-1;
+        ensures getLine(location+1)==0 || getLine(location+dim)==0
+                || getLine(location-(dim-1))==0 ==> \result == -1;
         pure
     */
     public int completeBoxRight(int location) {
-        if (!isVerticalLine(location) || getRowColVertical(location)[1] == DIM - 1) {
+        if (!isVerticalLine(location) || layout.lineCol[location] == dim - 1) {
             throw new IllegalArgumentException(
                     "location is not vertical line that has a box right of it");
         }
-        if (getLine(location + 1) == 0 || getLine(location + DIM) == 0 ||
-                getLine(location - (DIM - 1)) == 0) {
-            //the other lines surrounding the box are not all set
-            return -1;
-        }
-        return getRowColVertical(location)[1] + (getRowColVertical(location)[0] * (DIM - 1));
+        int box = layout.lineCol[location] + layout.lineRow[location] * (dim - 1);
+        //-1 if the other lines surrounding the box are not all set
+        return completesBox(box, location) ? box : -1;
     }
 
     /**
@@ -588,21 +717,18 @@ public class Board {
     /*@
         requires isVerticalLine(location);
         requires getRowColVertical(location)[1] != 0;
-        ensures getLine(location-1)==0 || getLine(location-DIM)==0
-                || getLine(location+(DIM-1))==0 ==> \result == -1;
+        ensures getLine(location-1)==0 || getLine(location-dim)==0
+                || getLine(location+(dim-1))==0 ==> \result == -1;
         pure
     */
     public int completeBoxLeft(int location) {
-        if (!isVerticalLine(location) || getRowColVertical(location)[1] == 0) {
+        if (!isVerticalLine(location) || layout.lineCol[location] == 0) {
             throw new IllegalArgumentException(
                     "location is not vertical line that has a box left of it");
         }
-        if (getLine(location - 1) == 0 || getLine(location - DIM) == 0 ||
-                getLine(location + (DIM - 1)) == 0) {
-            //the other lines surrounding the box are not all set
-            return -1;
-        }
-        return (getRowColVertical(location)[1] - 1) + (getRowColVertical(location)[0] * (DIM - 1));
+        int box = (layout.lineCol[location] - 1) + layout.lineRow[location] * (dim - 1);
+        //-1 if the other lines surrounding the box are not all set
+        return completesBox(box, location) ? box : -1;
     }
 
     /**
@@ -616,10 +742,10 @@ public class Board {
     */
     public String toString() {
         StringBuilder s = new StringBuilder();
-        for (int i = 0; i < (DIM + DIM) - 1; i++) {
+        for (int i = 0; i < (dim + dim) - 1; i++) {
             StringBuilder row = new StringBuilder();
             if (i % 2 == 0) {
-                for (int j = 0; j < DIM - 1; j++) {
+                for (int j = 0; j < dim - 1; j++) {
                     //printing horizontal lines (that start with a dot)
                     row.append(".");
                     if (getHorizontalLine(i / 2, j) == 1) {
@@ -632,7 +758,7 @@ public class Board {
                 }
                 row.append(".");
             } else {
-                for (int j = 0; j < DIM - 1; j++) {
+                for (int j = 0; j < dim - 1; j++) {
                     //printing vertical lines, which also include
                     // the content of the boxes on that line
                     if (getVerticalLine(i / 2, j) == 1) {
@@ -652,15 +778,15 @@ public class Board {
                         row.append(" " + "  ");
                     }
                 }
-                if (getVerticalLine(i / 2, DIM - 1) == 1) {
+                if (getVerticalLine(i / 2, dim - 1) == 1) {
                     row.append(ANSI_RED + "|" + ANSI_RESET);
-                } else if (getVerticalLine(i / 2, DIM - 1) == 2) {
+                } else if (getVerticalLine(i / 2, dim - 1) == 2) {
                     row.append(ANSI_BLUE + "|" + ANSI_RESET);
                 } else {
                     row.append("  ");
                 }
             }
-            s.append(row).append(DELIM).append(NUMBERING[i]).append("\n");
+            s.append(row).append(DELIM).append(layout.numbering[i]).append("\n");
         }
         return s.toString();
     }
@@ -677,16 +803,456 @@ public class Board {
         pure;
     */
     public boolean compareTo(Board board) {
-        for (int i = 0; i < (DIM - 1) * DIM + (DIM - 1) * DIM; i++) {
-            if (this.lines[i] != board.lines[i]) {
-                return false;
+        return layout == board.layout
+                && Arrays.equals(this.lines, board.lines)
+                && Arrays.equals(this.lineOwners, board.lineOwners)
+                && Arrays.equals(this.boxes, board.boxes)
+                && Arrays.equals(this.boxOwners, board.boxOwners);
+    }
+
+    /**
+     * Returns the Zobrist key of the drawn lines, regardless of which player drew them.
+     * Two boards with the same lines drawn have the same line key.
+     *
+     * @return the 64-bit Zobrist key of the drawn lines
+     */
+    //@ pure;
+    public long getLineKey() {
+        return lineKey;
+    }
+
+    /**
+     * Returns the symmetry that maps this board to its canonical frame: the frame with the
+     * smallest line key of the eight symmetric boards. All boards that are symmetric to each
+     * other have the same canonical frame, up to symmetries of the board itself.
+     *
+     * @return the symmetry to apply to lines of this board to get the canonical lines
+     */
+    //@ pure;
+    public Symmetry getCanonicalSymmetry() {
+        int best = 0;
+        for (int i = 1; i < symmetricKeys.length; i++) {
+            if (symmetricKeys[i] < symmetricKeys[best]) {
+                best = i;
             }
         }
-        for (int i = 0; i < (DIM - 1) * (DIM - 1); i++) {
-            if (this.boxes[i] != board.boxes[i]) {
-                return false;
+        return Symmetry.of(best);
+    }
+
+    /**
+     * Returns the line key of the canonical frame of this board, which is the same for all
+     * eight boards that are symmetric to each other.
+     *
+     * @return the canonical line key
+     */
+    //@ pure;
+    public long getCanonicalLineKey() {
+        long min = symmetricKeys[0];
+        for (int i = 1; i < symmetricKeys.length; i++) {
+            min = Math.min(min, symmetricKeys[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Returns the number of 64-bit words of the line bitboard.
+     *
+     * @return the number of words returned by {@link #getLineWord(int)}
+     */
+    //@ pure;
+    public int getLineWordCount() {
+        return layout.lineWords;
+    }
+
+    /**
+     * Returns the number of lines that are not drawn yet.
+     *
+     * @return the number of free lines
+     */
+    /*@
+        ensures \result == (\num_of int i; isLine(i); isEmptyField(i));
+        pure;
+    */
+    public int getFreeLineCount() {
+        return freeLines;
+    }
+
+    /**
+     * Returns one 64-bit word of the free lines: bit i of word w is set if the line with index
+     * 64 * w + i is a line of this board that is not drawn. Iterating over the set bits visits
+     * the free lines in ascending order.
+     *
+     * @param index index of the word
+     * @return the word of free lines
+     */
+    /*@
+        requires index >= 0 && index < getLineWordCount();
+        pure;
+    */
+    public long getFreeLineWord(int index) {
+        long valid = index == layout.lineWords - 1 ? lastWordMask(layout.lineCount) : -1L;
+        return ~lines[index] & valid;
+    }
+
+    /**
+     * Returns the valence of a box, the number of its sides that are drawn.
+     *
+     * @param location the index of the box
+     * @return the number of drawn sides, from 0 to 4
+     * @throws IllegalArgumentException if location is not a valid index of a box
+     */
+    /*@
+        requires isBox(location);
+        ensures \result >= 0 && \result <= 4;
+        pure;
+    */
+    public int getValence(int location) {
+        if (!isBox(location)) {
+            throw new IllegalArgumentException("location is not valid index of a box");
+        }
+        return sides[location];
+    }
+
+    /**
+     * Returns the valence of a box without bounds checks, for the analysis of this package.
+     *
+     * @param location the index of the box
+     * @return the number of drawn sides, from 0 to 4
+     */
+    //@ pure;
+    int valenceAt(int location) {
+        return sides[location];
+    }
+
+    /**
+     * Returns whether a free line can be drawn without creating a box with three sides.
+     *
+     * @return true if there is at least one safe line
+     */
+    //@ pure;
+    public boolean hasSafeLine() {
+        for (int i = 0; i < layout.lineWords; i++) {
+            if ((getFreeLineWord(i) & ~hotLines[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the capturable lines into buffer: free lines that complete at least one box.
+     * Lines that complete two boxes come first, then lines that complete one, each group in
+     * ascending order. Takes time proportional to the number of lines written.
+     *
+     * @param buffer array to write into
+     * @param offset index in buffer of the first line to write
+     * @return the number of lines written
+     */
+    /*@
+        requires offset >= 0 && buffer.length - offset >= getFreeLineCount();
+        pure;
+    */
+    public int getCaptureLines(int[] buffer, int offset) {
+        int count = 0;
+        for (int word = 0; word < layout.lineWords; word++) {
+            for (long bits = getFreeLineWord(word) & captureLines[word]; bits != 0;
+                 bits &= bits - 1) {
+                int line = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (completedBy(line) == 2) {
+                    buffer[offset + count++] = line;
+                }
             }
         }
-        return true;
+        for (int word = 0; word < layout.lineWords; word++) {
+            for (long bits = getFreeLineWord(word) & captureLines[word]; bits != 0;
+                 bits &= bits - 1) {
+                int line = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (completedBy(line) == 1) {
+                    buffer[offset + count++] = line;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the safe lines into buffer, in ascending order: free lines that neither complete
+     * a box nor give the opponent one, because no box next to them has two or more sides.
+     * Takes time proportional to the number of lines written.
+     *
+     * @param buffer array to write into
+     * @param offset index in buffer of the first line to write
+     * @return the number of lines written
+     */
+    /*@
+        requires offset >= 0 && buffer.length - offset >= getFreeLineCount();
+        pure;
+    */
+    public int getSafeLines(int[] buffer, int offset) {
+        int count = 0;
+        for (int word = 0; word < layout.lineWords; word++) {
+            for (long bits = getFreeLineWord(word) & ~hotLines[word]; bits != 0;
+                 bits &= bits - 1) {
+                buffer[offset + count++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the sacrifice lines into buffer, in ascending order: free lines that complete no
+     * box, but give a box a third side, which the opponent can then capture. Takes time
+     * proportional to the number of lines written.
+     *
+     * @param buffer array to write into
+     * @param offset index in buffer of the first line to write
+     * @return the number of lines written
+     */
+    /*@
+        requires offset >= 0 && buffer.length - offset >= getFreeLineCount();
+        pure;
+    */
+    public int getSacrificeLines(int[] buffer, int offset) {
+        int count = 0;
+        for (int word = 0; word < layout.lineWords; word++) {
+            for (long bits = getFreeLineWord(word) & hotLines[word] & ~captureLines[word];
+                 bits != 0; bits &= bits - 1) {
+                buffer[offset + count++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of boxes drawing a free line would complete.
+     *
+     * @param location index of a free line
+     * @return 0, 1 or 2
+     */
+    private int completedBy(int location) {
+        int completed = 0;
+        for (int i = 2 * location; i < 2 * location + 2; i++) {
+            int box = layout.completeSlots[i];
+            if (box != -1 && sides[box] == 3) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Returns one 64-bit word of the line bitboard: bit i of word w is set if the line with
+     * index 64 * w + i is drawn.
+     *
+     * @param index index of the word
+     * @return the word of drawn lines
+     */
+    /*@
+        requires index >= 0 && index < getLineWordCount();
+        pure;
+    */
+    public long getLineWord(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Returns the precomputed tables of this board.
+     *
+     * @return the layout of this board
+     */
+    BoardLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the 64-bit Zobrist hash of the whole board, covering the drawn lines, the player
+     * that drew them and the owners of the boxes.
+     *
+     * @return the 64-bit Zobrist hash of this board
+     */
+    //@ pure;
+    public long getZobristHash() {
+        return lineKey ^ ownerKey;
+    }
+
+    /**
+     * Returns true if o is a board with the same lines and boxes as this board.
+     *
+     * @param o object to compare with
+     * @return true if o is an equal board
+     */
+    //@ pure;
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Board board)) {
+            return false;
+        }
+        return getZobristHash() == board.getZobristHash() && compareTo(board);
+    }
+
+    /**
+     * Returns a hash code derived from the Zobrist hash of this board.
+     *
+     * @return hash code of this board
+     */
+    //@ pure;
+    @Override
+    public int hashCode() {
+        return Long.hashCode(getZobristHash());
+    }
+
+    // -- Bitboard helpers -------------------------------------------
+
+    /**
+     * Sets the line at location to playerNumber and updates the Zobrist keys.
+     *
+     * @param location     index of the line
+     * @param playerNumber 0 to clear the line, or the player that drew it
+     */
+    private void writeLine(int location, int playerNumber) {
+        int old = lineAt(location);
+        store(lines, lineOwners, location, playerNumber);
+        if ((old == 0) != (playerNumber == 0)) {
+            lineKey ^= layout.lineKeys[location];
+            for (int i = 0; i < symmetricKeys.length; i++) {
+                symmetricKeys[i] ^= layout.lineKeys[layout.symmetricLines[i][location]];
+            }
+            int delta = old == 0 ? 1 : -1;
+            freeLines -= delta;
+            for (int i = 2 * location; i < 2 * location + 2; i++) {
+                int box = layout.completeSlots[i];
+                if (box != -1) {
+                    sides[box] += delta;
+                    updateLines(box);
+                }
+            }
+        }
+        if ((old == 2) != (playerNumber == 2)) {
+            ownerKey ^= layout.lineOwnerKeys[location];
+        }
+    }
+
+    /**
+     * Recomputes the capture and hot bits of the four lines of a box after its valence changed.
+     *
+     * @param box index of the box
+     */
+    private void updateLines(int box) {
+        for (int i = 4 * box; i < 4 * box + 4; i++) {
+            int line = layout.boxLines[i];
+            int first = layout.completeSlots[2 * line];
+            int second = layout.completeSlots[2 * line + 1];
+            int most = Math.max(first == -1 ? 0 : sides[first], second == -1 ? 0 : sides[second]);
+            boolean capture = first != -1 && sides[first] == 3 ||
+                    second != -1 && sides[second] == 3;
+            long bit = 1L << line;
+            captureLines[line >>> 6] = capture ? captureLines[line >>> 6] | bit :
+                    captureLines[line >>> 6] & ~bit;
+            hotLines[line >>> 6] = most >= 2 ? hotLines[line >>> 6] | bit :
+                    hotLines[line >>> 6] & ~bit;
+        }
+    }
+
+    /**
+     * Sets the box at location to playerNumber and updates the Zobrist keys.
+     *
+     * @param location     index of the box
+     * @param playerNumber 0 to clear the box, or the player that owns it
+     */
+    private void writeBox(int location, int playerNumber) {
+        int old = boxAt(location);
+        store(boxes, boxOwners, location, playerNumber);
+        if (old != 0) {
+            ownerKey ^= layout.boxKeys[2 * location + old - 1];
+        }
+        if (playerNumber != 0) {
+            ownerKey ^= layout.boxKeys[2 * location + playerNumber - 1];
+        }
+    }
+
+    /**
+     * Returns the content of the line at location, without bounds checks.
+     *
+     * @param location index of the line
+     * @return 0 if the line is empty, otherwise the number of the player that set it
+     */
+    private int lineAt(int location) {
+        return read(lines, lineOwners, location);
+    }
+
+    /**
+     * Returns the content of the box at location, without bounds checks.
+     *
+     * @param location index of the box
+     * @return 0 if the box is empty, otherwise the number of the player that completed it
+     */
+    private int boxAt(int location) {
+        return read(boxes, boxOwners, location);
+    }
+
+    /**
+     * Returns true if bit index of the bitboard is set.
+     *
+     * @param bits  bitboard to read
+     * @param index index of the bit
+     * @return true if the bit is set
+     */
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Decodes the content of a field from its occupancy and owner bitboards.
+     *
+     * @param occupied bitboard with a bit set for every occupied field
+     * @param owners   bitboard with a bit set for every field of player 2
+     * @param index    index of the field
+     * @return 0, 1 or 2
+     */
+    private static int read(long[] occupied, long[] owners, int index) {
+        if (!isSet(occupied, index)) {
+            return 0;
+        }
+        return isSet(owners, index) ? 2 : 1;
+    }
+
+    /**
+     * Encodes the content of a field in its occupancy and owner bitboards.
+     *
+     * @param occupied     bitboard with a bit set for every occupied field
+     * @param owners       bitboard with a bit set for every field of player 2
+     * @param index        index of the field
+     * @param playerNumber 0 to clear the field, or the player (1 or 2) that owns it
+     */
+    private static void store(long[] occupied, long[] owners, int index, int playerNumber) {
+        if (playerNumber < 0 || playerNumber > 2) {
+            throw new IllegalArgumentException("playerNumber is not 0, 1 or 2");
+        }
+        int word = index >>> 6;
+        long bit = 1L << index;
+        if (playerNumber == 0) {
+            occupied[word] &= ~bit;
+        } else {
+            occupied[word] |= bit;
+        }
+        if (playerNumber == 2) {
+            owners[word] |= bit;
+        } else {
+            owners[word] &= ~bit;
+        }
+    }
+
+    /**
+     * Returns the mask of the used bits in the last word of a bitboard with count bits.
+     *
+     * @param count number of bits in the bitboard
+     * @return mask of the used bits in the last word
+     */
+    private static long lastWordMask(int count) {
+        int used = count & 63;
+        return used == 0 ? -1L : (1L << used) - 1;
     }
 }
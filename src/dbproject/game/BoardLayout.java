@@ -0,0 +1,264 @@
+package dbproject.game;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed index tables for a Dots and Boxes board of a given dimension.
+ * <p>
+ * A layout is immutable and shared by every {@link Board} of the same dimension, so all
+ * per-line and per-box lookups on a board are single array reads instead of loops over the
+ * (row, col) pairs of the board. Layouts are computed once per dimension, on first use, and
+ * cached for the lifetime of the process.
+ */
+final class BoardLayout {
+    private static final Map<Integer, BoardLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    final int dim;
+    final int lineCount;
+    final int boxCount;
+    /**
+     * Number of 64-bit words needed to store one bit per line.
+     */
+    final int lineWords;
+    /**
+     * Number of 64-bit words needed to store one bit per box.
+     */
+    final int boxWords;
+
+    /**
+     * True at index location if that line is horizontal.
+     */
+    final boolean[] horizontal;
+    /**
+     * Row and column of every line, as used by horizontalIndex and verticalIndex.
+     */
+    final int[] lineRow;
+    final int[] lineCol;
+    /**
+     * The two boxes reported by {@link Board#completeBox(int)} for every line, stored at
+     * 2 * location and 2 * location + 1, or -1 if the line has no box in that slot.
+     */
+    final int[] completeSlots;
+    /**
+     * The four lines surrounding every box, stored at 4 * box up to 4 * box + 3, in the
+     * order top, left, right, bottom.
+     */
+    final int[] boxLines;
+
+    /**
+     * Zobrist keys: one per line for it being drawn, one per line for it being drawn by
+     * player 2, and one per box and owner, stored at 2 * box + playerNumber - 1.
+     */
+    final long[] lineKeys;
+    final long[] lineOwnerKeys;
+    final long[] boxKeys;
+    /**
+     * Zobrist key for player 2 being on move, and one key per score difference
+     * (player 1 minus player 2), stored at difference + boxCount.
+     */
+    final long sideKey;
+    final long[] scoreKeys;
+    /**
+     * The line every line lands on under each {@link Symmetry}, indexed by the ordinal of the
+     * symmetry and then by line.
+     */
+    final int[][] symmetricLines;
+    /**
+     * Rows of the numbering of the lines, printed next to the board by {@link Board#toString()}.
+     */
+    final String[] numbering;
+
+    /**
+     * Returns the layout of a board of dimension dim, computing it on first use.
+     *
+     * @param dim number of dots on one side of the board
+     * @return the shared layout for that dimension
+     */
+    static BoardLayout of(int dim) {
+        BoardLayout layout = LAYOUTS.get(dim);
+        return layout != null ? layout : LAYOUTS.computeIfAbsent(dim, BoardLayout::new);
+    }
+
+    /**
+     * Computes the tables for a board of dimension dim.
+     *
+     * @param dim number of dots on one side of the board
+     */
+    private BoardLayout(int dim) {
+        this.dim = dim;
+        this.lineCount = 2 * (dim - 1) * dim;
+        this.boxCount = (dim - 1) * (dim - 1);
+        this.lineWords = (lineCount + 63) >>> 6;
+        this.boxWords = (boxCount + 63) >>> 6;
+        horizontal = new boolean[lineCount];
+        lineRow = new int[lineCount];
+        lineCol = new int[lineCount];
+        completeSlots = new int[2 * lineCount];
+        boxLines = new int[4 * boxCount];
+        lineKeys = new long[lineCount];
+        lineOwnerKeys = new long[lineCount];
+        boxKeys = new long[2 * boxCount];
+        scoreKeys = new long[2 * boxCount + 1];
+
+        for (int row = 0; row < dim; row++) {
+            for (int col = 0; col < dim - 1; col++) {
+                int location = horizontalIndex(row, col);
+                horizontal[location] = true;
+                lineRow[location] = row;
+                lineCol[location] = col;
+                int above = row > 0 ? (row - 1) * (dim - 1) + col : -1;
+                int under = row < dim - 1 ? row * (dim - 1) + col : -1;
+                if (row == 0) {
+                    //top row only has a box under it, reported in the second slot
+                    completeSlots[2 * location] = -1;
+                    completeSlots[2 * location + 1] = under;
+                } else if (row == dim - 1) {
+                    //bottom row only has a box above it, reported in the first slot
+                    completeSlots[2 * location] = above;
+                    completeSlots[2 * location + 1] = -1;
+                } else {
+                    completeSlots[2 * location] = under;
+                    completeSlots[2 * location + 1] = above;
+                }
+            }
+        }
+        for (int row = 0; row < dim - 1; row++) {
+            for (int col = 0; col < dim; col++) {
+                int location = verticalIndex(row, col);
+                lineRow[location] = row;
+                lineCol[location] = col;
+                completeSlots[2 * location] = col > 0 ? row * (dim - 1) + col - 1 : -1;
+                completeSlots[2 * location + 1] = col < dim - 1 ? row * (dim - 1) + col : -1;
+            }
+        }
+        for (int row = 0; row < dim - 1; row++) {
+            for (int col = 0; col < dim - 1; col++) {
+                int box = row * (dim - 1) + col;
+                boxLines[4 * box] = horizontalIndex(row, col);
+                boxLines[4 * box + 1] = verticalIndex(row, col);
+                boxLines[4 * box + 2] = verticalIndex(row, col + 1);
+                boxLines[4 * box + 3] = horizontalIndex(row + 1, col);
+            }
+        }
+
+        //fixed seed, so that keys are the same in every run and can be stored on disk
+        long seed = 0x9E3779B97F4A7C15L * dim;
+        for (int i = 0; i < lineCount; i++) {
+            lineKeys[i] = splitMix(seed += 0x9E3779B97F4A7C15L);
+            lineOwnerKeys[i] = splitMix(seed += 0x9E3779B97F4A7C15L);
+        }
+        for (int i = 0; i < boxKeys.length; i++) {
+            boxKeys[i] = splitMix(seed += 0x9E3779B97F4A7C15L);
+        }
+        for (int i = 0; i < scoreKeys.length; i++) {
+            scoreKeys[i] = splitMix(seed += 0x9E3779B97F4A7C15L);
+        }
+        sideKey = splitMix(seed + 0x9E3779B97F4A7C15L);
+        numbering = numbering();
+        symmetricLines = new int[Symmetry.values().length][lineCount];
+        for (Symmetry symmetry : Symmetry.values()) {
+            for (int location = 0; location < lineCount; location++) {
+                symmetricLines[symmetry.ordinal()][location] = mapLine(symmetry, location);
+            }
+        }
+    }
+
+    /**
+     * Maps a line by mapping the two dots it connects.
+     *
+     * @param symmetry symmetry to apply
+     * @param location index of the line
+     * @return index of the line between the two mapped dots
+     */
+    private int mapLine(Symmetry symmetry, int location) {
+        int row = lineRow[location];
+        int col = lineCol[location];
+        //the second dot is to the right of a horizontal line, or below a vertical line
+        int otherRow = horizontal[location] ? row : row + 1;
+        int otherCol = horizontal[location] ? col + 1 : col;
+        int last = dim - 1;
+        int r1 = symmetry.row(row, col, last);
+        int c1 = symmetry.col(row, col, last);
+        int r2 = symmetry.row(otherRow, otherCol, last);
+        int c2 = symmetry.col(otherRow, otherCol, last);
+        return r1 == r2 ? horizontalIndex(r1, Math.min(c1, c2)) :
+                verticalIndex(Math.min(r1, r2), c1);
+    }
+
+    /**
+     * Builds the numbering of the lines: rows of horizontal lines between dots, alternated with
+     * rows of vertical lines.
+     *
+     * @return one String per printed row of the board
+     */
+    private String[] numbering() {
+        String[] rows = new String[2 * dim - 1];
+        for (int i = 0; i < rows.length; i++) {
+            StringBuilder row = new StringBuilder();
+            if (i % 2 == 0) {
+                for (int col = 0; col < dim - 1; col++) {
+                    row.append(" .  ").append(pad(horizontalIndex(i / 2, col), 3));
+                }
+                row.append(" . ");
+            } else {
+                row.append(" ");
+                for (int col = 0; col < dim - 1; col++) {
+                    row.append(pad(verticalIndex(i / 2, col), 7));
+                }
+                row.append(verticalIndex(i / 2, dim - 1)).append("  ");
+            }
+            rows[i] = row.toString();
+        }
+        return rows;
+    }
+
+    /**
+     * Left-aligns a number in a field of the given width.
+     *
+     * @param number number to print
+     * @param width  minimum width of the field
+     * @return the number followed by spaces up to width
+     */
+    private static String pad(int number, int width) {
+        StringBuilder field = new StringBuilder().append(number);
+        while (field.length() < width) {
+            field.append(' ');
+        }
+        return field.toString();
+    }
+
+    /**
+     * SplitMix64 finaliser, used to derive well mixed Zobrist keys from a counter.
+     *
+     * @param z counter value
+     * @return mixed 64-bit value
+     */
+    private static long splitMix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Index of the horizontal (row, col)-line, without bounds checks.
+     *
+     * @param row row of the line
+     * @param col column of the line
+     * @return index of the line
+     */
+    int horizontalIndex(int row, int col) {
+        return row * (2 * dim - 1) + col;
+    }
+
+    /**
+     * Index of the vertical (row, col)-line, without bounds checks.
+     *
+     * @param row row of the line
+     * @param col column of the line
+     * @return index of the line
+     */
+    int verticalIndex(int row, int col) {
+        return row * (2 * dim - 1) + (dim - 1) + col;
+    }
+}
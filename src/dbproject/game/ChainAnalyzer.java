@@ -0,0 +1,434 @@
+package dbproject.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decomposes the position on a {@link Board} into chains and loops, the components that decide
+ * the endgame of Dots and Boxes.
+ * <p>
+ * Every box that is not completed has between one and four free sides. Boxes with two free
+ * sides are linked to their neighbours through these sides and form chains, which end at the
+ * edge of the board, at a box with three or four free sides, or at a box with one free side
+ * that can be captured right away; or form loops, which end where they started. Boxes with
+ * three or four free sides are not part of any component.
+ * <p>
+ * The analyzer keeps a copy of the drawn lines of the board. {@link #update()} compares it
+ * with the board, so only the boxes next to changed lines, and the components they belonged
+ * or were adjacent to, are traced again. Lines may be added and removed between updates. The
+ * free sides of a box are read from the valence the board keeps up to date.
+ */
+public class ChainAnalyzer {
+    private static final int LOOP = -2;
+
+    private final Board board;
+    private final BoardLayout layout;
+    private final long[] known;
+    private final Component[] componentOf;
+    private final List<Component> components = new ArrayList<>();
+    private final List<Component> view = Collections.unmodifiableList(components);
+
+    //boxes that have to be traced again, without duplicates
+    private final int[] pending;
+    private final boolean[] isPending;
+    private int pendingCount;
+
+    //scratch space for tracing one component
+    private final int[] forward;
+    private final int[] backward;
+    //line through which the last walk left the component, -1 at a capturable box, or LOOP
+    private int exitLine;
+
+    /**
+     * Creates an analyzer for board and decomposes its current position.
+     *
+     * @param board board to analyze, which stays owned by the caller
+     */
+    /*@
+        requires board != null;
+    */
+    public ChainAnalyzer(Board board) {
+        this.board = board;
+        this.layout = board.getLayout();
+        known = new long[layout.lineWords];
+        componentOf = new Component[layout.boxCount];
+        pending = new int[layout.boxCount];
+        isPending = new boolean[layout.boxCount];
+        forward = new int[layout.boxCount];
+        backward = new int[layout.boxCount];
+        for (int box = 0; box < layout.boxCount; box++) {
+            markPending(box);
+        }
+        update();
+    }
+
+    /**
+     * Returns the board this analyzer decomposes.
+     *
+     * @return the analyzed board
+     */
+    //@ pure;
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Brings the decomposition up to date with the lines that were drawn on or removed from
+     * the board since the last update.
+     */
+    public void update() {
+        for (int word = 0; word < known.length; word++) {
+            long current = board.getLineWord(word);
+            long changed = current ^ known[word];
+            known[word] = current;
+            for (; changed != 0; changed &= changed - 1) {
+                int location = (word << 6) + Long.numberOfTrailingZeros(changed);
+                for (int slot = 0; slot < 2; slot++) {
+                    int box = layout.completeSlots[2 * location + slot];
+                    if (box != -1) {
+                        markPending(box);
+                    }
+                }
+            }
+        }
+        if (pendingCount == 0) {
+            return;
+        }
+
+        //a changed box can split, join or end the components it belongs or is adjacent to
+        int changedCount = pendingCount;
+        for (int i = 0; i < changedCount; i++) {
+            int box = pending[i];
+            invalidate(componentOf[box]);
+            for (int side = 0; side < 4; side++) {
+                int line = layout.boxLines[4 * box + side];
+                int neighbour = otherBox(line, box);
+                if (neighbour != -1 && !isDrawn(line)) {
+                    invalidate(componentOf[neighbour]);
+                }
+            }
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            int box = pending[i];
+            int free = getFreeSides(box);
+            if (componentOf[box] == null && (free == 1 || free == 2)) {
+                trace(box);
+            }
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            isPending[pending[i]] = false;
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Returns the chains and loops of the current position, after bringing the decomposition
+     * up to date.
+     *
+     * @return unmodifiable list of the components, in no particular order
+     */
+    public List<Component> getComponents() {
+        update();
+        return view;
+    }
+
+    /**
+     * Returns the number of free sides of a box, from the valence kept by the board.
+     *
+     * @param box index of the box
+     * @return the number of sides of the box that are not drawn, from 0 to 4
+     */
+    /*@
+        requires board.isBox(box);
+        pure;
+    */
+    public int getFreeSides(int box) {
+        return 4 - board.valenceAt(box);
+    }
+
+    /**
+     * Returns the component a box belongs to, as of the last update.
+     *
+     * @param box index of the box
+     * @return the chain or loop containing box, or null if box is completed or has three or
+     * four free sides
+     */
+    /*@
+        requires board.isBox(box);
+        pure;
+    */
+    public Component getComponent(int box) {
+        return componentOf[box];
+    }
+
+    /**
+     * Returns whether a free line can be drawn without giving the opponent a box, i.e. no box
+     * next to it has two or fewer free sides.
+     *
+     * @param location index of a free line
+     * @return true if drawing the line does not make a box capturable
+     */
+    /*@
+        requires board.isLine(location) && board.isEmptyField(location);
+        pure;
+    */
+    public boolean isSafeLine(int location) {
+        for (int slot = 0; slot < 2; slot++) {
+            int box = layout.completeSlots[2 * location + slot];
+            if (box != -1 && getFreeSides(box) <= 2) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the free line of a box, other than the given line.
+     *
+     * @param box     index of a box
+     * @param exclude line to skip, or -1
+     * @return the first free side of box that is not exclude, or -1 if there is none
+     */
+    /*@
+        requires board.isBox(box);
+        pure;
+    */
+    public int getFreeLine(int box, int exclude) {
+        for (int side = 0; side < 4; side++) {
+            int line = layout.boxLines[4 * box + side];
+            if (line != exclude && !isDrawn(line)) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the line shared by two boxes.
+     *
+     * @param box   index of a box
+     * @param other index of a box next to box
+     * @return the line between the two boxes, or -1 if they are not next to each other
+     */
+    //@ pure;
+    public int getSharedLine(int box, int other) {
+        for (int side = 0; side < 4; side++) {
+            int line = layout.boxLines[4 * box + side];
+            if (otherBox(line, box) == other) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a component from the decomposition and schedules its boxes to be traced again.
+     *
+     * @param component component to remove, or null
+     */
+    private void invalidate(Component component) {
+        if (component == null) {
+            return;
+        }
+        components.remove(component);
+        for (int box : component.boxes) {
+            componentOf[box] = null;
+            markPending(box);
+        }
+    }
+
+    /**
+     * Traces the component through start, a box with one or two free sides, and adds it to the
+     * decomposition.
+     *
+     * @param start box to trace from
+     */
+    private void trace(int start) {
+        componentOf[start] = Component.TRACING;
+        int[] exits = new int[2];
+        int first = getFreeLine(start, -1);
+        int forwardCount = walk(start, first, forward);
+        exits[1] = exitLine;
+        boolean loop = exitLine == LOOP;
+        int backwardCount = 0;
+        exits[0] = -1;
+        if (loop) {
+            exits[1] = -1;
+        } else if (getFreeSides(start) == 2) {
+            backwardCount = walk(start, getFreeLine(start, first), backward);
+            exits[0] = exitLine;
+        }
+
+        int[] boxes = new int[backwardCount + 1 + forwardCount];
+        for (int i = 0; i < backwardCount; i++) {
+            boxes[i] = backward[backwardCount - 1 - i];
+        }
+        boxes[backwardCount] = start;
+        System.arraycopy(forward, 0, boxes, backwardCount + 1, forwardCount);
+        Component component = new Component(boxes, loop, exits);
+        for (int box : boxes) {
+            componentOf[box] = component;
+        }
+        components.add(component);
+    }
+
+    /**
+     * Follows the boxes with two free sides from box through line, and stores them in order.
+     *
+     * @param box  box the walk starts at, not stored
+     * @param line free side of box to leave through
+     * @param path array the visited boxes are stored in
+     * @return the number of stored boxes
+     */
+    private int walk(int box, int line, int[] path) {
+        int count = 0;
+        while (true) {
+            int next = otherBox(line, box);
+            if (next == -1 || getFreeSides(next) >= 3) {
+                //the edge of the board or a junction ends the chain
+                exitLine = line;
+                return count;
+            }
+            if (componentOf[next] == Component.TRACING) {
+                exitLine = LOOP;
+                return count;
+            }
+            //a valid component that is reached must have been split or joined as well
+            invalidate(componentOf[next]);
+            componentOf[next] = Component.TRACING;
+            path[count++] = next;
+            if (getFreeSides(next) == 1) {
+                exitLine = -1;
+                return count;
+            }
+            line = getFreeLine(next, line);
+            box = next;
+        }
+    }
+
+    /**
+     * Returns the box on the other side of a line.
+     *
+     * @param line index of a line
+     * @param box  box on one side of line
+     * @return the box on the other side, or -1 if line is on the edge of the board
+     */
+    private int otherBox(int line, int box) {
+        int first = layout.completeSlots[2 * line];
+        return first == box ? layout.completeSlots[2 * line + 1] : first;
+    }
+
+    private boolean isDrawn(int line) {
+        return (known[line >>> 6] & 1L << line) != 0;
+    }
+
+    private void markPending(int box) {
+        if (!isPending[box]) {
+            isPending[box] = true;
+            pending[pendingCount++] = box;
+        }
+    }
+
+    /**
+     * A chain or loop of boxes. A component is immutable; when the board changes, the
+     * analyzer replaces the components that were affected.
+     */
+    public static final class Component {
+        //marks boxes of the component that is being traced
+        private static final Component TRACING = new Component(new int[0], true,
+                new int[]{-1, -1});
+
+        private final int[] boxes;
+        private final boolean loop;
+        private final int[] exits;
+
+        private Component(int[] boxes, boolean loop, int[] exits) {
+            this.boxes = boxes;
+            this.loop = loop;
+            this.exits = exits;
+        }
+
+        /**
+         * Returns whether this component is a loop.
+         *
+         * @return true for a loop, false for a chain
+         */
+        //@ pure;
+        public boolean isLoop() {
+            return loop;
+        }
+
+        /**
+         * Returns the number of boxes in this component.
+         *
+         * @return the length of the component
+         */
+        //@ pure;
+        public int getLength() {
+            return boxes.length;
+        }
+
+        /**
+         * Returns a box of this component. Boxes are in chain order, so consecutive boxes share
+         * a free line; in a loop the last box also shares a free line with the first.
+         *
+         * @param index position of the box in the component
+         * @return index of the box on the board
+         */
+        /*@
+            requires index >= 0 && index < getLength();
+            pure;
+        */
+        public int getBox(int index) {
+            return boxes[index];
+        }
+
+        /**
+         * Returns the line through which a chain continues past one of its ends: to the edge
+         * of the board or to a box with three or four free sides.
+         *
+         * @param end 0 for the end at the first box, 1 for the end at the last box
+         * @return the line leaving the chain, or -1 if the end box can be captured or this is
+         * a loop
+         */
+        /*@
+            requires end == 0 || end == 1;
+            pure;
+        */
+        public int getExit(int end) {
+            return exits[end];
+        }
+
+        /**
+         * Returns whether the box at one end of this component has a single free side, so the
+         * player on move can capture it.
+         *
+         * @param end 0 for the first box, 1 for the last box
+         * @return true if the end box can be captured
+         */
+        /*@
+            requires end == 0 || end == 1;
+            pure;
+        */
+        public boolean isCapturable(int end) {
+            //a chain end without a line leaving it is a box with a single free side
+            return !loop && exits[end] == -1;
+        }
+
+        /**
+         * Returns whether the player on move can capture a box of this component.
+         *
+         * @return true if an end box of this component can be captured
+         */
+        //@ pure;
+        public boolean isCapturable() {
+            return isCapturable(0) || isCapturable(1);
+        }
+
+        @Override
+        public String toString() {
+            return (loop ? "loop " : "chain ") + boxes.length;
+        }
+    }
+}
@@ -12,6 +12,11 @@ public class Game {
     private int player2Score;
     private String currentPlayer;
     private final Board board;
+    /**
+     * Lines of the moves played on this game, in order, so that they can be undone.
+     */
+    private final int[] history;
+    private int historySize;
 
     //@ public instance invariant !gameOver() ==> getValidMoves().length > 0;
     //@ public instance invariant !gameOver() ==> getWinner() == null;
@@ -20,18 +25,32 @@ public class Game {
     // -- Constructors -----------------------------------------------
 
     /**
-     * instantiate game with two players.
+     * instantiate game with two players on a board of the default dimension.
      *
      * @param player1 name of player1
      * @param player2 name of player2
      */
     public Game(String player1, String player2) {
-        this.board = new Board();
+        this(player1, player2, Board.DIM);
+    }
+
+    /**
+     * instantiate game with two players on a board of the given dimension.
+     *
+     * @param player1 name of player1
+     * @param player2 name of player2
+     * @param dim     dimension of the board, see {@link Board#Board(int)}
+     * @throws IllegalArgumentException if the dimension is not supported
+     */
+    //@ requires Board.isValidDimension(dim);
+    public Game(String player1, String player2, int dim) {
+        this.board = new Board(dim);
         this.player1 = player1;
         this.player2 = player2;
         this.currentPlayer = player1;
         player1Score = 0;
         player2Score = 0;
+        history = new int[board.getLineCount()];
     }
 
     /**
@@ -52,6 +71,7 @@ public class Game {
         this.currentPlayer = currentPlayer;
         this.player1Score = player1Score;
         this.player2Score = player2Score;
+        history = new int[board.getLineCount()];
     }
 
     /**
@@ -76,8 +96,11 @@ public class Game {
         String copiedCurrentPlayer = currentPlayer;
         int copiedPlayer1Score = player1Score;
         int copiedPlayer2Score = player2Score;
-        return new Game(player1, player2, copiedPlayer1Score, copiedPlayer2Score,
-                        copiedCurrentPlayer, copiedBoard);
+        Game copiedGame = new Game(player1, player2, copiedPlayer1Score, copiedPlayer2Score,
+                                   copiedCurrentPlayer, copiedBoard);
+        System.arraycopy(history, 0, copiedGame.history, 0, historySize);
+        copiedGame.historySize = historySize;
+        return copiedGame;
     }
 
     /**
@@ -177,6 +200,21 @@ public class Game {
         return null;
     }
 
+    /**
+     * Returns the score of the player on move minus the score of the other player.
+     *
+     * @return the score difference from the perspective of the player on move
+     */
+    /*@
+        ensures currentPlayer.equals(player1) ==> \result == player1Score - player2Score;
+        ensures !currentPlayer.equals(player1) ==> \result == player2Score - player1Score;
+        pure
+    */
+    public int getScoreDifference() {
+        int difference = player1Score - player2Score;
+        return currentPlayer.equals(player1) ? difference : -difference;
+    }
+
     /**
      * Query whose turn it is.
      *
@@ -202,21 +240,34 @@ public class Game {
         pure;
     */
     public int[] getValidMoves() {
-        Set<Integer> moves = new HashSet<>();
-        if (board.isFull()) {
-            return new int[0];
-        }
-        for (int i = 0; board.isLine(i); i++) {
-            if (isValidMove(i)) {
-                moves.add(i);
+        int[] result = new int[board.getFreeLineCount()];
+        getValidMoves(result);
+        return result;
+    }
+
+    /**
+     * Writes all moves that are valid in the current state of the game into buffer, in
+     * ascending order, without allocating.
+     *
+     * @param buffer array with room for at least all free lines, e.g. one of
+     *               {@link Board#getLineCount()} elements
+     * @return the number of valid moves written to the start of buffer
+     */
+    /*@
+        requires buffer.length >= getBoard().getFreeLineCount();
+        ensures \result == getBoard().getFreeLineCount();
+        ensures (\forall int i; i >= 0 && i < \result; isValidMove(buffer[i]));
+        ensures (\forall int i; i > 0 && i < \result; buffer[i - 1] < buffer[i]);
+    */
+    public int getValidMoves(int[] buffer) {
+        int count = 0;
+        for (int word = 0; word < board.getLineWordCount(); word++) {
+            //visit only the set bits of the free-line bitset
+            for (long free = board.getFreeLineWord(word); free != 0; free &= free - 1) {
+                buffer[count++] = (word << 6) + Long.numberOfTrailingZeros(free);
             }
         }
-        int[] result = new int[moves.size()];
-        int i = 0;
-        for (int move : moves) {
-            result[i++] = move;
-        }
-        return result;
+        return count;
     }
 
     /**
@@ -253,39 +304,127 @@ public class Game {
     */
     public void doMove(int location) {
         if (isValidMove(location)) {
-            int first = board.completeBox(location)[0];
-            int second = board.completeBox(location)[1];
+            history[historySize++] = location;
             if (currentPlayer.equals(player1)) {
-                board.setLine(location, 1);
-                if (first == -1 && second == -1) {
+                int completed = board.playLine(location, 1);
+                if (completed == 0) {
                     currentPlayer = player2;
                     return;
                 }
-                if (first != -1) {
-                    board.setBox(first, 1);
-                    player1Score += 1;
-                }
-                if (second != -1) {
-                    board.setBox(second, 1);
-                    player1Score += 1;
-                }
+                player1Score += completed;
             } else {
-                board.setLine(location, 2);
-                if (first == -1 && second == -1) {
+                int completed = board.playLine(location, 2);
+                if (completed == 0) {
                     currentPlayer = player1;
                     return;
                 }
-                if (first != -1) {
-                    board.setBox(first, 2);
-                    player2Score += 1;
-                }
-                if (second != -1) {
-                    board.setBox(second, 2);
-                    player2Score += 1;
-                }
+                player2Score += completed;
             }
         }
+    }
 
+    /**
+     * Undo the last move performed with {@link #doMove(int)}, restoring the line, the boxes it
+     * completed, the scores and the current player.
+     *
+     * @return the location of the undone move, or -1 if there is no move to undo
+     */
+    /*@
+        ensures \result != -1 ==> board.isEmptyField(\result);
+    */
+    public int undoMove() {
+        if (historySize == 0) {
+            return -1;
+        }
+        int location = history[--historySize];
+        int mark = board.getLine(location);
+        int completed = board.unplayLine(location);
+        if (completed == 0) {
+            //the move passed the turn, so the other player made it
+            currentPlayer = mark == 1 ? player1 : player2;
+        } else if (mark == 1) {
+            player1Score -= completed;
+        } else {
+            player2Score -= completed;
+        }
+        return location;
+    }
+
+    /**
+     * Returns the 64-bit Zobrist key of this position, for use in search caches. The key covers
+     * the drawn lines, the player on move and the score difference, but not which player drew
+     * each line or owns each box, so positions reached through different move orders share
+     * a key.
+     *
+     * @return the Zobrist key of this position
+     */
+    /*@
+        pure
+    */
+    public long getZobristKey() {
+        return withScoreAndSide(board.getLineKey());
+    }
+
+    /**
+     * Returns the 64-bit Zobrist key of the canonical frame of this position, which is the
+     * same for all positions that are rotations or reflections of each other. Moves of a
+     * cached position map to this game with {@link Board#getCanonicalSymmetry()}.
+     *
+     * @return the canonical Zobrist key of this position
+     */
+    /*@
+        pure
+    */
+    public long getCanonicalZobristKey() {
+        return withScoreAndSide(board.getCanonicalLineKey());
+    }
+
+    /**
+     * Adds the score difference and the player on move to a line key.
+     *
+     * @param lineKey key of the drawn lines
+     * @return the Zobrist key of the position
+     */
+    private long withScoreAndSide(long lineKey) {
+        BoardLayout layout = board.getLayout();
+        long key = lineKey ^ layout.scoreKeys[player1Score - player2Score + layout.boxCount];
+        return currentPlayer.equals(player1) ? key : key ^ layout.sideKey;
+    }
+
+    /**
+     * Returns true if o is a game with the same players, scores, turn and board.
+     *
+     * @param o object to compare with
+     * @return true if o is an equal game
+     */
+    /*@
+        pure
+    */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Game other)) {
+            return false;
+        }
+        return player1Score == other.player1Score && player2Score == other.player2Score &&
+                player1.equals(other.player1) && player2.equals(other.player2) &&
+                currentPlayer.equals(other.currentPlayer) && board.equals(other.board);
+    }
+
+    /**
+     * Returns a hash code derived from the Zobrist hash of the board and the player on move.
+     *
+     * @return hash code of this game
+     */
+    /*@
+        pure
+    */
+    @Override
+    public int hashCode() {
+        long hash = board.getZobristHash();
+        return Long.hashCode(currentPlayer.equals(player1) ? hash : ~hash);
     }
 
     /**
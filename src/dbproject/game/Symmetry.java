@@ -0,0 +1,101 @@
+package dbproject.game;
+
+/**
+ * The eight symmetries of a square Dots and Boxes board: four rotations, and the reflections
+ * in the two axes and the two diagonals.
+ * <p>
+ * A symmetry maps every line of a board to the line it lands on. Positions that are mapped
+ * onto each other have the same value, so caches can store them once under the key of a
+ * canonical frame, see {@link Board#getCanonicalSymmetry()}.
+ */
+public enum Symmetry {
+    IDENTITY,
+    ROTATE_90,
+    ROTATE_180,
+    ROTATE_270,
+    FLIP_HORIZONTAL,
+    FLIP_VERTICAL,
+    TRANSPOSE,
+    ANTI_TRANSPOSE;
+
+    private static final Symmetry[] VALUES = values();
+
+    /**
+     * Returns the symmetry with the given ordinal, without copying the values array.
+     *
+     * @param ordinal ordinal of the symmetry, from 0 to 7
+     * @return the symmetry
+     */
+    static Symmetry of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Returns the symmetry that undoes this one.
+     *
+     * @return the inverse symmetry
+     */
+    //@ ensures \result.inverse() == this;
+    public Symmetry inverse() {
+        return switch (this) {
+            case ROTATE_90 -> ROTATE_270;
+            case ROTATE_270 -> ROTATE_90;
+            default -> this;
+        };
+    }
+
+    /**
+     * Returns the line that a line of board lands on under this symmetry.
+     *
+     * @param board    board of the line, which gives the dimension
+     * @param location index of the line
+     * @return index of the mapped line
+     * @throws IllegalArgumentException if location is not a line of board
+     */
+    /*@
+        requires board.isLine(location);
+        ensures board.isLine(\result);
+        ensures inverse().map(board, \result) == location;
+        pure;
+    */
+    public int map(Board board, int location) {
+        if (!board.isLine(location)) {
+            throw new IllegalArgumentException("location is not valid index of a line");
+        }
+        return board.getLayout().symmetricLines[ordinal()][location];
+    }
+
+    /**
+     * Returns the row a dot lands on under this symmetry.
+     *
+     * @param row  row of the dot
+     * @param col  column of the dot
+     * @param last highest row and column index of the dots, dimension - 1
+     * @return the row of the mapped dot
+     */
+    int row(int row, int col, int last) {
+        return switch (this) {
+            case IDENTITY, FLIP_HORIZONTAL -> row;
+            case ROTATE_90, TRANSPOSE -> col;
+            case ROTATE_180, FLIP_VERTICAL -> last - row;
+            case ROTATE_270, ANTI_TRANSPOSE -> last - col;
+        };
+    }
+
+    /**
+     * Returns the column a dot lands on under this symmetry.
+     *
+     * @param row  row of the dot
+     * @param col  column of the dot
+     * @param last highest row and column index of the dots, dimension - 1
+     * @return the column of the mapped dot
+     */
+    int col(int row, int col, int last) {
+        return switch (this) {
+            case IDENTITY, FLIP_VERTICAL -> col;
+            case ROTATE_90, ANTI_TRANSPOSE -> last - row;
+            case ROTATE_180, FLIP_HORIZONTAL -> last - col;
+            case ROTATE_270, TRANSPOSE -> row;
+        };
+    }
+}
@@ -0,0 +1,303 @@
+package dbproject.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact values of every position of a small Dots and Boxes board, solved by retrograde
+ * analysis and read from a memory-mapped file.
+ * <p>
+ * A position is indexed by the bitmask of its drawn lines. Its value is the number of boxes
+ * the player on move wins from there on minus the number of boxes the other player wins, with
+ * perfect play by both. The boxes already owned and the player on move are not part of the
+ * index: the rest of the game only depends on the free lines, and the value is taken from the
+ * view of whoever is on move.
+ * <p>
+ * The file starts with a header of four big-endian ints: {@link #MAGIC}, {@link #VERSION},
+ * the dimension and the number of lines. It is followed by one signed byte per line mask, so a
+ * board with 24 lines (dimension 4) takes 16 MB.
+ */
+public final class Tablebase {
+    /**
+     * Highest dimension that can be solved: 3 by 3 boxes.
+     */
+    public static final int MAX_DIM = 4;
+    /**
+     * First int of a tablebase file, "DBTB" in ASCII.
+     */
+    public static final int MAGIC = 0x44425442;
+    /**
+     * Version of the file format.
+     */
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    private final BoardLayout layout;
+    private final ByteBuffer values;
+    //bitmask of the four lines of every box
+    private final int[] boxMasks;
+
+    /**
+     * Creates a tablebase that reads the values of a board of dimension layout.dim from values.
+     *
+     * @param layout layout of the board
+     * @param values one value per line mask, starting at position 0
+     */
+    private Tablebase(BoardLayout layout, ByteBuffer values) {
+        this.layout = layout;
+        this.values = values;
+        this.boxMasks = boxMasks(layout);
+    }
+
+    /**
+     * Returns whether boards of a dimension are small enough to be solved.
+     *
+     * @param dim number of dots on one side of the board
+     * @return true if a tablebase can be generated for dim
+     */
+    //@ ensures \result == (dim >= Board.MIN_DIM && dim <= MAX_DIM);
+    public static boolean isSolvable(int dim) {
+        return dim >= Board.MIN_DIM && dim <= MAX_DIM;
+    }
+
+    /**
+     * Solves every position of a board of dimension dim, from the full board back to the
+     * empty board. A line mask only leads to larger masks, so masks are solved in descending
+     * order.
+     *
+     * @param dim number of dots on one side of the board
+     * @return the value of every line mask, indexed by the mask
+     * @throws IllegalArgumentException if dim is not solvable
+     */
+    /*@
+        requires isSolvable(dim);
+        ensures \result.length == 1 << new Board(dim).getLineCount();
+    */
+    public static byte[] solve(int dim) {
+        if (!isSolvable(dim)) {
+            throw new IllegalArgumentException("dimension " + dim + " cannot be solved");
+        }
+        BoardLayout layout = BoardLayout.of(dim);
+        int[] boxMasks = boxMasks(layout);
+        int full = (1 << layout.lineCount) - 1;
+        byte[] values = new byte[full + 1];
+        for (int mask = full - 1; mask >= 0; mask--) {
+            int best = Integer.MIN_VALUE;
+            for (int free = ~mask & full; free != 0; free &= free - 1) {
+                int line = Integer.numberOfTrailingZeros(free);
+                int after = mask | 1 << line;
+                int completed = completed(layout, boxMasks, line, after);
+                int value = completed > 0 ? completed + values[after] : -values[after];
+                best = Math.max(best, value);
+            }
+            values[mask] = (byte) best;
+        }
+        return values;
+    }
+
+    /**
+     * Solves a board of dimension dim and writes the tablebase to a file.
+     *
+     * @param dim  number of dots on one side of the board
+     * @param path file to write, replaced if it exists
+     * @throws IOException              if the file cannot be written
+     * @throws IllegalArgumentException if dim is not solvable
+     */
+    //@ requires isSolvable(dim);
+    public static void write(int dim, Path path) throws IOException {
+        byte[] values = solve(dim);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(dim).putInt(BoardLayout.of(dim).lineCount);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            ByteBuffer body = ByteBuffer.wrap(values);
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+    }
+
+    /**
+     * Maps a tablebase file into memory. The values are paged in by the operating system as
+     * they are read, and the mapping stays valid after the file is closed.
+     *
+     * @param path file written by {@link #write(int, Path)}
+     * @return the tablebase in the file
+     * @throws IOException if the file cannot be read or is not a valid tablebase
+     */
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                //read until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a tablebase");
+            }
+            int version = header.getInt();
+            int dim = header.getInt();
+            int lineCount = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported tablebase version " + version);
+            }
+            if (!isSolvable(dim) || BoardLayout.of(dim).lineCount != lineCount) {
+                throw new IOException("invalid tablebase dimension " + dim);
+            }
+            long size = 1L << lineCount;
+            if (channel.size() != HEADER_BYTES + size) {
+                throw new IOException(path + " is truncated");
+            }
+            MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                                                  size);
+            return new Tablebase(BoardLayout.of(dim), values);
+        }
+    }
+
+    /**
+     * Returns a tablebase that keeps the solved values of a board of dimension dim in memory,
+     * without a file.
+     *
+     * @param dim number of dots on one side of the board
+     * @return the solved tablebase
+     * @throws IllegalArgumentException if dim is not solvable
+     */
+    //@ requires isSolvable(dim);
+    public static Tablebase solveInMemory(int dim) {
+        return new Tablebase(BoardLayout.of(dim), ByteBuffer.wrap(solve(dim)));
+    }
+
+    /**
+     * Returns the dimension of the boards this tablebase solves.
+     *
+     * @return number of dots on one side of the board
+     */
+    //@ pure;
+    public int getDimension() {
+        return layout.dim;
+    }
+
+    /**
+     * Returns whether this tablebase has the values of the positions of a board.
+     *
+     * @param board board to look up
+     * @return true if board has the dimension of this tablebase
+     */
+    //@ pure;
+    public boolean covers(Board board) {
+        return board.getLayout() == layout;
+    }
+
+    /**
+     * Returns the value of the position on a board.
+     *
+     * @param board board to look up, of the dimension of this tablebase
+     * @return the boxes the player on move wins from now on minus those of the other player
+     * @throws IllegalArgumentException if board is not covered by this tablebase
+     */
+    /*@
+        requires covers(board);
+        pure;
+    */
+    public int getValue(Board board) {
+        if (!covers(board)) {
+            throw new IllegalArgumentException("board has dimension " + board.getDimension() +
+                                                       ", tablebase has " + layout.dim);
+        }
+        return values.get((int) board.getLineWord(0));
+    }
+
+    /**
+     * Returns the value of drawing a free line on a board, for the player drawing it.
+     *
+     * @param board    board to look up, of the dimension of this tablebase
+     * @param location index of a free line
+     * @return the boxes the player drawing the line wins from now on minus those of the other
+     * player
+     * @throws IllegalArgumentException if board is not covered by this tablebase or location is
+     *                                  not a free line
+     */
+    /*@
+        requires covers(board) && board.isLine(location) && board.isEmptyField(location);
+        pure;
+    */
+    public int getMoveValue(Board board, int location) {
+        if (!covers(board)) {
+            throw new IllegalArgumentException("board has dimension " + board.getDimension() +
+                                                       ", tablebase has " + layout.dim);
+        }
+        if (!board.isLine(location) || !board.isEmptyField(location)) {
+            throw new IllegalArgumentException("location is not a free line");
+        }
+        int after = (int) board.getLineWord(0) | 1 << location;
+        int completed = completed(layout, boxMasks, location, after);
+        return completed > 0 ? completed + values.get(after) : -values.get(after);
+    }
+
+    /**
+     * Returns the number of boxes completed by drawing a line.
+     *
+     * @param layout   layout of the board
+     * @param boxMasks bitmask of the lines of every box
+     * @param line     the line that is drawn
+     * @param after    line mask with line drawn
+     * @return the number of boxes next to line whose four lines are in after
+     */
+    private static int completed(BoardLayout layout, int[] boxMasks, int line, int after) {
+        int completed = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            int box = layout.completeSlots[2 * line + slot];
+            if (box != -1 && (after & boxMasks[box]) == boxMasks[box]) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    private static int[] boxMasks(BoardLayout layout) {
+        int[] masks = new int[layout.boxCount];
+        for (int box = 0; box < layout.boxCount; box++) {
+            for (int side = 0; side < 4; side++) {
+                masks[box] |= 1 << layout.boxLines[4 * box + side];
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * Generates a tablebase file.
+     *
+     * @param args the dimension to solve and the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: Tablebase <dimension> <file>");
+            return;
+        }
+        int dim;
+        try {
+            dim = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            dim = -1;
+        }
+        if (!isSolvable(dim)) {
+            System.out.println("Dimension must be between " + Board.MIN_DIM + " and " + MAX_DIM +
+                                       ".");
+            return;
+        }
+        long start = System.nanoTime();
+        write(dim, Path.of(args[1]));
+        System.out.println("Solved " + (1L << BoardLayout.of(dim).lineCount) + " positions in " +
+                                   (System.nanoTime() - start) / 1_000_000 + " ms, written to " +
+                                   args[1] + " (" + Files.size(Path.of(args[1])) + " bytes).");
+    }
+}
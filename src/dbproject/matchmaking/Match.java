@@ -0,0 +1,63 @@
+package dbproject.matchmaking;
+
+/**
+ * Two players paired by a {@link Matchmaker}, and the board they play on.
+ *
+ * @param <P> the type of the players
+ */
+public final class Match<P> {
+    private final Ticket<P> first;
+    private final Ticket<P> second;
+    private final int dimension;
+
+    /**
+     * Instantiates a match.
+     *
+     * @param first     the player that moves first
+     * @param second    the other player
+     * @param dimension dimension of the board
+     */
+    /*@
+        requires first != null && second != null && first != second;
+    */
+    public Match(Ticket<P> first, Ticket<P> second, int dimension) {
+        this.first = first;
+        this.second = second;
+        this.dimension = dimension;
+    }
+
+    /**
+     * Returns the ticket of the player that moves first.
+     *
+     * @return the first ticket
+     */
+    //@ pure;
+    public Ticket<P> getFirst() {
+        return first;
+    }
+
+    /**
+     * Returns the ticket of the player that moves second.
+     *
+     * @return the second ticket
+     */
+    //@ pure;
+    public Ticket<P> getSecond() {
+        return second;
+    }
+
+    /**
+     * Returns the dimension of the board of the match.
+     *
+     * @return the board dimension
+     */
+    //@ pure;
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public String toString() {
+        return first + " - " + second + " on " + dimension;
+    }
+}
@@ -0,0 +1,347 @@
+package dbproject.matchmaking;
+
+import dbproject.rating.RatingIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Queue of players waiting for a game, paired in rounds by a {@link PairingPolicy}.
+ * <p>
+ * Entering and leaving the queue take constant time: the tickets are kept in a linked hash map
+ * in order of arrival. Pairing does not happen on every entry, but in rounds on a scheduler
+ * tick, so a policy sees all players that arrived since the last round at once. The matches of
+ * a round are handed to the listener after the queue is unlocked, so starting a game never
+ * holds up players that enter or leave the queue.
+ * <p>
+ * The waiting players of every board dimension are also kept in a {@link RatingIndex}, updated
+ * as they enter and leave the queue, so a policy finds the nearest rating without ordering
+ * the whole queue every round.
+ * <p>
+ * The matchmaker keeps the time from entering the queue to being matched of the last
+ * {@value #SAMPLES} matched players, for percentiles of the time to match.
+ *
+ * @param <P> the type of the players
+ */
+public class Matchmaker<P> {
+    /**
+     * Number of recent times to match the percentiles are taken over.
+     */
+    public static final int SAMPLES = 1024;
+
+    private final PairingPolicy<P> policy;
+    private final Consumer<Match<P>> listener;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<P, Ticket<P>> waiting = new LinkedHashMap<>();
+    private final Map<Integer, RatingIndex<Ticket<P>>> byRating = new HashMap<>();
+    private final long[] waits = new long[SAMPLES];
+    private long samples;
+    private long matches;
+    private int maxDepth;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Instantiates a matchmaker that measures time with {@link System#nanoTime()}.
+     *
+     * @param policy   pairs the waiting players
+     * @param listener starts the game of every match
+     */
+    public Matchmaker(PairingPolicy<P> policy, Consumer<Match<P>> listener) {
+        this(policy, listener, System::nanoTime);
+    }
+
+    /**
+     * Instantiates a matchmaker with a clock of its own, for example to replay waiting times.
+     *
+     * @param policy   pairs the waiting players
+     * @param listener starts the game of every match
+     * @param clock    returns the current time in nanoseconds
+     */
+    /*@
+        requires policy != null && listener != null && clock != null;
+    */
+    public Matchmaker(PairingPolicy<P> policy, Consumer<Match<P>> listener, LongSupplier clock) {
+        this.policy = policy;
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts pairing the waiting players every tick, on a thread of the matchmaker.
+     *
+     * @param tickMillis time between two rounds in milliseconds
+     */
+    //@ requires tickMillis > 0;
+    public void start(long tickMillis) {
+        ScheduledExecutorService started = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "matchmaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lock.lock();
+        try {
+            if (scheduler != null) {
+                started.shutdown();
+                throw new IllegalStateException("Cannot start a Matchmaker twice");
+            }
+            scheduler = started;
+        } finally {
+            lock.unlock();
+        }
+        started.scheduleWithFixedDelay(this::tickSafely, tickMillis, tickMillis,
+                                         TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops pairing. Players that are still waiting stay in the queue.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts a player in the queue.
+     *
+     * @param player    the player that wants a game
+     * @param dimension dimension of the board the player asked for
+     * @param rating    rating of the player
+     * @return true if the player entered the queue, false if it was already waiting
+     */
+    //@ requires player != null;
+    public boolean enqueue(P player, int dimension, double rating) {
+        lock.lock();
+        try {
+            if (waiting.containsKey(player)) {
+                return false;
+            }
+            Ticket<P> ticket = new Ticket<>(player, dimension, rating, clock.getAsLong());
+            waiting.put(player, ticket);
+            index(dimension).put(ticket, rating);
+            maxDepth = Math.max(maxDepth, waiting.size());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a player from the queue.
+     *
+     * @param player the player that no longer wants a game
+     * @return true if the player was waiting, false otherwise
+     */
+    public boolean cancel(P player) {
+        lock.lock();
+        try {
+            Ticket<P> ticket = waiting.remove(player);
+            if (ticket == null) {
+                return false;
+            }
+            index(ticket.getDimension()).remove(ticket);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether a player is waiting for a game.
+     *
+     * @param player the player to look for
+     * @return true if the player is in the queue
+     */
+    //@ pure;
+    public boolean isWaiting(P player) {
+        lock.lock();
+        try {
+            return waiting.containsKey(player);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs one round of pairing: the policy pairs the waiting players, the paired players
+     * leave the queue and the listener gets the matches.
+     *
+     * @return the number of matches of this round
+     */
+    public int tick() {
+        List<Match<P>> round;
+        lock.lock();
+        try {
+            if (waiting.size() < 2) {
+                return 0;
+            }
+            long now = clock.getAsLong();
+            round = new ArrayList<>();
+            for (Match<P> match : policy.pair(new ArrayList<>(waiting.values()), this::index,
+                                              now)) {
+                P first = match.getFirst().getPlayer();
+                P second = match.getSecond().getPlayer();
+                //a policy that uses a ticket twice only gets the first match; a ticket of that
+                //match that is still waiting goes back in the index the policy may have
+                //taken it out of
+                if (!waiting.containsKey(first) || !waiting.containsKey(second)) {
+                    restore(match.getFirst());
+                    restore(match.getSecond());
+                    continue;
+                }
+                waiting.remove(first);
+                waiting.remove(second);
+                index(match.getFirst().getDimension()).remove(match.getFirst());
+                index(match.getSecond().getDimension()).remove(match.getSecond());
+                record(match.getFirst().getWaitNanos(now));
+                record(match.getSecond().getWaitNanos(now));
+                matches++;
+                round.add(match);
+            }
+        } finally {
+            lock.unlock();
+        }
+        round.forEach(listener);
+        return round.size();
+    }
+
+    /**
+     * Returns the number of waiting players.
+     *
+     * @return the queue depth
+     */
+    //@ pure;
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the largest number of players that waited at the same time.
+     *
+     * @return the largest queue depth so far
+     */
+    //@ pure;
+    public int getMaxQueueDepth() {
+        lock.lock();
+        try {
+            return maxDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of matches made so far.
+     *
+     * @return the number of matches
+     */
+    //@ pure;
+    public long getMatchCount() {
+        lock.lock();
+        try {
+            return matches;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a percentile of the time from entering the queue to being matched, over the last
+     * {@value #SAMPLES} matched players.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the time to match in milliseconds, or -1 if nobody was matched yet
+     */
+    //@ requires 0 <= percentile && percentile <= 100;
+    //@ pure;
+    public double getTimeToMatch(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        long[] sorted;
+        lock.lock();
+        try {
+            int count = (int) Math.min(samples, SAMPLES);
+            if (count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(waits, count);
+        } finally {
+            lock.unlock();
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("waiting %d (max %d), %d matches, time to match p50 %.0f ms, " +
+                                     "p90 %.0f ms, p99 %.0f ms", getQueueDepth(),
+                             getMaxQueueDepth(), getMatchCount(), getTimeToMatch(50),
+                             getTimeToMatch(90), getTimeToMatch(99));
+    }
+
+    /**
+     * Returns the waiting players that asked for a board dimension, by rating. Only called
+     * with the lock held.
+     *
+     * @param dimension the board dimension
+     * @return the index of the players waiting for that dimension
+     */
+    private RatingIndex<Ticket<P>> index(int dimension) {
+        return byRating.computeIfAbsent(dimension, size -> new RatingIndex<>());
+    }
+
+    /**
+     * Puts a ticket back in the index of its board dimension if it is still waiting. Only
+     * called with the lock held.
+     *
+     * @param ticket a ticket of a match that was not made
+     */
+    private void restore(Ticket<P> ticket) {
+        if (waiting.get(ticket.getPlayer()) == ticket) {
+            index(ticket.getDimension()).put(ticket, ticket.getRating());
+        }
+    }
+
+    /**
+     * Records the time to match of one player.
+     *
+     * @param nanos time from entering the queue to being matched
+     */
+    private void record(long nanos) {
+        waits[(int) (samples++ % SAMPLES)] = nanos;
+    }
+
+    /**
+     * Runs a round on the scheduler, where an exception would stop all later rounds.
+     */
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            System.out.println("matchmaking round failed: " + e);
+        }
+    }
+}
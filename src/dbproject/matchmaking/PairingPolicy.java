@@ -0,0 +1,165 @@
+package dbproject.matchmaking;
+
+import dbproject.rating.RatingIndex;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Decides which of the waiting players a {@link Matchmaker} pairs in one round.
+ * <p>
+ * Policies combine like the strategies of the players: {@link #bySize} only pairs players that
+ * asked for the same board, and leaves the pairing within each board to another policy.
+ *
+ * @param <P> the type of the players
+ */
+public interface PairingPolicy<P> {
+    /**
+     * Pairs waiting players. Every ticket is used in at most one match; tickets that are not
+     * used stay in the queue for the next round.
+     *
+     * @param waiting  the waiting players, longest waiting first
+     * @param byRating the waiting players that asked for a board dimension, by rating. The
+     *                 matchmaker keeps these indexes up to date as players enter and leave the
+     *                 queue. A policy may take the tickets it pairs out of them, so later
+     *                 lookups of the round do not step over paired players, but must not
+     *                 change them otherwise
+     * @param now      the current time, in nanoseconds of the matchmaker clock
+     * @return the matches to start
+     */
+    List<Match<P>> pair(List<Ticket<P>> waiting, IntFunction<RatingIndex<Ticket<P>>> byRating,
+                        long now);
+
+    /**
+     * Returns a policy that pairs the players in order of arrival, on the board of the player
+     * that waited longest, who also moves first.
+     *
+     * @param <P> the type of the players
+     * @return the first-come first-served policy
+     */
+    static <P> PairingPolicy<P> fifo() {
+        return (waiting, byRating, now) -> {
+            List<Match<P>> matches = new ArrayList<>();
+            for (int i = 0; i + 1 < waiting.size(); i += 2) {
+                matches.add(new Match<>(waiting.get(i), waiting.get(i + 1),
+                                        waiting.get(i).getDimension()));
+            }
+            return matches;
+        };
+    }
+
+    /**
+     * Returns a policy that pairs players of similar rating. Two players are paired when their
+     * ratings differ by at most the band of both; the band of a player starts at the given
+     * width and widens the longer it waits, so nobody waits forever. The player that waited
+     * longest moves first, on the board it asked for.
+     *
+     * @param width          rating difference that is always accepted
+     * @param widenPerSecond widening of the band per second of waiting
+     * @param <P>            the type of the players
+     * @return the rating band policy
+     */
+    /*@
+        requires width >= 0 && widenPerSecond >= 0;
+    */
+    static <P> PairingPolicy<P> ratingBand(double width, double widenPerSecond) {
+        if (width < 0 || widenPerSecond < 0) {
+            throw new IllegalArgumentException("the band cannot be negative");
+        }
+        return (waiting, byRating, now) -> {
+            List<Ticket<P>> sorted = new ArrayList<>(waiting);
+            sorted.sort(Comparator.comparingDouble(Ticket::getRating));
+            List<Match<P>> matches = new ArrayList<>();
+            int i = 0;
+            while (i + 1 < sorted.size()) {
+                Ticket<P> low = sorted.get(i);
+                Ticket<P> high = sorted.get(i + 1);
+                double band = width + widenPerSecond *
+                        Math.min(low.getWaitNanos(now), high.getWaitNanos(now)) / 1e9;
+                if (high.getRating() - low.getRating() > band) {
+                    i++;
+                    continue;
+                }
+                Ticket<P> first = low.getWaitNanos(now) >= high.getWaitNanos(now) ? low : high;
+                matches.add(new Match<>(first, first == low ? high : low, first.getDimension()));
+                i += 2;
+            }
+            return matches;
+        };
+    }
+
+    /**
+     * Returns a policy that gives every player, longest waiting first, the opponent with the
+     * nearest rating on the same board size, found in O(log n) in the index of the matchmaker.
+     * The pair is made when the ratings differ by at most the band of both players, which
+     * starts at the given width and widens the longer they wait. The player that waited longest
+     * moves first.
+     *
+     * @param width          rating difference that is always accepted
+     * @param widenPerSecond widening of the band per second of waiting
+     * @param <P>            the type of the players
+     * @return the nearest rating policy
+     */
+    /*@
+        requires width >= 0 && widenPerSecond >= 0;
+    */
+    static <P> PairingPolicy<P> nearestRating(double width, double widenPerSecond) {
+        if (width < 0 || widenPerSecond < 0) {
+            throw new IllegalArgumentException("the band cannot be negative");
+        }
+        return (waiting, byRating, now) -> {
+            List<Match<P>> matches = new ArrayList<>();
+            for (Ticket<P> ticket : waiting) {
+                RatingIndex<Ticket<P>> index = byRating.apply(ticket.getDimension());
+                if (!index.remove(ticket)) {
+                    //already paired with a player that waited longer
+                    continue;
+                }
+                Ticket<P> opponent = index.nearest(ticket.getRating(), null);
+                if (opponent == null) {
+                    index.put(ticket, ticket.getRating());
+                    continue;
+                }
+                double band = width + widenPerSecond *
+                        Math.min(ticket.getWaitNanos(now), opponent.getWaitNanos(now)) / 1e9;
+                if (Math.abs(opponent.getRating() - ticket.getRating()) <= band) {
+                    index.remove(opponent);
+                    matches.add(new Match<>(ticket, opponent, ticket.getDimension()));
+                } else {
+                    //may still be the nearest opponent of a player that waited less
+                    index.put(ticket, ticket.getRating());
+                }
+            }
+            return matches;
+        };
+    }
+
+    /**
+     * Returns a policy that only pairs players that asked for the same board size, using
+     * another policy for the players of each size.
+     *
+     * @param inner the policy that pairs the players of one board size
+     * @param <P>   the type of the players
+     * @return the board size policy
+     */
+    //@ requires inner != null;
+    static <P> PairingPolicy<P> bySize(PairingPolicy<P> inner) {
+        return (waiting, byRating, now) -> {
+            Map<Integer, List<Ticket<P>>> sizes = new LinkedHashMap<>();
+            for (Ticket<P> ticket : waiting) {
+                sizes.computeIfAbsent(ticket.getDimension(), size -> new ArrayList<>())
+                        .add(ticket);
+            }
+            List<Match<P>> matches = new ArrayList<>();
+            for (List<Ticket<P>> tickets : sizes.values()) {
+                if (tickets.size() > 1) {
+                    matches.addAll(inner.pair(tickets, byRating, now));
+                }
+            }
+            return matches;
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package dbproject.matchmaking;
+
+/**
+ * A player waiting in a {@link Matchmaker}: who it is, the board it asked for, its rating and
+ * when it entered the queue.
+ *
+ * @param <P> the type of the players
+ */
+public final class Ticket<P> {
+    private final P player;
+    private final int dimension;
+    private final double rating;
+    private final long enqueued;
+
+    /**
+     * Instantiates a ticket.
+     *
+     * @param player    the waiting player
+     * @param dimension dimension of the board the player asked for
+     * @param rating    rating of the player
+     * @param enqueued  time the player entered the queue, in nanoseconds of the matchmaker clock
+     */
+    /*@
+        requires player != null;
+    */
+    Ticket(P player, int dimension, double rating, long enqueued) {
+        this.player = player;
+        this.dimension = dimension;
+        this.rating = rating;
+        this.enqueued = enqueued;
+    }
+
+    /**
+     * Returns the waiting player.
+     *
+     * @return the player
+     */
+    //@ pure;
+    public P getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the dimension of the board the player asked for.
+     *
+     * @return the board dimension
+     */
+    //@ pure;
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Returns the rating of the player when it entered the queue.
+     *
+     * @return the rating
+     */
+    //@ pure;
+    public double getRating() {
+        return rating;
+    }
+
+    /**
+     * Returns how long the player has been waiting.
+     *
+     * @param now the current time, in nanoseconds of the matchmaker clock
+     * @return the waiting time in nanoseconds
+     */
+    //@ pure;
+    public long getWaitNanos(long now) {
+        return now - enqueued;
+    }
+
+    @Override
+    public String toString() {
+        return player + " (" + dimension + ", " + Math.round(rating) + ")";
+    }
+}
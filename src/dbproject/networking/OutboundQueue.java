@@ -0,0 +1,174 @@
+package dbproject.networking;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded queue of the lines a connection still has to send, so the thread that sends a
+ * message never waits for a slow client.
+ * <p>
+ * A writer task drains the queue: it writes every queued line and then flushes once, so a burst
+ * of messages costs one write to the socket. At most one writer task runs at a time, which keeps
+ * the lines in order. When the queue is full, the {@link Backpressure} decides what happens to
+ * the next message.
+ */
+public final class OutboundQueue {
+    /**
+     * What to do with a message for a client whose queue is full, because it stopped reading.
+     */
+    public enum Backpressure {
+        /**
+         * Drop the message and keep the connection.
+         */
+        DROP,
+        /**
+         * Close the connection.
+         */
+        DISCONNECT,
+        /**
+         * Let the sender wait until there is room, or until the connection is closed.
+         */
+        BLOCK
+    }
+
+    /**
+     * Number of lines a connection may have queued unless configured otherwise.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+    private static final long BLOCK_POLL_MILLIS = 100;
+
+    private final BufferedWriter out;
+    private final BlockingQueue<String> lines;
+    private final Backpressure backpressure;
+    private final Executor writer;
+    private final Runnable onFailure;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * Creates an outbound queue.
+     *
+     * @param out          the writer of the socket
+     * @param capacity     the number of lines that may be queued, at least 1
+     * @param backpressure what to do when the queue is full
+     * @param writer       runs the writer tasks
+     * @param onFailure    closes the connection, when writing fails or a full queue disconnects
+     */
+    public OutboundQueue(BufferedWriter out, int capacity, Backpressure backpressure,
+                         Executor writer, Runnable onFailure) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.out = out;
+        this.lines = new ArrayBlockingQueue<>(capacity);
+        this.backpressure = backpressure;
+        this.writer = writer;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Queues a line for sending, and starts a writer task if none is running.
+     *
+     * @param line the line to send, without a newline
+     * @return true if the line was queued, false if the connection is closed or the line was
+     * dropped
+     */
+    public boolean offer(String line) {
+        if (closed) {
+            return false;
+        }
+        if (!lines.offer(line)) {
+            switch (backpressure) {
+                case DROP -> {
+                    return false;
+                }
+                case DISCONNECT -> {
+                    close();
+                    onFailure.run();
+                    return false;
+                }
+                case BLOCK -> {
+                    if (!waitForRoom(line)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        if (closed) {
+            //closed while queueing, nobody will write the line
+            lines.clear();
+            return false;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of lines that are queued and not written yet.
+     *
+     * @return the number of queued lines
+     */
+    //@ pure;
+    public int size() {
+        return lines.size();
+    }
+
+    /**
+     * Stops sending; lines that are still queued are discarded.
+     */
+    public void close() {
+        closed = true;
+        lines.clear();
+    }
+
+    /**
+     * Waits until the line fits in the queue.
+     *
+     * @param line the line to queue
+     * @return true if the line was queued, false if the connection was closed or the sender was
+     * interrupted
+     */
+    private boolean waitForRoom(String line) {
+        try {
+            while (!lines.offer(line, BLOCK_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * The writer task: writes the queued lines and flushes them at once, until the queue stays
+     * empty.
+     */
+    private void drain() {
+        try {
+            do {
+                String line;
+                while ((line = lines.poll()) != null) {
+                    out.write(line);
+                    out.newLine();
+                }
+                out.flush();
+                scheduled.set(false);
+                //a line queued after the last poll found the task still running, so write it now
+            } while (!lines.isEmpty() && !closed && scheduled.compareAndSet(false, true));
+        } catch (IOException e) {
+            close();
+            scheduled.set(false);
+            onFailure.run();
+        }
+    }
+}
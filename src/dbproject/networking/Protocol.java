@@ -8,6 +8,8 @@ public class Protocol {
     public static final String LOGIN = "LOGIN";
     public static final String ALREADYLOGGEDIN = "ALREADYLOGGEDIN";
     public static final String LIST = "LIST";
+    // QUEUE~dimension and NEWGAME~player1~player2~dimension carry the board dimension, which
+    // is left out for the default Board.DIM so that older clients keep working
     public static final String QUEUE = "QUEUE";
     public static final String NEWGAME = "NEWGAME";
     public static final String MOVE = "MOVE";
@@ -3,6 +3,7 @@ package dbproject.networking;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.concurrent.Executor;
 
 /**
  * Wrapper for a Socket and implements reading messages that consist of a single line from the socket.
@@ -12,6 +13,7 @@ public abstract class SocketConnection {
     private final Socket socket;
     private final BufferedReader in;
     private final BufferedWriter out;
+    private final OutboundQueue outbound;
     private boolean started = false;
 
     /**
@@ -24,6 +26,24 @@ public abstract class SocketConnection {
         this.socket = socket;
         in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
         out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+        outbound = null;
+    }
+
+    /**
+     * Create a new SocketConnection that queues its messages and writes them on a writer task, instead of on the
+     * thread that sends them.
+     * @param socket the socket for this connection
+     * @param capacity the number of messages that may be queued
+     * @param backpressure what to do with a message when the queue is full
+     * @param writer runs the writer task
+     * @throws IOException if there is an I/O exception while initializing the Reader/Writer objects
+     */
+    protected SocketConnection(Socket socket, int capacity, OutboundQueue.Backpressure backpressure,
+                               Executor writer) throws IOException {
+        this.socket = socket;
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+        outbound = new OutboundQueue(out, capacity, backpressure, writer, this::close);
     }
 
     /**
@@ -53,12 +73,20 @@ public abstract class SocketConnection {
      * This method may only be called once.
      */
     protected void start() {
+        start(ThreadMode.PLATFORM);
+    }
+
+    /**
+     * Start receiving messages on a thread of the given kind, and call methods of the given handler to handle the
+     * messages. This method may only be called once.
+     * @param mode the kind of thread that receives the messages
+     */
+    protected void start(ThreadMode mode) {
         if (started) {
             throw new IllegalStateException("Cannot start a SocketConnection twice");
         }
         started = true;
-        Thread thread = new Thread(this::receiveMessages);
-        thread.start();
+        mode.start(this::receiveMessages);
     }
 
     /**
@@ -84,11 +112,16 @@ public abstract class SocketConnection {
     /**
      * Send a message over the network. The message will be sent as a single line.
      * The message should not contain any newlines.
+     * If this connection has an outbound queue, the message is only queued.
      * @param message the message to send
-     * @return true if the message was sent successfully, false if the connection was closed
+     * @return true if the message was sent or queued successfully, false if the connection was closed or the
+     * message was dropped
      */
     protected boolean sendMessage(String message) {
         //System.out.println("SocketConnection.sendMessage: " + message); //debug
+        if (outbound != null) {
+            return outbound.offer(message);
+        }
         try {
             out.write(message);
             out.newLine();
@@ -105,6 +138,9 @@ public abstract class SocketConnection {
      * Close the network connection. This will also cause the thread that receives messages to stop.
      */
     protected void close() {
+        if (outbound != null) {
+            outbound.close();
+        }
         try {
             // the way TCP works, the other side will receive a close event, and will then close the socket
             // from its side as well, resulting in a closed connection in the reading thread.
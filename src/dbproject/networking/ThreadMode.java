@@ -0,0 +1,84 @@
+package dbproject.networking;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The kind of thread that runs the reading loop of a {@link SocketConnection}.
+ * <p>
+ * Virtual threads are cheap enough to give every idle connection one, but they need Java 21.
+ * The project is built for Java 17, so the virtual thread factory is looked up at runtime; on
+ * older runtimes {@link #VIRTUAL} falls back to platform threads.
+ */
+public enum ThreadMode {
+    /**
+     * An operating system thread per connection.
+     */
+    PLATFORM,
+    /**
+     * A virtual thread per connection, or a platform thread if the runtime has no virtual
+     * threads.
+     */
+    VIRTUAL;
+
+    private static final ThreadFactory VIRTUAL_FACTORY = virtualFactory();
+    /**
+     * Runs short tasks of all connections in platform mode; idle threads end after a minute.
+     */
+    private static final ExecutorService PLATFORM_POOL = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Returns whether this runtime supports virtual threads.
+     *
+     * @return true if {@link #VIRTUAL} starts virtual threads
+     */
+    public static boolean isVirtualAvailable() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    /**
+     * Starts a thread of this kind.
+     *
+     * @param task the code the thread runs
+     * @return the started thread
+     */
+    public Thread start(Runnable task) {
+        Thread thread = this == VIRTUAL && VIRTUAL_FACTORY != null
+                ? VIRTUAL_FACTORY.newThread(task) : new Thread(task);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Returns an executor for short tasks of a connection, such as writing its queued output.
+     * Platform threads are pooled and shared by all connections, virtual threads are started
+     * per task.
+     *
+     * @return an executor that runs tasks on threads of this kind
+     */
+    public Executor executor() {
+        return this == VIRTUAL && VIRTUAL_FACTORY != null ? this::start : PLATFORM_POOL;
+    }
+
+    /**
+     * Looks up Thread.ofVirtual().factory(), which exists from Java 21 on.
+     *
+     * @return the factory of virtual threads, or null if the runtime has none
+     */
+    private static ThreadFactory virtualFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package dbproject.players;
+
+import dbproject.game.Board;
+import dbproject.game.Game;
+import dbproject.game.Symmetry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Search strategy used by AI Player for Dots and Boxes game.
+ * <p>
+ * Runs a negamax alpha-beta search with iterative deepening, backed by a
+ * {@link TranspositionTable}, keyed on the canonical frame of each position so that rotations
+ * and reflections of a position share one entry. Completing a box keeps the same player on
+ * move, so a move only flips the perspective of the search when it passes the turn. The
+ * deepest fully searched iteration within the time budget decides the move.
+ * <p>
+ * With more than one thread, the search runs in Lazy SMP mode: helper threads of a
+ * {@link ForkJoinPool} run the same iterative deepening on their own copy of the game, with
+ * staggered depths and rotated root moves, and share their results through the transposition
+ * table. The main search then finds most of its positions already in the table. The pool
+ * belongs to the strategy and is shut down by {@link #close()}.
+ */
+public class AlphaBetaStrategy implements Strategy {
+    /**
+     * Default time budget per move in milliseconds.
+     */
+    public static final long DEFAULT_TIME_BUDGET = 1000;
+    private static final int DEFAULT_TABLE_SIZE = 64;
+    private static final int INFINITY = Short.MAX_VALUE;
+    /**
+     * Number of nodes searched between two checks of the clock.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final long timeBudget;
+    private final int maxDepth;
+    private final TranspositionTable table;
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    private long deadline;
+    private volatile boolean stopped;
+    private long lastNodes;
+
+    /**
+     * Instantiates an AlphaBetaStrategy with the default time budget.
+     */
+    public AlphaBetaStrategy() {
+        this(DEFAULT_TIME_BUDGET);
+    }
+
+    /**
+     * Instantiates an AlphaBetaStrategy with a time budget per move.
+     *
+     * @param timeBudget wall-clock time per move in milliseconds
+     */
+    public AlphaBetaStrategy(long timeBudget) {
+        this(timeBudget, Integer.MAX_VALUE, new TranspositionTable(
+                DEFAULT_TABLE_SIZE, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+
+    /**
+     * Instantiates a single-threaded AlphaBetaStrategy with a time budget, a depth limit and a
+     * transposition table.
+     *
+     * @param timeBudget wall-clock time per move in milliseconds
+     * @param maxDepth   maximum depth of the iterative deepening, in moves
+     * @param table      transposition table to use for the search
+     */
+    /*@
+        requires timeBudget > 0 && maxDepth > 0 && table != null;
+    */
+    public AlphaBetaStrategy(long timeBudget, int maxDepth, TranspositionTable table) {
+        this(timeBudget, maxDepth, table, 1);
+    }
+
+    /**
+     * Instantiates an AlphaBetaStrategy that searches with the given number of threads.
+     *
+     * @param timeBudget wall-clock time per move in milliseconds
+     * @param maxDepth   maximum depth of the iterative deepening, in moves
+     * @param table      transposition table shared by all search threads
+     * @param threads    number of search threads, including the calling thread
+     */
+    /*@
+        requires timeBudget > 0 && maxDepth > 0 && table != null && threads > 0;
+    */
+    public AlphaBetaStrategy(long timeBudget, int maxDepth, TranspositionTable table,
+                             int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("at least one search thread is needed");
+        }
+        this.timeBudget = timeBudget;
+        this.maxDepth = maxDepth;
+        this.table = table;
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+    }
+
+    /**
+     * Returns the best move found within the time budget, given the current state of the game.
+     *
+     * @param game to determine the next legal move from.
+     * @return next legal move, given the current state of the game.
+     */
+    @Override
+    public int determineMove(Game game) {
+        deadline = System.nanoTime() + timeBudget * 1_000_000L;
+        stopped = false;
+        table.newSearch();
+
+        ForkJoinTask<?>[] helpers = new ForkJoinTask<?>[threads - 1];
+        Searcher[] helperSearchers = new Searcher[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            Searcher helper = new Searcher(game.deepCopy(), i + 1);
+            helperSearchers[i] = helper;
+            helpers[i] = pool.submit(helper::iterativeDeepening);
+        }
+        Searcher main = new Searcher(game.deepCopy(), 0);
+        int bestMove = main.iterativeDeepening();
+        //the main search decides the move, the helpers only filled the table
+        stopped = true;
+        long nodes = main.nodes;
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].join();
+            nodes += helperSearchers[i].nodes;
+        }
+        lastNodes = nodes;
+        return bestMove;
+    }
+
+    /**
+     * Shuts down the helper threads of the search.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the number of positions searched by all threads during the last call to
+     * {@link #determineMove(Game)}.
+     *
+     * @return number of searched positions
+     */
+    public long getLastNodeCount() {
+        return lastNodes;
+    }
+
+    /**
+     * Iterative deepening search of one thread on its own copy of the game.
+     */
+    private final class Searcher {
+        private final Game game;
+        private final int id;
+        private final int[][] moveBuffers;
+        private long nodes;
+        private boolean aborted;
+
+        /**
+         * Creates a searcher for a copy of the game.
+         *
+         * @param game copy of the game, owned by this searcher
+         * @param id   0 for the main search, otherwise the number of the helper
+         */
+        private Searcher(Game game, int id) {
+            this.game = game;
+            this.id = id;
+            //one buffer per ply, allocated when the search first gets there
+            moveBuffers = new int[game.getBoard().getLineCount() + 1][];
+        }
+
+        /**
+         * Searches with increasing depth until the depth limit, the time budget or, for
+         * helpers, the end of the main search.
+         *
+         * @return the best move of the deepest completed iteration, or -1 if there is no move
+         */
+        private int iterativeDeepening() {
+            int count = generateMoves(moveBuffer(0));
+            if (count == 0) {
+                return -1;
+            }
+            int bestMove = moveBuffer(0)[0];
+            int depthLimit = Math.min(maxDepth, count);
+            //odd helpers start one ply deeper, so threads do not all search the same depth
+            for (int depth = 1 + (id & 1); depth <= depthLimit; depth++) {
+                int move = searchRoot(depth);
+                if (aborted) {
+                    break;
+                }
+                bestMove = move;
+            }
+            return bestMove;
+        }
+
+        /**
+         * Searches all moves of the root position to the given depth.
+         *
+         * @param depth remaining depth in moves
+         * @return the best move, only meaningful if the search was not aborted
+         */
+        private int searchRoot(int depth) {
+            int[] moves = moveBuffer(0);
+            int count = generateMoves(moves);
+            if (id > 0) {
+                //helpers start with a different root move to spread over the tree
+                rotate(moves, count, id % count);
+            }
+            Symmetry frame = game.getBoard().getCanonicalSymmetry();
+            long key = game.getCanonicalZobristKey();
+            orderMoves(moves, count, fromCanonical(frame, table.probe(key)));
+            int alpha = -INFINITY;
+            int bestMove = moves[0];
+            for (int i = 0; i < count; i++) {
+                int value = searchChild(moves[i], depth, 0, alpha, INFINITY);
+                if (aborted) {
+                    return bestMove;
+                }
+                if (value > alpha) {
+                    alpha = value;
+                    bestMove = moves[i];
+                }
+            }
+            table.store(key, depth, TranspositionTable.EXACT, alpha, frame.map(game.getBoard(),
+                                                                               bestMove));
+            return bestMove;
+        }
+
+        /**
+         * Plays move, searches the resulting position and undoes the move again.
+         *
+         * @param move  move to play
+         * @param depth remaining depth before playing the move
+         * @param ply   distance of the current position from the root
+         * @param alpha lower bound of the window, from the perspective of the player on move
+         * @param beta  upper bound of the window, from the perspective of the player on move
+         * @return value of the move from the perspective of the player on move
+         */
+        private int searchChild(int move, int depth, int ply, int alpha, int beta) {
+            String player = game.getTurn();
+            game.doMove(move);
+            int value;
+            if (game.getTurn().equals(player)) {
+                //completing a box keeps the turn, so the perspective does not change
+                value = negamax(depth - 1, ply + 1, alpha, beta);
+            } else {
+                value = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            }
+            game.undoMove();
+            return value;
+        }
+
+        /**
+         * Negamax alpha-beta search of the current position.
+         *
+         * @param depth remaining depth in moves
+         * @param ply   distance of the position from the root, selects the move buffer
+         * @param alpha lower bound of the window
+         * @param beta  upper bound of the window
+         * @return value of the position from the perspective of the player on move
+         */
+        private int negamax(int depth, int ply, int alpha, int beta) {
+            if (++nodes % CHECK_INTERVAL == 0 &&
+                    (stopped || System.nanoTime() > deadline)) {
+                aborted = true;
+            }
+            if (aborted) {
+                return 0;
+            }
+            if (depth == 0 || game.gameOver()) {
+                return game.getScoreDifference();
+            }
+
+            Symmetry frame = game.getBoard().getCanonicalSymmetry();
+            long key = game.getCanonicalZobristKey();
+            long entry = table.probe(key);
+            int ttMove = -1;
+            if (entry != TranspositionTable.MISS) {
+                ttMove = fromCanonical(frame, entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int value = TranspositionTable.value(entry);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT ||
+                            (bound == TranspositionTable.LOWER_BOUND && value >= beta) ||
+                            (bound == TranspositionTable.UPPER_BOUND && value <= alpha)) {
+                        return value;
+                    }
+                }
+            }
+
+            int[] moves = moveBuffer(ply);
+            int count = generateMoves(moves);
+            orderMoves(moves, count, ttMove);
+            int originalAlpha = alpha;
+            int best = -INFINITY;
+            int bestMove = -1;
+            for (int i = 0; i < count; i++) {
+                int value = searchChild(moves[i], depth, ply, alpha, beta);
+                if (aborted) {
+                    return 0;
+                }
+                if (value > best) {
+                    best = value;
+                    bestMove = moves[i];
+                }
+                if (best > alpha) {
+                    alpha = best;
+                }
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER_BOUND :
+                    best >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+            table.store(key, depth, bound, best,
+                        bestMove == -1 ? -1 : frame.map(game.getBoard(), bestMove));
+            return best;
+        }
+
+        /**
+         * Returns the best move of a table entry, mapped from the canonical frame to the
+         * current position.
+         *
+         * @param frame canonical symmetry of the current position
+         * @param entry packed entry, or {@link TranspositionTable#MISS}
+         * @return the move in the current position, or -1 if the entry has none
+         */
+        private int fromCanonical(Symmetry frame, long entry) {
+            int move = TranspositionTable.move(entry);
+            return move == -1 ? -1 : frame.inverse().map(game.getBoard(), move);
+        }
+
+        /**
+         * Writes the valid moves of the current position into buffer, ordered by their likely
+         * value: captures first, then lines that give no box away, then sacrifices.
+         *
+         * @param buffer array with room for all lines of the board
+         * @return the number of valid moves
+         */
+        private int generateMoves(int[] buffer) {
+            Board board = game.getBoard();
+            int count = board.getCaptureLines(buffer, 0);
+            count += board.getSafeLines(buffer, count);
+            return count + board.getSacrificeLines(buffer, count);
+        }
+
+        /**
+         * Returns the move buffer of a ply, allocating it on first use.
+         *
+         * @param ply distance from the root
+         * @return buffer with room for all lines of the board
+         */
+        private int[] moveBuffer(int ply) {
+            int[] buffer = moveBuffers[ply];
+            if (buffer == null) {
+                buffer = new int[game.getBoard().getLineCount()];
+                moveBuffers[ply] = buffer;
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Moves the best move of the transposition table to the front of the moves.
+     *
+     * @param moves  moves to order
+     * @param count  number of moves
+     * @param ttMove best move from the transposition table, or -1
+     */
+    private static void orderMoves(int[] moves, int count, int ttMove) {
+        for (int i = 1; i < count && ttMove != -1; i++) {
+            if (moves[i] == ttMove) {
+                moves[i] = moves[0];
+                moves[0] = ttMove;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rotates the first count moves to the left by distance positions, in place.
+     *
+     * @param moves    moves to rotate
+     * @param count    number of moves
+     * @param distance number of positions to rotate by
+     */
+    private static void rotate(int[] moves, int count, int distance) {
+        for (int done = 0; done < distance; done++) {
+            int first = moves[0];
+            System.arraycopy(moves, 1, moves, 0, count - 1);
+            moves[count - 1] = first;
+        }
+    }
+}
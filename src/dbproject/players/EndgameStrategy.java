@@ -0,0 +1,176 @@
+package dbproject.players;
+
+import dbproject.game.Board;
+import dbproject.game.ChainAnalyzer;
+import dbproject.game.ChainAnalyzer.Component;
+import dbproject.game.Game;
+import java.util.List;
+
+/**
+ * Endgame strategy used by AI Player for Dots and Boxes game.
+ * <p>
+ * Once every free line gives a box away, the game is decided by the chains and loops of the
+ * board, found by a {@link ChainAnalyzer}. This strategy then plays without searching:
+ * <ul>
+ *     <li>it opens the smallest component, a 2-chain through its middle line so the opponent
+ *     cannot keep control by declining it;</li>
+ *     <li>it captures the boxes it is offered, but keeps control with all-but-two (or
+ *     all-but-four for a loop) when the controlled value of the rest of the board is larger
+ *     than the boxes it gives away by doing so.</li>
+ * </ul>
+ * Before the endgame, and whenever it has nothing to decide, it asks a fallback strategy.
+ */
+public class EndgameStrategy implements Strategy {
+    private final Strategy fallback;
+    private ChainAnalyzer analyzer;
+
+    /**
+     * Instantiates an EndgameStrategy that plays like a {@link SmartStrategy} before the
+     * endgame.
+     */
+    public EndgameStrategy() {
+        this(new SmartStrategy());
+    }
+
+    /**
+     * Instantiates an EndgameStrategy with the strategy to use before the endgame.
+     *
+     * @param fallback strategy for positions that still have safe moves
+     */
+    /*@
+        requires fallback != null;
+    */
+    public EndgameStrategy(Strategy fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns next legal move, given the current state of the game.
+     *
+     * @param game to determine the next legal move from.
+     * @return next legal move, given the current state of the game.
+     */
+    @Override
+    public int determineMove(Game game) {
+        Board board = game.getBoard();
+        if (analyzer == null || analyzer.getBoard() != board) {
+            analyzer = new ChainAnalyzer(board);
+        }
+        //the analyzer is kept between moves, so it only retraces what changed since then
+        List<Component> components = analyzer.getComponents();
+
+        Component offered = null;
+        int offeredCount = 0;
+        for (Component component : components) {
+            if (component.isCapturable()) {
+                offered = component;
+                offeredCount++;
+            }
+        }
+        if (offered != null) {
+            return capture(components, offered, offeredCount > 1 || board.hasSafeLine());
+        }
+        if (board.hasSafeLine()) {
+            return fallback.determineMove(game);
+        }
+        int move = sacrifice(components);
+        return move != -1 ? move : fallback.determineMove(game);
+    }
+
+    /**
+     * Returns a move in a component the opponent offered.
+     *
+     * @param components all components of the board
+     * @param offered    a component with a capturable box
+     * @param takeAll    true if there is no decision to make yet, because other boxes can be
+     *                   captured first or the board still has safe lines
+     * @return a line that captures a box, or the line that declines the last boxes of offered
+     */
+    private int capture(List<Component> components, Component offered, boolean takeAll) {
+        int length = offered.getLength();
+        int end = offered.isCapturable(0) ? 0 : 1;
+        int take = analyzer.getFreeLine(offered.getBox(end == 0 ? 0 : length - 1), -1);
+        if (takeAll) {
+            return take;
+        }
+        int value = controlledValue(components, offered);
+        boolean bothEnds = offered.isCapturable(0) && offered.isCapturable(1);
+        if (!bothEnds && length == 2 && value > 2) {
+            //all-but-two: leave the last two boxes of the chain as a domino
+            return offered.getExit(1 - end);
+        }
+        if (bothEnds && length == 4 && value > 4) {
+            //all-but-four of an opened loop: leave two dominoes
+            return analyzer.getSharedLine(offered.getBox(1), offered.getBox(2));
+        }
+        return take;
+    }
+
+    /**
+     * Returns the line that opens the cheapest component, when every free line gives boxes
+     * away.
+     *
+     * @param components all components of the board, none of them capturable
+     * @return a line of the smallest component, or -1 if there are no components
+     */
+    private int sacrifice(List<Component> components) {
+        Component cheapest = null;
+        for (Component component : components) {
+            if (cheapest == null || component.getLength() < cheapest.getLength() ||
+                    (component.getLength() == cheapest.getLength() && cheapest.isLoop() &&
+                            !component.isLoop())) {
+                cheapest = component;
+            }
+        }
+        if (cheapest == null) {
+            return -1;
+        }
+        if (cheapest.isLoop() || cheapest.getLength() == 2) {
+            //opening in the middle leaves nothing to decline
+            return analyzer.getSharedLine(cheapest.getBox(0), cheapest.getBox(1));
+        }
+        int exit = cheapest.getExit(0) != -1 ? cheapest.getExit(0) : cheapest.getExit(1);
+        return exit != -1 ? exit : analyzer.getFreeLine(cheapest.getBox(0), -1);
+    }
+
+    /**
+     * Returns the controlled value of the long chains and loops of the board: the net number of
+     * boxes the player in control wins on them by keeping control until the last one. Short
+     * chains are left out, which is exact when there are none.
+     *
+     * @param components all components of the board
+     * @param skip       component to leave out, or null
+     * @return the controlled value, or {@link Integer#MIN_VALUE} if there are no long chains or
+     * loops
+     */
+    private static int controlledValue(List<Component> components, Component skip) {
+        int chains = 0;
+        int loops = 0;
+        int boxes = 0;
+        for (Component component : components) {
+            if (component == skip) {
+                continue;
+            }
+            if (component.isLoop()) {
+                loops++;
+                boxes += component.getLength();
+            } else if (component.getLength() >= 3) {
+                chains++;
+                boxes += component.getLength();
+            }
+        }
+        if (chains + loops == 0) {
+            return Integer.MIN_VALUE;
+        }
+        //control is given up on the last component, which is taken completely
+        return boxes - 4 * chains - 8 * loops + (chains > 0 ? 4 : 8);
+    }
+
+    /**
+     * Closes the fallback strategy.
+     */
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
@@ -0,0 +1,505 @@
+package dbproject.players;
+
+import dbproject.game.Board;
+import dbproject.game.Game;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Monte Carlo Tree Search strategy used by AI Player for Dots and Boxes game.
+ * <p>
+ * Every iteration selects a path through the tree with UCT, expands one new position, plays
+ * greedy random moves until the end of the game (captures first, then lines that give no box
+ * away) and adds the result to every position on the path.
+ * All of this happens on one scratch copy of the game per thread, which is restored with
+ * {@link Game#undoMove()} after each iteration, so playouts do not allocate. The trees are kept
+ * between calls, and reused if the new position is one of their descendants.
+ * <p>
+ * With more than one thread the search runs in one of two {@link Parallelism} modes. Node
+ * statistics are updated with atomic field updaters and expansion claims untried moves with a
+ * compare-and-set, so threads never lock a node. The helper threads run on a pool of the
+ * strategy, which is shut down by {@link #close()}.
+ */
+public class MonteCarloStrategy implements Strategy {
+    /**
+     * Default time budget per move in milliseconds.
+     */
+    public static final long DEFAULT_TIME_BUDGET = 1000;
+    /**
+     * Exploration constant of the UCT formula.
+     */
+    private static final double EXPLORATION = Math.sqrt(2);
+    /**
+     * Rewards are counted in half points, so that they fit an atomic integer.
+     */
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+
+    /**
+     * How the search is divided over multiple threads.
+     */
+    public enum Parallelism {
+        /**
+         * Every thread grows its own tree; the visit counts of the root moves of all trees
+         * are added up at the end.
+         */
+        ROOT,
+        /**
+         * All threads grow one shared tree. A thread adds a virtual loss to every node it
+         * passes, so other threads are steered towards other paths until its result is in.
+         */
+        TREE
+    }
+
+    private final long timeBudget;
+    private final long maxIterations;
+    private final int threads;
+    private final Parallelism parallelism;
+    private final ForkJoinPool pool;
+    private final Worker[] workers;
+
+    private Node[] roots;
+    private long deadline;
+    private final AtomicLong iterations = new AtomicLong();
+    private long lastIterations;
+
+    /**
+     * Instantiates a single-threaded MonteCarloStrategy with the default time budget.
+     */
+    public MonteCarloStrategy() {
+        this(DEFAULT_TIME_BUDGET, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Instantiates a single-threaded MonteCarloStrategy that stops at a time budget or a
+     * number of iterations, whichever comes first.
+     *
+     * @param timeBudget    wall-clock time per move in milliseconds
+     * @param maxIterations maximum number of iterations per move
+     */
+    /*@
+        requires timeBudget > 0 && maxIterations > 0;
+    */
+    public MonteCarloStrategy(long timeBudget, long maxIterations) {
+        this(timeBudget, maxIterations, 1, Parallelism.TREE);
+    }
+
+    /**
+     * Instantiates a MonteCarloStrategy that searches with the given number of threads.
+     *
+     * @param timeBudget    wall-clock time per move in milliseconds
+     * @param maxIterations maximum number of iterations per move, over all threads
+     * @param threads       number of search threads, including the calling thread
+     * @param parallelism   how the search is divided over the threads
+     */
+    /*@
+        requires timeBudget > 0 && maxIterations > 0 && threads > 0 && parallelism != null;
+    */
+    public MonteCarloStrategy(long timeBudget, long maxIterations, int threads,
+                              Parallelism parallelism) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("at least one search thread is needed");
+        }
+        this.timeBudget = timeBudget;
+        this.maxIterations = maxIterations;
+        this.threads = threads;
+        this.parallelism = parallelism;
+        this.pool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+        workers = new Worker[threads];
+        SplittableRandom seeds = new SplittableRandom();
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(seeds.split());
+        }
+    }
+
+    /**
+     * Returns the most visited move after searching within the budget, given the current state
+     * of the game.
+     *
+     * @param game to determine the next legal move from.
+     * @return next legal move, given the current state of the game.
+     */
+    @Override
+    public int determineMove(Game game) {
+        deadline = System.nanoTime() + timeBudget * 1_000_000L;
+        iterations.set(0);
+        int treeCount = parallelism == Parallelism.ROOT ? threads : 1;
+        if (roots == null || roots.length != treeCount) {
+            roots = new Node[treeCount];
+        }
+        for (Worker worker : workers) {
+            worker.prepare(game);
+        }
+        for (int i = 0; i < treeCount; i++) {
+            Node root = roots[i] == null ? null :
+                    findDescendant(roots[i], game.getBoard(), game.getZobristKey());
+            roots[i] = root != null ? root : new Node(-1, false, game, workers[i]);
+            roots[i].parent = null;
+        }
+        if (roots[0].untried.length == 0) {
+            return -1;
+        }
+
+        ForkJoinTask<?>[] helpers = new ForkJoinTask<?>[threads - 1];
+        for (int i = 1; i < threads; i++) {
+            Worker worker = workers[i];
+            Node root = roots[i % treeCount];
+            helpers[i - 1] = pool.submit(() -> worker.search(root));
+        }
+        workers[0].search(roots[0]);
+        for (ForkJoinTask<?> helper : helpers) {
+            helper.join();
+        }
+        lastIterations = Math.min(iterations.get(), maxIterations);
+        return mostVisitedMove(roots[0].untried.length);
+    }
+
+    /**
+     * Returns the number of iterations, over all threads, of the last call to
+     * {@link #determineMove(Game)}.
+     *
+     * @return number of iterations
+     */
+    public long getLastIterationCount() {
+        return lastIterations;
+    }
+
+    /**
+     * Returns the visits of the root positions of all trees after the last call to
+     * {@link #determineMove(Game)}, including the visits of earlier searches if their tree was
+     * reused. Every iteration visits the root of the tree it grows once.
+     *
+     * @return total visits of the roots
+     */
+    public long getLastRootVisits() {
+        long visits = 0;
+        for (Node root : roots) {
+            visits += root.visits;
+        }
+        return visits;
+    }
+
+    /**
+     * Shuts down the helper threads of the search.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds up the visits of every root move over all trees and returns the most visited move.
+     *
+     * @param moveCount number of moves of the root position
+     * @return the most visited move
+     */
+    private int mostVisitedMove(int moveCount) {
+        int[] moves = roots[0].untried;
+        long[] visits = new long[moveCount];
+        for (Node root : roots) {
+            for (int i = 0; i < root.claimed && i < moveCount; i++) {
+                Node child = root.children.get(i);
+                if (child != null) {
+                    for (int j = 0; j < moveCount; j++) {
+                        if (moves[j] == child.move) {
+                            visits[j] += child.visits;
+                        }
+                    }
+                }
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < moveCount; i++) {
+            if (visits[i] > visits[best]) {
+                best = i;
+            }
+        }
+        return moves[best];
+    }
+
+    /**
+     * Depth-first search for the node with the given key, below node, following only moves
+     * whose lines are drawn on board.
+     *
+     * @param node  node to search from
+     * @param board board of the position to find
+     * @param key   Zobrist key of the position to find
+     * @return the node with the given key, or null if it is not found
+     */
+    private static Node findDescendant(Node node, Board board, long key) {
+        if (node.key == key) {
+            return node;
+        }
+        for (int i = 0; i < node.claimed && i < node.untried.length; i++) {
+            Node child = node.children.get(i);
+            if (child != null && !board.isEmptyField(child.move)) {
+                Node found = findDescendant(child, board, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the reward of a finished game for a player.
+     *
+     * @param player1Margin score of player 1 minus score of player 2
+     * @param player1       true for the reward of player 1, false for player 2
+     * @return {@link #WIN} for a win, {@link #DRAW} for a draw and 0 for a loss
+     */
+    private static int reward(int player1Margin, boolean player1) {
+        if (player1Margin == 0) {
+            return DRAW;
+        }
+        return (player1Margin > 0) == player1 ? WIN : 0;
+    }
+
+    /**
+     * Returns true if player 1 is on move in game.
+     *
+     * @param game the game
+     * @return true if it is the turn of player 1
+     */
+    private static boolean isPlayer1OnMove(Game game) {
+        return game.getTurn().equals(game.getPlayer1());
+    }
+
+    /**
+     * State of one search thread: its scratch game, move buffer and random generator.
+     */
+    private final class Worker {
+        private final SplittableRandom random;
+        private Game scratch;
+        private int[] moveBuffer;
+
+        /**
+         * Creates a worker.
+         *
+         * @param random random generator of this worker
+         */
+        private Worker(SplittableRandom random) {
+            this.random = random;
+        }
+
+        /**
+         * Makes the scratch copy of the game for the next search.
+         *
+         * @param game the current game
+         */
+        private void prepare(Game game) {
+            scratch = game.deepCopy();
+            int lineCount = scratch.getBoard().getLineCount();
+            if (moveBuffer == null || moveBuffer.length != lineCount) {
+                moveBuffer = new int[lineCount];
+            }
+        }
+
+        /**
+         * Runs iterations on the tree of root until the time or iteration budget is spent.
+         *
+         * @param root root of the tree to grow
+         */
+        private void search(Node root) {
+            while (iterations.getAndIncrement() < maxIterations) {
+                iterate(root);
+                if ((random.nextInt() & 63) == 0 && System.nanoTime() > deadline) {
+                    break;
+                }
+            }
+            scratch = null;
+        }
+
+        /**
+         * Runs one selection, expansion, playout and backpropagation step on the scratch
+         * game, and restores the scratch game to the root position afterwards.
+         *
+         * @param root root of the tree
+         */
+        private void iterate(Node root) {
+            Node node = root;
+            node.addVirtualLoss();
+            int played = 0;
+            while (true) {
+                int index = node.claimUntried();
+                if (index >= 0) {
+                    int move = node.untried[index];
+                    boolean moverIsPlayer1 = isPlayer1OnMove(scratch);
+                    scratch.doMove(move);
+                    played++;
+                    Node child = new Node(move, moverIsPlayer1, scratch, this);
+                    child.parent = node;
+                    child.addVirtualLoss();
+                    node.children.set(index, child);
+                    node = child;
+                    break;
+                }
+                Node selected = select(node);
+                if (selected == null) {
+                    //terminal position, or the other children are still being expanded
+                    break;
+                }
+                node = selected;
+                node.addVirtualLoss();
+                scratch.doMove(node.move);
+                played++;
+            }
+            while (!scratch.gameOver()) {
+                scratch.doMove(playoutMove());
+                played++;
+            }
+
+            int player1Margin = scratch.getPlayerScore(scratch.getPlayer1()) -
+                    scratch.getPlayerScore(scratch.getPlayer2());
+            //the visits were already counted as virtual losses on the way down
+            for (Node current = node; current != null; current = current.parent) {
+                current.addReward(reward(player1Margin, current.moverIsPlayer1));
+            }
+            for (int i = 0; i < played; i++) {
+                scratch.undoMove();
+            }
+        }
+
+        /**
+         * Picks a move for the playout: a random capture if there is one, otherwise a random
+         * line that gives no box away, and only when there is none of those a random
+         * sacrifice.
+         *
+         * @return a valid move of the scratch game, which is not over
+         */
+        private int playoutMove() {
+            Board board = scratch.getBoard();
+            int count = board.getCaptureLines(moveBuffer, 0);
+            if (count == 0) {
+                count = board.getSafeLines(moveBuffer, 0);
+            }
+            if (count == 0) {
+                count = board.getSacrificeLines(moveBuffer, 0);
+            }
+            return moveBuffer[random.nextInt(count)];
+        }
+
+        /**
+         * Selects the child of node with the highest UCT value.
+         *
+         * @param node fully claimed node
+         * @return the selected child, or null if node has no expanded children
+         */
+        private Node select(Node node) {
+            double logVisits = Math.log(Math.max(1, node.visits));
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < node.untried.length; i++) {
+                Node child = node.children.get(i);
+                if (child == null) {
+                    continue;
+                }
+                int visits = Math.max(1, child.visits);
+                double value = child.rewards / (2.0 * visits) +
+                        EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Position in the search tree.
+     */
+    private static final class Node {
+        private static final AtomicIntegerFieldUpdater<Node> VISITS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        private static final AtomicIntegerFieldUpdater<Node> REWARDS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "rewards");
+        private static final AtomicIntegerFieldUpdater<Node> CLAIMED =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "claimed");
+
+        private volatile Node parent;
+        private final int move;
+        /**
+         * True if player 1 made the move leading to this node; rewards are from the
+         * perspective of that player.
+         */
+        private final boolean moverIsPlayer1;
+        private final long key;
+        /**
+         * Valid moves of this position, in random order. The first claimed moves have been
+         * expanded, and the child of untried[i] is stored at children[i].
+         */
+        private final int[] untried;
+        private final AtomicReferenceArray<Node> children;
+        private volatile int claimed;
+        private volatile int visits;
+        private volatile int rewards;
+
+        /**
+         * Creates a node for the current position of game.
+         *
+         * @param move           move leading to this node, or -1 for the root
+         * @param moverIsPlayer1 true if player 1 made the move
+         * @param game           game in the position of this node
+         * @param worker         worker that provides the move buffer and random generator
+         */
+        private Node(int move, boolean moverIsPlayer1, Game game, Worker worker) {
+            this.move = move;
+            this.moverIsPlayer1 = moverIsPlayer1;
+            this.key = game.getZobristKey();
+            int[] buffer = worker.moveBuffer;
+            int count = game.getValidMoves(buffer);
+            untried = new int[count];
+            System.arraycopy(buffer, 0, untried, 0, count);
+            for (int i = count - 1; i > 0; i--) {
+                int j = worker.random.nextInt(i + 1);
+                int swap = untried[i];
+                untried[i] = untried[j];
+                untried[j] = swap;
+            }
+            children = new AtomicReferenceArray<>(count);
+        }
+
+        /**
+         * Claims the next untried move of this node for expansion.
+         *
+         * @return the index of the claimed move, or -1 if all moves are claimed
+         */
+        private int claimUntried() {
+            while (true) {
+                int index = claimed;
+                if (index >= untried.length) {
+                    return -1;
+                }
+                if (CLAIMED.compareAndSet(this, index, index + 1)) {
+                    return index;
+                }
+            }
+        }
+
+        /**
+         * Counts a visit without a reward, until the result of the playout is added.
+         */
+        private void addVirtualLoss() {
+            VISITS.incrementAndGet(this);
+        }
+
+        /**
+         * Adds the reward of a finished playout.
+         *
+         * @param reward reward in half points
+         */
+        private void addReward(int reward) {
+            if (reward != 0) {
+                REWARDS.addAndGet(this, reward);
+            }
+        }
+    }
+}
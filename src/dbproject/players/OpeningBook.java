@@ -0,0 +1,436 @@
+package dbproject.players;
+
+import dbproject.game.Board;
+import dbproject.game.Game;
+import dbproject.game.Symmetry;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Opening book of a Dots and Boxes board, read from a memory-mapped file.
+ * <p>
+ * The book holds one record per position and move: the canonical Zobrist key of the position
+ * (see {@link Game#getCanonicalZobristKey()}), the move in the canonical frame of the
+ * position, its score and the number of games or searches behind it. Records are sorted by
+ * key, so a position is found by binary search directly in the mapping. Opening a book only
+ * reads its header; the records are paged in by the operating system as they are probed.
+ * <p>
+ * The file starts with a header of {@link #MAGIC}, {@link #VERSION}, the dimension of the
+ * board and a reserved int, followed by the number of records as a long. Every record takes
+ * {@link #RECORD_BYTES} bytes: the key as a long, the move and the score as shorts and the
+ * count as an int, all big-endian. Files are mapped in chunks, so books larger than 2 GB can
+ * be read as well.
+ */
+public class OpeningBook {
+    /**
+     * First int of an opening book file, "DBOB" in ASCII.
+     */
+    public static final int MAGIC = 0x44424F42;
+    /**
+     * Version of the file format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of one record in bytes.
+     */
+    public static final int RECORD_BYTES = 16;
+    /**
+     * Scores are stored in hundredths of a box.
+     */
+    public static final int SCORE_SCALE = 100;
+    /**
+     * Largest board dimension a book can be made for: a score is at most the number of boxes,
+     * which has to fit a short in hundredths of a box.
+     */
+    public static final int MAX_DIM = 1 + (int) Math.sqrt(Short.MAX_VALUE / SCORE_SCALE);
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    /**
+     * Records per mapped chunk, 1 GB each.
+     */
+    private static final int CHUNK_SHIFT = 26;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final int dim;
+    private final long size;
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * Creates a book of the given records.
+     *
+     * @param dim    dimension of the board the book is for
+     * @param size   number of records
+     * @param chunks mappings of the records, every chunk but the last of 2^CHUNK_SHIFT records
+     */
+    private OpeningBook(int dim, long size, MappedByteBuffer[] chunks) {
+        this.dim = dim;
+        this.size = size;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Maps an opening book file into memory.
+     *
+     * @param path file written by a {@link Builder}
+     * @return the opening book in the file
+     * @throws IOException if the file cannot be read or is not a valid opening book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                //read until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException(path + " is not an opening book");
+            }
+            int version = header.getInt();
+            int dim = header.getInt();
+            header.getInt();
+            long size = header.getLong();
+            if (version != VERSION) {
+                throw new IOException("unsupported opening book version " + version);
+            }
+            if (!Board.isValidDimension(dim) || dim > MAX_DIM) {
+                throw new IOException("invalid opening book dimension " + dim);
+            }
+            if (size < 0 || channel.size() != HEADER_BYTES + size * RECORD_BYTES) {
+                throw new IOException(path + " is truncated");
+            }
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK)
+                    >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long first = (long) i << CHUNK_SHIFT;
+                long records = Math.min(size - first, 1L << CHUNK_SHIFT);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                        HEADER_BYTES + first * RECORD_BYTES,
+                                        records * RECORD_BYTES);
+            }
+            return new OpeningBook(dim, size, chunks);
+        }
+    }
+
+    /**
+     * Returns the dimension of the board this book is for.
+     *
+     * @return number of dots on one side of the board
+     */
+    //@ pure;
+    public int getDimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the number of records in this book.
+     *
+     * @return the number of (position, move) records
+     */
+    //@ pure;
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the book move of a position: the move with the highest score among the moves
+     * played at least minCount times, with the most played move first on equal scores.
+     *
+     * @param game     position to look up
+     * @param minCount number of games or searches a move needs to be considered
+     * @return the book move, mapped to the frame of game, or -1 if the position is not in the
+     * book or has no move played often enough
+     */
+    /*@
+        ensures \result == -1 || game.isValidMove(\result);
+        pure;
+    */
+    public int getMove(Game game, int minCount) {
+        Board board = game.getBoard();
+        if (board.getDimension() != dim) {
+            return -1;
+        }
+        long key = game.getCanonicalZobristKey();
+        long bestRecord = -1;
+        int bestScore = Integer.MIN_VALUE;
+        //records of one position are sorted by count, so the first of a score is the most played
+        for (long i = find(key); i < size && getKey(i) == key; i++) {
+            if (getCount(i) >= minCount && getScore(i) > bestScore) {
+                bestScore = getScore(i);
+                bestRecord = i;
+            }
+        }
+        if (bestRecord == -1) {
+            return -1;
+        }
+        Symmetry frame = board.getCanonicalSymmetry();
+        int canonical = getMove(bestRecord);
+        if (!board.isLine(canonical)) {
+            return -1;
+        }
+        int move = frame.inverse().map(board, canonical);
+        //a move on a drawn line can only come from a key collision
+        return game.isValidMove(move) ? move : -1;
+    }
+
+    /**
+     * Returns the number of games or searches behind a position.
+     *
+     * @param game position to look up
+     * @return the sum of the counts of all moves of the position, 0 if it is not in the book
+     */
+    //@ pure;
+    public long getCount(Game game) {
+        if (game.getBoard().getDimension() != dim) {
+            return 0;
+        }
+        long key = game.getCanonicalZobristKey();
+        long count = 0;
+        for (long i = find(key); i < size && getKey(i) == key; i++) {
+            count += getCount(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first record with a key, or of the first record with a larger key
+     * if there is none.
+     *
+     * @param key canonical Zobrist key to find
+     * @return index of the first record with a key of at least key, size() if there is none
+     */
+    private long find(long key) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (getKey(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int offset(long record) {
+        return (int) (record & CHUNK_MASK) * RECORD_BYTES;
+    }
+
+    private MappedByteBuffer chunk(long record) {
+        return chunks[(int) (record >>> CHUNK_SHIFT)];
+    }
+
+    private long getKey(long record) {
+        return chunk(record).getLong(offset(record));
+    }
+
+    private int getMove(long record) {
+        return chunk(record).getShort(offset(record) + Long.BYTES);
+    }
+
+    private int getScore(long record) {
+        return chunk(record).getShort(offset(record) + Long.BYTES + Short.BYTES);
+    }
+
+    private int getCount(long record) {
+        return chunk(record).getInt(offset(record) + Long.BYTES + 2 * Short.BYTES);
+    }
+
+    /**
+     * Collects moves from self-play games or searches and writes them as a sorted opening book.
+     * Moves are stored in the canonical frame of their position, so all rotations and
+     * reflections of a position add to the same records.
+     */
+    public static class Builder {
+        private final int dim;
+        private final int plies;
+        //canonical key -> canonical move -> {sum of scores in boxes, count}
+        private final Map<Long, Map<Integer, long[]>> positions = new HashMap<>();
+
+        /**
+         * Creates a builder for a board of dimension dim.
+         *
+         * @param dim   number of dots on one side of the board
+         * @param plies number of moves from the start of a game that are recorded
+         * @throws IllegalArgumentException if dim is not a valid dimension, is larger than
+         *                                  {@link #MAX_DIM}, or plies is negative
+         */
+        /*@
+            requires Board.isValidDimension(dim) && dim <= MAX_DIM && plies >= 0;
+        */
+        public Builder(int dim, int plies) {
+            if (!Board.isValidDimension(dim)) {
+                throw new IllegalArgumentException("invalid board dimension " + dim);
+            }
+            if (dim > MAX_DIM) {
+                throw new IllegalArgumentException("the scores of a board of dimension " + dim +
+                                                           " do not fit an opening book");
+            }
+            if (plies < 0) {
+                throw new IllegalArgumentException("plies must not be negative");
+            }
+            this.dim = dim;
+            this.plies = plies;
+        }
+
+        /**
+         * Records a move of a position.
+         *
+         * @param game  position the move is played in
+         * @param move  the move
+         * @param score value of the move for the player making it, in boxes
+         * @throws IllegalArgumentException if game is not on the board of this builder or move
+         *                                  is not valid
+         */
+        //@ requires game.isValidMove(move);
+        public void add(Game game, int move, int score) {
+            Board board = game.getBoard();
+            if (board.getDimension() != dim) {
+                throw new IllegalArgumentException("game is not on a board of dimension " + dim);
+            }
+            if (!game.isValidMove(move)) {
+                throw new IllegalArgumentException("move is not valid");
+            }
+            int canonical = board.getCanonicalSymmetry().map(board, move);
+            long[] entry = positions.computeIfAbsent(game.getCanonicalZobristKey(),
+                                                     key -> new HashMap<>())
+                    .computeIfAbsent(canonical, key -> new long[2]);
+            entry[0] += score;
+            entry[1]++;
+        }
+
+        /**
+         * Plays games of a strategy against itself and records the moves of their first plies,
+         * each scored with the final margin of the player who made it.
+         *
+         * @param strategy     strategy that plays both sides
+         * @param games        number of games to play
+         * @param randomPlies  number of random moves at the start of every game, to vary the
+         *                     openings of deterministic strategies
+         * @param random       source of the random moves
+         */
+        /*@
+            requires strategy != null && games >= 0 && randomPlies >= 0 && random != null;
+        */
+        public void addSelfPlay(Strategy strategy, int games, int randomPlies, Random random) {
+            int[] moves = new int[plies];
+            String[] movers = new String[plies];
+            for (int i = 0; i < games; i++) {
+                Game game = new Game("player1", "player2", dim);
+                int ply = 0;
+                while (!game.gameOver()) {
+                    int move;
+                    if (ply < randomPlies) {
+                        int[] valid = game.getValidMoves();
+                        move = valid[random.nextInt(valid.length)];
+                    } else {
+                        move = strategy.determineMove(game);
+                    }
+                    if (ply < plies) {
+                        moves[ply] = move;
+                        movers[ply] = game.getTurn();
+                    }
+                    game.doMove(move);
+                    ply++;
+                }
+                int margin = game.getPlayerScore("player1") - game.getPlayerScore("player2");
+                //replay the recorded plies, the positions are needed for their keys
+                Game replay = new Game("player1", "player2", dim);
+                for (int j = 0; j < Math.min(ply, plies); j++) {
+                    add(replay, moves[j], movers[j].equals("player1") ? margin : -margin);
+                    replay.doMove(moves[j]);
+                }
+            }
+        }
+
+        /**
+         * Returns the number of records the book will have.
+         *
+         * @return the number of distinct (position, move) pairs
+         */
+        //@ pure;
+        public long size() {
+            long size = 0;
+            for (Map<Integer, long[]> moves : positions.values()) {
+                size += moves.size();
+            }
+            return size;
+        }
+
+        /**
+         * Writes the collected moves as an opening book, sorted by key and then by count, most
+         * played first. Scores are averaged over the count.
+         *
+         * @param path file to write, replaced if it exists
+         * @throws IOException if the file cannot be written
+         */
+        public void write(Path path) throws IOException {
+            List<long[]> records = new ArrayList<>();
+            for (Map.Entry<Long, Map<Integer, long[]>> position : positions.entrySet()) {
+                for (Map.Entry<Integer, long[]> move : position.getValue().entrySet()) {
+                    long[] entry = move.getValue();
+                    long score = Math.round((double) entry[0] * SCORE_SCALE / entry[1]);
+                    records.add(new long[]{position.getKey(), move.getKey(), score,
+                            Math.min(entry[1], Integer.MAX_VALUE)});
+                }
+            }
+            records.sort(Comparator.<long[]>comparingLong(record -> record[0])
+                                 .thenComparingLong(record -> -record[3]));
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(path)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(dim);
+                out.writeInt(0);
+                out.writeLong(records.size());
+                for (long[] record : records) {
+                    out.writeLong(record[0]);
+                    out.writeShort((int) record[1]);
+                    out.writeShort((int) record[2]);
+                    out.writeInt((int) record[3]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds an opening book from self-play of an {@link EndgameStrategy}.
+     *
+     * @param args the file to write, the number of games and the number of recorded plies
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println("Usage: OpeningBook <file> <games> <plies>");
+            return;
+        }
+        int games;
+        int plies;
+        try {
+            games = Integer.parseInt(args[1]);
+            plies = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            System.out.println("Games and plies must be numbers.");
+            return;
+        }
+        long start = System.nanoTime();
+        Builder builder = new Builder(Board.DIM, plies);
+        builder.addSelfPlay(new EndgameStrategy(), games, plies / 2, new Random());
+        builder.write(Path.of(args[0]));
+        System.out.println("Wrote " + builder.size() + " records from " + games + " games in " +
+                                   (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+}
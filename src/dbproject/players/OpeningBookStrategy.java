@@ -0,0 +1,65 @@
+package dbproject.players;
+
+import dbproject.game.Game;
+
+/**
+ * Strategy used by AI Player for Dots and Boxes game that plays from an {@link OpeningBook}.
+ * <p>
+ * As long as the position is in the book, it plays the book move without searching; once the
+ * game leaves the book, it asks the strategy it decorates, for example an
+ * {@link AlphaBetaStrategy}, which then spends its time on the positions that matter.
+ */
+public class OpeningBookStrategy implements Strategy {
+    private final OpeningBook book;
+    private final Strategy fallback;
+    private final int minCount;
+
+    /**
+     * Instantiates an OpeningBookStrategy that plays every move found in the book.
+     *
+     * @param book     opening book to play from
+     * @param fallback strategy for positions that are not in the book
+     */
+    /*@
+        requires book != null && fallback != null;
+    */
+    public OpeningBookStrategy(OpeningBook book, Strategy fallback) {
+        this(book, fallback, 1);
+    }
+
+    /**
+     * Instantiates an OpeningBookStrategy that only plays book moves backed by enough games.
+     *
+     * @param book     opening book to play from
+     * @param fallback strategy for positions that are not in the book
+     * @param minCount number of games or searches a book move needs to be played
+     */
+    /*@
+        requires book != null && fallback != null && minCount >= 1;
+    */
+    public OpeningBookStrategy(OpeningBook book, Strategy fallback, int minCount) {
+        this.book = book;
+        this.fallback = fallback;
+        this.minCount = minCount;
+    }
+
+    /**
+     * Returns next legal move, given the current state of the game.
+     *
+     * @param game to determine the next legal move from.
+     * @return next legal move, given the current state of the game.
+     */
+    @Override
+    public int determineMove(Game game) {
+        int move = book.getMove(game, minCount);
+        return move != -1 ? move : fallback.determineMove(game);
+    }
+
+    /**
+     * Closes the fallback strategy.
+     */
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
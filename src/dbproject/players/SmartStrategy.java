@@ -1,11 +1,14 @@
 package dbproject.players;
 
+import dbproject.game.Board;
 import dbproject.game.Game;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * smart strategy used by AI Player for Dots and Boxes game.
+ * <p>
+ * Takes a box whenever it can, preferring a line that completes two boxes, and otherwise
+ * draws a line that does not give the opponent a box, if there is one. Both are read from the
+ * box valences kept by the {@link Board}, so no moves have to be tried.
  */
 public class SmartStrategy implements Strategy {
     /**
@@ -16,70 +19,36 @@ public class SmartStrategy implements Strategy {
      */
     @Override
     public int determineMove(Game game) {
-        int winningMove = findWinningMove(game);
-
-        if (winningMove != -1) {
-            assert game.isValidMove(winningMove);
-            return winningMove;
-        }
-
-        int[] moves = game.getValidMoves();
-        if (moves.length == 0) {
-            return -1;
-        }
-
-        Set<Integer> allowedMoves = new HashSet<>();
-        for (int j : moves) {
-            allowedMoves.add(j);
+        Board board = game.getBoard();
+        int[] buffer = new int[board.getLineCount()];
+        if (board.getCaptureLines(buffer, 0) > 0) {
+            assert game.isValidMove(buffer[0]);
+            return buffer[0];
         }
 
-        for (int move : moves) {
-            Game copiedGame2 = game.deepCopy();
-            copiedGame2.doMove(move);
-            int opponentWinning = findWinningMove(copiedGame2);
-            if (opponentWinning != -1) {
-                allowedMoves.remove(move);
-            }
+        int count = board.getSafeLines(buffer, 0);
+        if (count == 0) {
+            //every move gives the opponent a box
+            count = game.getValidMoves(buffer);
         }
-
-        if (allowedMoves.isEmpty()) {
-            int[] movesArray = game.getValidMoves();
-            int random = (int) (Math.random() * movesArray.length);
-            assert game.isValidMove(movesArray[random]);
-            return movesArray[random];
-        }
-
-        int[] result = new int[allowedMoves.size()];
-        int i = 0;
-        for (int move : allowedMoves) {
-            result[i++] = move;
+        if (count == 0) {
+            return -1;
         }
-        int random = (int) (Math.random() * result.length);
-        assert game.isValidMove(result[random]);
-        return result[random];
+        int random = (int) (Math.random() * count);
+        assert game.isValidMove(buffer[random]);
+        return buffer[random];
     }
 
     /**
      * return a move that gives the current player 2 points, or if this does not exist, a move
      * that gives the current player 1 point, or -1 if there does not exist a move that gives
-     * the current player a point.
+     * the current player a point. game is not changed.
      *
      * @param game to get a winning move from
      * @return a winning move, or -1 if there does not exist a winning move
      */
     public int findWinningMove(Game game) {
-        for (int move : game.getValidMoves()) {
-            Game copiedGame = game.deepCopy();
-            String computerPlayer = copiedGame.getTurn();
-            int score = copiedGame.getPlayerScore(computerPlayer);
-            copiedGame.doMove(move);
-            int updatedScore = copiedGame.getPlayerScore(computerPlayer);
-            if (updatedScore == score + 2) {
-                return move;
-            } else if (updatedScore == score + 1) {
-                return move;
-            }
-        }
-        return -1;
+        int[] buffer = new int[game.getBoard().getLineCount()];
+        return game.getBoard().getCaptureLines(buffer, 0) > 0 ? buffer[0] : -1;
     }
 }
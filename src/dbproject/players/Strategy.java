@@ -4,8 +4,10 @@ import dbproject.game.Game;
 
 /**
  * strategy used by AI Player for Dots and Boxes game.
+ * <p>
+ * A strategy that searches on threads of its own releases them when it is closed.
  */
-public interface Strategy {
+public interface Strategy extends AutoCloseable {
     /**
      * Returns next legal move, given the current state of the game.
      * @param game to determine the next legal move from.
@@ -17,4 +19,12 @@ public interface Strategy {
         ensures game.isValidMove(\result);
      */
     int determineMove(Game game);
+
+    /**
+     * Releases the threads of this strategy, if it has any. The strategy cannot determine
+     * moves after it is closed.
+     */
+    @Override
+    default void close() {
+    }
 }
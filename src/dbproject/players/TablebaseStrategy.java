@@ -0,0 +1,81 @@
+package dbproject.players;
+
+import dbproject.game.Board;
+import dbproject.game.Game;
+import dbproject.game.Tablebase;
+
+/**
+ * Perfect-play strategy used by AI Player for Dots and Boxes game on small boards.
+ * <p>
+ * Every move is looked up in a {@link Tablebase}: the strategy draws the line with the highest
+ * exact value, the lowest such line if there are several. On boards the tablebase does not
+ * cover, it asks a fallback strategy.
+ */
+public class TablebaseStrategy implements Strategy {
+    private final Tablebase tablebase;
+    private final Strategy fallback;
+    private int[] moves = new int[0];
+
+    /**
+     * Instantiates a TablebaseStrategy that plays like an {@link EndgameStrategy} on boards
+     * the tablebase does not cover.
+     *
+     * @param tablebase solved positions to play from
+     */
+    /*@
+        requires tablebase != null;
+    */
+    public TablebaseStrategy(Tablebase tablebase) {
+        this(tablebase, new EndgameStrategy());
+    }
+
+    /**
+     * Instantiates a TablebaseStrategy with the strategy to use on other boards.
+     *
+     * @param tablebase solved positions to play from
+     * @param fallback  strategy for boards of another dimension
+     */
+    /*@
+        requires tablebase != null && fallback != null;
+    */
+    public TablebaseStrategy(Tablebase tablebase, Strategy fallback) {
+        this.tablebase = tablebase;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns next legal move, given the current state of the game.
+     *
+     * @param game to determine the next legal move from.
+     * @return next legal move, given the current state of the game.
+     */
+    @Override
+    public int determineMove(Game game) {
+        Board board = game.getBoard();
+        if (!tablebase.covers(board)) {
+            return fallback.determineMove(game);
+        }
+        if (moves.length < board.getLineCount()) {
+            moves = new int[board.getLineCount()];
+        }
+        int count = game.getValidMoves(moves);
+        int bestMove = moves[0];
+        int bestValue = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int value = tablebase.getMoveValue(board, moves[i]);
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Closes the fallback strategy.
+     */
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
@@ -0,0 +1,192 @@
+package dbproject.players;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size, open-addressed transposition table for the search strategies of a Dots and Boxes
+ * game.
+ * <p>
+ * Entries are kept in two parallel {@code long[]} arrays, one with the Zobrist key of the
+ * position and one with the packed depth, bound type, value and best move, so probing and
+ * storing never allocate. The key is stored xor-ed with the data, so a torn entry written by
+ * two threads at once is detected as a miss instead of returning data of another position.
+ */
+public class TranspositionTable {
+    /**
+     * Bound type of an entry whose value is exact.
+     */
+    public static final int EXACT = 0;
+    /**
+     * Bound type of an entry whose value is a lower bound (the search failed high).
+     */
+    public static final int LOWER_BOUND = 1;
+    /**
+     * Bound type of an entry whose value is an upper bound (the search failed low).
+     */
+    public static final int UPPER_BOUND = 2;
+    /**
+     * Returned by {@link #probe(long)} if the position is not in the table.
+     */
+    public static final long MISS = 0L;
+
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final long VALID = 1L << 63;
+
+    /**
+     * Decides whether a new entry may overwrite an entry of another position in the same slot.
+     */
+    public enum ReplacementPolicy {
+        /**
+         * Keep the deeper entry, unless the stored entry is from an earlier search.
+         */
+        DEPTH_PREFERRED,
+        /**
+         * Always overwrite the stored entry.
+         */
+        ALWAYS_REPLACE
+    }
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private final ReplacementPolicy policy;
+    private int generation;
+
+    /**
+     * Creates a transposition table that uses at most the given amount of memory.
+     *
+     * @param megabytes memory budget of the table in MB, at least 1
+     * @param policy    replacement policy for collisions
+     */
+    /*@
+        requires megabytes >= 1;
+    */
+    public TranspositionTable(int megabytes, ReplacementPolicy policy) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("memory budget must be at least 1 MB");
+        }
+        long entries = Long.highestOneBit(((long) megabytes << 20) / ENTRY_BYTES);
+        int size = (int) Math.min(entries, 1 << 30);
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the number of entries this table can hold.
+     *
+     * @return the capacity of this table
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Starts a new search. Entries of earlier searches may then be replaced by shallower
+     * entries under {@link ReplacementPolicy#DEPTH_PREFERRED}.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+    }
+
+    /**
+     * Looks up the position with the given key.
+     *
+     * @param key Zobrist key of the position
+     * @return the packed entry, to be read with {@link #depth(long)}, {@link #bound(long)},
+     * {@link #value(long)} and {@link #move(long)}, or {@link #MISS} if the position is not
+     * stored
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) != key || entry == MISS) {
+            return MISS;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the result of a search of the position with the given key.
+     *
+     * @param key   Zobrist key of the position
+     * @param depth remaining search depth of the result, 0 to 255
+     * @param bound {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     * @param value value of the position, within the range of a short
+     * @param move  best move found, or -1 if there is none
+     */
+    public void store(long key, int depth, int bound, int value, int move) {
+        int index = (int) key & mask;
+        long stored = data[index];
+        if (policy == ReplacementPolicy.DEPTH_PREFERRED && stored != MISS &&
+                (keys[index] ^ stored) != key && generation(stored) == generation &&
+                depth(stored) > depth) {
+            //keep the deeper entry of the current search
+            return;
+        }
+        long entry = VALID | (long) generation << 42 | (long) bound << 40 |
+                (long) Math.min(depth, 0xFF) << 32 | (long) (value & 0xFFFF) << 16 |
+                ((move + 1) & 0xFFFF);
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    /**
+     * Returns the remaining search depth of a packed entry.
+     *
+     * @param entry packed entry returned by {@link #probe(long)}
+     * @return the depth of the entry
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * Returns the bound type of a packed entry.
+     *
+     * @param entry packed entry returned by {@link #probe(long)}
+     * @return {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * Returns the value of a packed entry.
+     *
+     * @param entry packed entry returned by {@link #probe(long)}
+     * @return the value of the entry
+     */
+    public static int value(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    /**
+     * Returns the best move of a packed entry.
+     *
+     * @param entry packed entry returned by {@link #probe(long)}
+     * @return the best move, or -1 if the entry has none
+     */
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF) - 1;
+    }
+
+    /**
+     * Returns the search generation of a packed entry.
+     *
+     * @param entry packed entry
+     * @return the generation in which the entry was stored
+     */
+    private static int generation(long entry) {
+        return (int) (entry >>> 42) & 0xFF;
+    }
+}
@@ -0,0 +1,229 @@
+package dbproject.rating;
+
+/**
+ * A Glicko-2 rating: the estimated strength of a player, how uncertain that estimate is, and
+ * how erratic the results of the player are.
+ * <p>
+ * Ratings are immutable; {@link #update} returns the rating after a rating period. The service
+ * treats every game as a period of its own, as is usual for ladders where games are played
+ * continuously. The steps follow Glickman, "Example of the Glicko-2 system".
+ */
+public final class Rating {
+    /**
+     * Rating of a player that has not played yet.
+     */
+    public static final double DEFAULT_RATING = 1500;
+    /**
+     * Rating deviation of a player that has not played yet, which is also the largest deviation.
+     */
+    public static final double DEFAULT_DEVIATION = 350;
+    /**
+     * Volatility of a player that has not played yet.
+     */
+    public static final double DEFAULT_VOLATILITY = 0.06;
+    /**
+     * System constant that limits how fast the volatility changes.
+     */
+    public static final double TAU = 0.5;
+    /**
+     * A player that has not played yet.
+     */
+    public static final Rating INITIAL =
+            new Rating(DEFAULT_RATING, DEFAULT_DEVIATION, DEFAULT_VOLATILITY, 0);
+
+    private static final double SCALE = 173.7178;
+    private static final double EPSILON = 0.000001;
+
+    private final double rating;
+    private final double deviation;
+    private final double volatility;
+    private final int games;
+
+    /**
+     * Instantiates a rating.
+     *
+     * @param rating     the rating on the Glicko scale
+     * @param deviation  the rating deviation on the Glicko scale
+     * @param volatility the volatility
+     * @param games      the number of games the rating is based on
+     */
+    /*@
+        requires deviation > 0 && volatility > 0 && games >= 0;
+    */
+    public Rating(double rating, double deviation, double volatility, int games) {
+        if (deviation <= 0 || volatility <= 0 || games < 0) {
+            throw new IllegalArgumentException("invalid rating " + rating + ", " + deviation +
+                                                       ", " + volatility + ", " + games);
+        }
+        this.rating = rating;
+        this.deviation = deviation;
+        this.volatility = volatility;
+        this.games = games;
+    }
+
+    /**
+     * Returns the rating.
+     *
+     * @return the rating on the Glicko scale
+     */
+    //@ pure;
+    public double getRating() {
+        return rating;
+    }
+
+    /**
+     * Returns the rating deviation; about 95% of the time the strength of the player is within
+     * twice the deviation of the rating.
+     *
+     * @return the rating deviation on the Glicko scale
+     */
+    //@ pure;
+    public double getDeviation() {
+        return deviation;
+    }
+
+    /**
+     * Returns the volatility, the expected fluctuation of the strength of the player.
+     *
+     * @return the volatility
+     */
+    //@ pure;
+    public double getVolatility() {
+        return volatility;
+    }
+
+    /**
+     * Returns the number of games this rating is based on.
+     *
+     * @return the number of games
+     */
+    //@ pure;
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the rating after one game.
+     *
+     * @param opponent the rating of the opponent before the game
+     * @param score    1 for a win, 0.5 for a draw and 0 for a loss
+     * @return the new rating
+     */
+    //@ pure;
+    public Rating update(Rating opponent, double score) {
+        return update(new Rating[]{opponent}, new double[]{score});
+    }
+
+    /**
+     * Returns the rating after a rating period with the given games. A period without games
+     * only increases the deviation.
+     *
+     * @param opponents the ratings of the opponents before the period
+     * @param scores    for every opponent 1 for a win, 0.5 for a draw and 0 for a loss
+     * @return the new rating
+     */
+    /*@
+        requires opponents.length == scores.length;
+        pure;
+    */
+    public Rating update(Rating[] opponents, double[] scores) {
+        if (opponents.length != scores.length) {
+            throw new IllegalArgumentException("every opponent needs a score");
+        }
+        double mu = (rating - DEFAULT_RATING) / SCALE;
+        double phi = deviation / SCALE;
+        if (opponents.length == 0) {
+            double idle = Math.sqrt(phi * phi + volatility * volatility);
+            return new Rating(rating, Math.min(idle * SCALE, DEFAULT_DEVIATION), volatility,
+                              games);
+        }
+
+        //step 3 and 4: estimated variance and improvement from the results
+        double inverseVariance = 0;
+        double improvement = 0;
+        for (int i = 0; i < opponents.length; i++) {
+            if (scores[i] < 0 || scores[i] > 1) {
+                throw new IllegalArgumentException("a score is between 0 and 1");
+            }
+            double muJ = (opponents[i].rating - DEFAULT_RATING) / SCALE;
+            double g = g(opponents[i].deviation / SCALE);
+            double expected = 1 / (1 + Math.exp(-g * (mu - muJ)));
+            inverseVariance += g * g * expected * (1 - expected);
+            improvement += g * (scores[i] - expected);
+        }
+        double v = 1 / inverseVariance;
+        double delta = v * improvement;
+
+        //step 5: new volatility, by the Illinois algorithm
+        double sigma = newVolatility(phi, v, delta);
+
+        //step 6 to 8: new deviation and rating
+        double phiStar = Math.sqrt(phi * phi + sigma * sigma);
+        double newPhi = 1 / Math.sqrt(1 / (phiStar * phiStar) + 1 / v);
+        double newMu = mu + newPhi * newPhi * improvement;
+        return new Rating(newMu * SCALE + DEFAULT_RATING,
+                          Math.min(newPhi * SCALE, DEFAULT_DEVIATION), sigma,
+                          games + opponents.length);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.0f (+-%.0f)", rating, 2 * deviation);
+    }
+
+    /**
+     * Reduces the impact of a game by the uncertainty of the rating of the opponent.
+     *
+     * @param phi deviation of the opponent on the Glicko-2 scale
+     * @return the weight of the game
+     */
+    private static double g(double phi) {
+        return 1 / Math.sqrt(1 + 3 * phi * phi / (Math.PI * Math.PI));
+    }
+
+    /**
+     * Finds the new volatility, the root of the function f of step 5.
+     *
+     * @param phi   deviation on the Glicko-2 scale
+     * @param v     estimated variance of the rating from the results
+     * @param delta estimated improvement of the rating
+     * @return the new volatility
+     */
+    private double newVolatility(double phi, double v, double delta) {
+        double a = Math.log(volatility * volatility);
+        double phi2 = phi * phi;
+        double delta2 = delta * delta;
+        double low = a;
+        double high;
+        if (delta2 > phi2 + v) {
+            high = Math.log(delta2 - phi2 - v);
+        } else {
+            int k = 1;
+            while (f(a - k * TAU, a, phi2, v, delta2) < 0) {
+                k++;
+            }
+            high = a - k * TAU;
+        }
+        double fLow = f(low, a, phi2, v, delta2);
+        double fHigh = f(high, a, phi2, v, delta2);
+        while (Math.abs(high - low) > EPSILON) {
+            double c = low + (low - high) * fLow / (fHigh - fLow);
+            double fC = f(c, a, phi2, v, delta2);
+            if (fC * fHigh <= 0) {
+                low = high;
+                fLow = fHigh;
+            } else {
+                fLow /= 2;
+            }
+            high = c;
+            fHigh = fC;
+        }
+        return Math.exp(low / 2);
+    }
+
+    private static double f(double x, double a, double phi2, double v, double delta2) {
+        double ex = Math.exp(x);
+        double d = phi2 + v + ex;
+        return ex * (delta2 - phi2 - v - ex) / (2 * d * d) - (x - a) / (TAU * TAU);
+    }
+}
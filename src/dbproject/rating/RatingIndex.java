@@ -0,0 +1,114 @@
+package dbproject.rating;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Players ordered by rating, to find the player with the rating nearest to a given rating in
+ * O(log n) instead of scanning all players.
+ * <p>
+ * The players are kept in a concurrent skip list keyed by rating, so lookups and updates of
+ * different players do not block each other. Players with the same rating are kept apart by
+ * the order in which they were added.
+ *
+ * @param <P> the type of the players
+ */
+public final class RatingIndex<P> {
+    private final ConcurrentSkipListMap<Key, P> byRating = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<P, Key> keys = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Adds a player, or moves it to a new rating.
+     *
+     * @param player the player
+     * @param rating the rating of the player
+     */
+    //@ requires player != null;
+    public void put(P player, double rating) {
+        keys.compute(player, (p, old) -> {
+            if (old != null) {
+                byRating.remove(old);
+            }
+            Key key = new Key(rating, sequence.incrementAndGet());
+            byRating.put(key, p);
+            return key;
+        });
+    }
+
+    /**
+     * Removes a player.
+     *
+     * @param player the player
+     * @return true if the player was in the index
+     */
+    public boolean remove(P player) {
+        boolean[] removed = new boolean[1];
+        keys.computeIfPresent(player, (p, old) -> {
+            byRating.remove(old);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Returns the player with the rating nearest to the given rating.
+     *
+     * @param rating  the rating to look for
+     * @param exclude a player that is not returned, for example the player that looks for an
+     *                opponent, or null
+     * @return the nearest player other than exclude, or null if there is none
+     */
+    //@ pure;
+    public P nearest(double rating, P exclude) {
+        Map.Entry<Key, P> below = byRating.floorEntry(new Key(rating, Long.MAX_VALUE));
+        while (below != null && below.getValue().equals(exclude)) {
+            below = byRating.lowerEntry(below.getKey());
+        }
+        Map.Entry<Key, P> above = byRating.ceilingEntry(new Key(rating, Long.MIN_VALUE));
+        while (above != null && above.getValue().equals(exclude)) {
+            above = byRating.higherEntry(above.getKey());
+        }
+        if (below == null) {
+            return above == null ? null : above.getValue();
+        }
+        if (above == null) {
+            return below.getValue();
+        }
+        return rating - below.getKey().rating <= above.getKey().rating - rating
+                ? below.getValue() : above.getValue();
+    }
+
+    /**
+     * Returns the number of players in the index.
+     *
+     * @return the number of players
+     */
+    //@ pure;
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Position of a player in the index: its rating, and the order of adding for equal ratings.
+     */
+    private static final class Key implements Comparable<Key> {
+        private final double rating;
+        private final long sequence;
+
+        private Key(double rating, long sequence) {
+            this.rating = rating;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byRating = Double.compare(rating, other.rating);
+            return byRating != 0 ? byRating : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package dbproject.rating;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the Glicko-2 ratings of the players of a server in memory, and updates them after
+ * every game.
+ * <p>
+ * Ratings are read without locking. The two ratings of a game are updated together under a
+ * lock, so every update starts from the ratings of both players before the game. An index by
+ * rating finds the player with the nearest rating in O(log n).
+ * <p>
+ * The ratings can be written to a snapshot file periodically, and read back when the server
+ * starts. A snapshot is written to a temporary file first and then moved over the old one, so
+ * a crash while writing leaves the previous snapshot intact. Every line of the file holds the
+ * rating, deviation, volatility and number of games of a player, and its name, separated by
+ * tabs.
+ */
+public class RatingService {
+    private static final String SEPARATOR = "\t";
+
+    private final ConcurrentMap<String, Rating> ratings = new ConcurrentHashMap<>();
+    private final RatingIndex<String> index = new RatingIndex<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private ScheduledExecutorService snapshots;
+
+    /**
+     * Returns the rating of a player.
+     *
+     * @param player the name of the player
+     * @return the rating, or the initial rating if the player has not played
+     */
+    //@ pure;
+    public Rating getRating(String player) {
+        return ratings.getOrDefault(player, Rating.INITIAL);
+    }
+
+    /**
+     * Updates the ratings of both players after a game.
+     *
+     * @param player1 the name of the first player
+     * @param player2 the name of the second player
+     * @param score1  the score of the first player: 1 for a win, 0.5 for a draw and 0 for a loss
+     */
+    /*@
+        requires player1 != null && player2 != null && !player1.equals(player2);
+        requires 0 <= score1 && score1 <= 1;
+    */
+    public void recordGame(String player1, String player2, double score1) {
+        if (player1.equals(player2)) {
+            throw new IllegalArgumentException("a player cannot play itself");
+        }
+        lock.lock();
+        try {
+            Rating rating1 = getRating(player1);
+            Rating rating2 = getRating(player2);
+            put(player1, rating1.update(rating2, score1));
+            put(player2, rating2.update(rating1, 1 - score1));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the rated player with the rating nearest to that of a player.
+     *
+     * @param player the name of the player
+     * @return the name of the other player with the nearest rating, or null if no other player
+     * has a rating
+     */
+    //@ pure;
+    public String findNearest(String player) {
+        return index.nearest(getRating(player).getRating(), player);
+    }
+
+    /**
+     * Returns the number of players with a rating.
+     *
+     * @return the number of rated players
+     */
+    //@ pure;
+    public int size() {
+        return ratings.size();
+    }
+
+    /**
+     * Writes the ratings to a file, replacing the previous snapshot in one step. The ratings
+     * are copied under the lock, so the snapshot never holds one player of a game after the
+     * game and its opponent before it.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Map<String, Rating> copy;
+        lock.lock();
+        try {
+            copy = new HashMap<>(ratings);
+        } finally {
+            lock.unlock();
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Rating> entry : copy.entrySet()) {
+                Rating rating = entry.getValue();
+                out.write(rating.getRating() + SEPARATOR + rating.getDeviation() + SEPARATOR +
+                                  rating.getVolatility() + SEPARATOR + rating.getGames() +
+                                  SEPARATOR + entry.getKey());
+                out.newLine();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the ratings from a snapshot file. Ratings of players that are not in the file are
+     * kept.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be read, or is not a snapshot
+     */
+    public void load(Path file) throws IOException {
+        lock.lock();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, 5);
+                if (fields.length < 5) {
+                    throw new IOException("not a rating snapshot: " + line);
+                }
+                try {
+                    put(fields[4], new Rating(Double.parseDouble(fields[0]),
+                                              Double.parseDouble(fields[1]),
+                                              Double.parseDouble(fields[2]),
+                                              Integer.parseInt(fields[3])));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("not a rating snapshot: " + line, e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot periodically, on a thread of the service.
+     *
+     * @param file         the snapshot file
+     * @param periodMillis time between two snapshots in milliseconds
+     */
+    //@ requires periodMillis > 0;
+    public void startSnapshots(Path file, long periodMillis) {
+        ScheduledExecutorService started = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "rating-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lock.lock();
+        try {
+            if (snapshots != null) {
+                started.shutdown();
+                throw new IllegalStateException("snapshots are already written");
+            }
+            snapshots = started;
+        } finally {
+            lock.unlock();
+        }
+        started.scheduleWithFixedDelay(() -> {
+            try {
+                save(file);
+            } catch (IOException e) {
+                System.out.println("cannot write ratings to " + file + ": " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops writing snapshots.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (snapshots != null) {
+                snapshots.shutdownNow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(String player, Rating rating) {
+        ratings.put(player, rating);
+        index.put(player, rating.getRating());
+    }
+}
@@ -0,0 +1,87 @@
+package dbproject.server;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The clients connected to a server, with an index from username to client.
+ * <p>
+ * No operation takes a server-wide lock: the clients and the index are concurrent maps, and a
+ * username is reserved with a single atomic insert, so two clients that log in with the same
+ * name at the same time cannot both get it.
+ */
+final class ClientRegistry {
+    private final Set<ServerClientHandler> clients = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, ServerClientHandler> usernames =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Adds a connected client, which has no username yet.
+     *
+     * @param client the client to add
+     */
+    void add(ServerClientHandler client) {
+        clients.add(client);
+    }
+
+    /**
+     * Removes a client and releases its username.
+     *
+     * @param client the client to remove
+     */
+    void remove(ServerClientHandler client) {
+        clients.remove(client);
+        String username = client.getUsername();
+        if (username != null) {
+            usernames.remove(username, client);
+        }
+    }
+
+    /**
+     * Reserves a username for a client. When the client had another username, that name is
+     * released.
+     *
+     * @param username the username to reserve
+     * @param client   the client that wants the username
+     * @return true if the username is now reserved for the client, false if another client has it
+     */
+    boolean reserve(String username, ServerClientHandler client) {
+        if (username == null) {
+            return false;
+        }
+        ServerClientHandler owner = usernames.putIfAbsent(username, client);
+        if (owner != null && owner != client) {
+            return false;
+        }
+        String previous = client.getUsername();
+        if (previous != null && !previous.equals(username)) {
+            usernames.remove(previous, client);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a username is free for a client.
+     *
+     * @param username the username to check
+     * @param client   the client that wants the username
+     * @return true if no other client has the username
+     */
+    //@ pure;
+    boolean isAvailable(String username, ServerClientHandler client) {
+        ServerClientHandler owner = usernames.get(username);
+        return owner == null || owner == client;
+    }
+
+    /**
+     * Returns the usernames of all connected clients, null for a client that is not logged in.
+     * Clients that connect or disconnect meanwhile may or may not be included.
+     *
+     * @return the usernames of the connected clients
+     */
+    //@ pure;
+    String[] getUsernames() {
+        return clients.stream().map(ServerClientHandler::getUsername).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,136 @@
+package dbproject.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A thread that serves many client connections with one {@link Selector}: it reads the lines
+ * of every connection that has input and writes the queued output of every connection that
+ * can take it.
+ * <p>
+ * Other threads hand new connections and pending output to the loop through queues, and wake
+ * the selector up; only the loop thread touches the selection keys.
+ */
+final class EventLoop implements Runnable {
+    /**
+     * Marks the threads of all event loops, which must never wait for another connection.
+     */
+    private static final ThreadLocal<Boolean> LOOP_THREAD = ThreadLocal.withInitial(() -> false);
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<SelectorTransport> registrations = new ConcurrentLinkedQueue<>();
+    private final Queue<SelectorTransport> flushes = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts an event loop.
+     *
+     * @param name name of the loop thread
+     * @throws IOException if the selector cannot be opened
+     */
+    EventLoop(String name) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    /**
+     * Serves a connection on this loop from now on.
+     *
+     * @param transport connection to serve, in non-blocking mode
+     */
+    void register(SelectorTransport transport) {
+        registrations.add(transport);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the loop to write the queued output of a connection.
+     *
+     * @param transport connection with queued output
+     */
+    void requestFlush(SelectorTransport transport) {
+        flushes.add(transport);
+        if (!inLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Returns whether the calling thread is the thread of this loop.
+     *
+     * @return true if called by the loop itself
+     */
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Returns whether the calling thread is the thread of any event loop, for example a loop
+     * that runs game code which sends to a connection of another loop.
+     *
+     * @return true if called by an event loop
+     */
+    static boolean onLoopThread() {
+        return LOOP_THREAD.get();
+    }
+
+    /**
+     * Stops the loop and closes the connections it serves.
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        LOOP_THREAD.set(true);
+        try {
+            while (running) {
+                selector.select();
+                SelectorTransport transport;
+                while ((transport = registrations.poll()) != null) {
+                    transport.register(selector);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    transport = (SelectorTransport) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        transport.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        transport.flush();
+                    }
+                }
+                //output queued while handling the keys is written before selecting again
+                while ((transport = flushes.poll()) != null) {
+                    transport.flush();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.out.println("event loop stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                ((SelectorTransport) key.attachment()).close();
+            }
+            SelectorTransport transport;
+            while ((transport = registrations.poll()) != null) {
+                transport.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // the loop is stopping anyway
+            }
+        }
+    }
+}
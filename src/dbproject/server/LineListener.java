@@ -0,0 +1,18 @@
+package dbproject.server;
+
+/**
+ * Receives the messages of a {@link LineTransport}.
+ */
+public interface LineListener {
+    /**
+     * Handles a message received from the connection.
+     *
+     * @param message the message, without the line separator
+     */
+    void handleMessage(String message);
+
+    /**
+     * Handles a disconnect from the connection, i.e., when the connection is closed.
+     */
+    void handleDisconnect();
+}
@@ -0,0 +1,30 @@
+package dbproject.server;
+
+/**
+ * A connection to a client that carries messages of a single line each, independent of how
+ * the lines are read and written.
+ */
+public interface LineTransport {
+    /**
+     * Start receiving messages and pass them to the listener. This method may only be called
+     * once.
+     *
+     * @param listener receives the messages and the disconnect of this transport
+     */
+    //@ requires listener != null;
+    void start(LineListener listener);
+
+    /**
+     * Send a message as a single line. The message should not contain any newlines.
+     *
+     * @param message the message to send
+     * @return true if the message was sent or queued for sending, false if the connection was
+     * closed or the message was dropped because the client does not read
+     */
+    boolean sendMessage(String message);
+
+    /**
+     * Close the connection. The listener is told about the disconnect once.
+     */
+    void close();
+}
@@ -0,0 +1,247 @@
+package dbproject.server;
+
+import dbproject.networking.OutboundQueue;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking transport of a client connection, served by an {@link EventLoop}.
+ * <p>
+ * Input is split into lines as it arrives, and every complete line is passed to the listener
+ * on the loop thread. Output is queued by any thread and written by the loop as fast as the
+ * client takes it, so a slow client never blocks the thread that sends to it. Everything that is
+ * queued goes out in one gathering write. The queue is bounded, and a full queue is handled by the
+ * {@link OutboundQueue.Backpressure} of the transport. BLOCK only makes threads outside the
+ * event loops wait: the loop thread of the connection first writes what the client takes and
+ * then disconnects, and the thread of another loop disconnects at once, since a waiting loop
+ * would stall all of its own connections.
+ */
+final class SelectorTransport implements LineTransport {
+    /**
+     * Longest line a client may send; a longer line closes the connection.
+     */
+    static final int MAX_LINE_LENGTH = 1 << 16;
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_GATHER = 64;
+    private static final long BLOCK_POLL_MILLIS = 100;
+
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final Queue<ByteBuffer> output = new ConcurrentLinkedQueue<>();
+    /**
+     * one permit per message that may still be queued.
+     */
+    private final Semaphore room;
+    private final OutboundQueue.Backpressure backpressure;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile LineListener listener;
+
+    //only used by the loop thread
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final ByteBuffer[] batch = new ByteBuffer[MAX_GATHER];
+    private byte[] line = new byte[128];
+    private int lineLength;
+    private SelectionKey key;
+
+    /**
+     * Creates a transport for an accepted channel. Nothing is read before {@link #start}.
+     *
+     * @param channel      the accepted channel
+     * @param loop         the event loop that serves the channel
+     * @param capacity     the number of messages that may wait to be written, at least 1
+     * @param backpressure what to do with a message when that many are waiting
+     * @throws IOException if the channel cannot be put in non-blocking mode
+     */
+    SelectorTransport(SocketChannel channel, EventLoop loop, int capacity,
+                      OutboundQueue.Backpressure backpressure) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.channel = channel;
+        this.loop = loop;
+        this.room = new Semaphore(capacity);
+        this.backpressure = backpressure;
+        channel.configureBlocking(false);
+    }
+
+    @Override
+    public void start(LineListener listener) {
+        if (this.listener != null) {
+            throw new IllegalStateException("Cannot start a SelectorTransport twice");
+        }
+        this.listener = listener;
+        loop.register(this);
+    }
+
+    @Override
+    public boolean sendMessage(String message) {
+        if (closed.get() || !reserveRoom()) {
+            return false;
+        }
+        output.add(ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8)));
+        if (flushRequested.compareAndSet(false, true)) {
+            loop.requestFlush(this);
+        }
+        return true;
+    }
+
+    /**
+     * Takes a place in the output queue, applying the backpressure when it is full.
+     *
+     * @return true if the message may be queued, false if it is dropped or the connection is
+     * closed
+     */
+    private boolean reserveRoom() {
+        if (room.tryAcquire()) {
+            return true;
+        }
+        switch (backpressure) {
+            case DROP -> {
+                return false;
+            }
+            case DISCONNECT -> {
+                close();
+                return false;
+            }
+            default -> {
+                if (loop.inLoop()) {
+                    flush();
+                    if (room.tryAcquire()) {
+                        return true;
+                    }
+                    close();
+                    return false;
+                }
+                if (EventLoop.onLoopThread()) {
+                    //waiting would stall every connection of the sending loop behind one slow
+                    //client, so a loop sending to another loop disconnects instead
+                    close();
+                    return false;
+                }
+                try {
+                    while (!room.tryAcquire(BLOCK_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (closed.get()) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // do nothing, the connection is already closed
+        }
+        LineListener current = listener;
+        if (current != null) {
+            current.handleDisconnect();
+        }
+    }
+
+    /**
+     * Registers the channel with the selector of the loop, and writes what was queued before.
+     *
+     * @param selector selector of the loop
+     */
+    void register(Selector selector) {
+        try {
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+            flush();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Reads what the client sent, and passes every completed line to the listener.
+     */
+    void read() {
+        try {
+            int count = channel.read(readBuffer);
+            if (count == -1) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining() && !closed.get()) {
+                byte next = readBuffer.get();
+                if (next == '\n') {
+                    int length = lineLength > 0 && line[lineLength - 1] == '\r'
+                            ? lineLength - 1 : lineLength;
+                    lineLength = 0;
+                    listener.handleMessage(new String(line, 0, length, StandardCharsets.UTF_8));
+                } else if (lineLength == MAX_LINE_LENGTH) {
+                    close();
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, Math.min(2 * line.length, MAX_LINE_LENGTH));
+                    }
+                    line[lineLength++] = next;
+                }
+            }
+            readBuffer.clear();
+        } catch (IOException | RuntimeException e) {
+            //like a reading thread that dies, a failing message closes only this connection
+            close();
+        }
+    }
+
+    /**
+     * Writes queued output until it is all written or the client takes no more, in which case
+     * the loop is asked to call again when the channel is writable. Up to {@value #MAX_GATHER}
+     * queued messages go out in a single write.
+     */
+    void flush() {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        flushRequested.set(false);
+        try {
+            while (!output.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer buffer : output) {
+                    batch[count++] = buffer;
+                    if (count == batch.length) {
+                        break;
+                    }
+                }
+                channel.write(batch, 0, count);
+                for (int i = 0; i < count && !batch[i].hasRemaining(); i++) {
+                    output.poll();
+                    room.release();
+                }
+                if (batch[count - 1].hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException | CancelledKeyException e) {
+            //the key is cancelled when another thread closed the connection
+            close();
+        }
+    }
+}
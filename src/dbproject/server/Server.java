@@ -1,27 +1,82 @@
 package dbproject.server;
 
+import dbproject.game.Board;
+import dbproject.matchmaking.Match;
+import dbproject.matchmaking.Matchmaker;
+import dbproject.matchmaking.PairingPolicy;
+import dbproject.matchmaking.Ticket;
+import dbproject.networking.OutboundQueue;
+import dbproject.networking.ThreadMode;
+import dbproject.rating.Rating;
+import dbproject.rating.RatingService;
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
- * handles incoming connections from clients and contains a queue for matching clients and
- * starting a game. Creates a ServerGameManager when two clients are in the queue.
+ * handles incoming connections from clients and hands the clients that want a game to a
+ * {@link Matchmaker}, with their rating from the {@link RatingService} of the server. Creates a
+ * ServerGameManager for every match the matchmaker makes, which updates the ratings when the
+ * game ends.
+ * The connected clients and their usernames are kept in a concurrent registry, so logins and
+ * user lists never wait for the queue.
  */
 public class Server extends SocketServer {
-    private final Set<ServerClientHandler> serverClientHandlers;
-    private final List<ServerClientHandler> queue;
+    /**
+     * time between two rounds of matchmaking, in milliseconds.
+     */
+    public static final long MATCHMAKING_TICK = 100;
+    /**
+     * file the ratings are kept in by {@link #main}.
+     */
+    public static final String RATINGS_FILE = "ratings.txt";
+    /**
+     * time between two snapshots of the ratings by {@link #main}, in milliseconds.
+     */
+    public static final long SNAPSHOT_PERIOD = 60_000;
+    private final ClientRegistry clients;
+    private final Matchmaker<ServerClientHandler> matchmaker;
+    private final RatingService ratings;
     private static final String DESCRIPTION = "Server Minor-2";
 
     /**
-     * instantiate a server with a port number.
+     * instantiate a server with a port number, that pairs the clients that asked for the same
+     * board with the opponent of the nearest rating.
      * @param port number of the server to listen to
      * @throws IOException if an I/O error occurs when opening the socket
      */
     public Server(int port) throws IOException {
+        this(port, ratedPairing());
+    }
+
+    /**
+     * instantiate a server with a port number and a policy for pairing the clients that want
+     * a game, that keeps new ratings.
+     * @param port   number of the server to listen to
+     * @param policy pairs the waiting clients in every round of matchmaking
+     * @throws IOException if an I/O error occurs when opening the socket
+     */
+    public Server(int port, PairingPolicy<ServerClientHandler> policy) throws IOException {
+        this(port, policy, new RatingService());
+    }
+
+    /**
+     * instantiate a server with a port number, a policy for pairing the clients that want a
+     * game and the ratings of the players.
+     * @param port    number of the server to listen to
+     * @param policy  pairs the waiting clients in every round of matchmaking
+     * @param ratings the ratings of the players, updated after every game
+     * @throws IOException if an I/O error occurs when opening the socket
+     */
+    public Server(int port, PairingPolicy<ServerClientHandler> policy, RatingService ratings)
+            throws IOException {
         super(port);
-        serverClientHandlers = new HashSet<>();
-        queue = new ArrayList<>();
+        this.ratings = ratings;
+        clients = new ClientRegistry();
+        matchmaker = new Matchmaker<>(policy, this::startGame);
+        matchmaker.start(MATCHMAKING_TICK);
     }
 
     /**
@@ -38,25 +93,43 @@ public class Server extends SocketServer {
      *
      * @param serverClientHandler to add to the server
      */
-    public synchronized void addClient(ServerClientHandler serverClientHandler) {
-        serverClientHandlers.add(serverClientHandler);
+    public void addClient(ServerClientHandler serverClientHandler) {
+        clients.add(serverClientHandler);
         System.out.println("client is connected");
     }
 
     /**
-     * remove a ServerClientHandler from the server.
+     * remove a ServerClientHandler from the server, which releases its username.
      *
      * @param serverClientHandler to remove from the server
      */
-    public synchronized void removeClient(ServerClientHandler serverClientHandler) {
-        serverClientHandlers.remove(serverClientHandler);
+    public void removeClient(ServerClientHandler serverClientHandler) {
+        clients.remove(serverClientHandler);
         System.out.println(serverClientHandler.getUsername() + " is disconnected");
-        if (queue.contains(serverClientHandler)) {
-            queue.remove(serverClientHandler);
+        if (matchmaker.cancel(serverClientHandler)) {
             System.out.println(serverClientHandler.getUsername() + " is removed from the queue");
         }
     }
 
+    /**
+     * returns the matchmaker of this server, for example to read its queue depth and time to
+     * match.
+     *
+     * @return the matchmaker
+     */
+    public Matchmaker<ServerClientHandler> getMatchmaker() {
+        return matchmaker;
+    }
+
+    /**
+     * returns the ratings of the players of this server.
+     *
+     * @return the rating service
+     */
+    public RatingService getRatings() {
+        return ratings;
+    }
+
     /**
      * Accepts connections and starts a new thread for each connection.
      * This method will block until the server socket is closed, for example by invoking
@@ -69,6 +142,64 @@ public class Server extends SocketServer {
         super.acceptConnections();
     }
 
+    /**
+     * Accepts connections and starts a new thread of the given kind for each connection.
+     * Virtual threads make an idle connection cost little more than its socket.
+     * This method will block until the server socket is closed.
+     *
+     * @param mode the kind of thread that reads each connection
+     * @throws IOException if an I/O error occurs when waiting for a connection
+     */
+    @Override
+    public void acceptConnections(ThreadMode mode) throws IOException {
+        super.acceptConnections(mode);
+    }
+
+    /**
+     * Accepts connections and serves them with a fixed number of event loop threads instead of
+     * a thread per connection.
+     * This method will block until the server socket is closed.
+     *
+     * @param eventLoops the number of event loop threads, at least 1
+     * @throws IOException if an I/O error occurs when waiting for a connection
+     */
+    @Override
+    public void acceptConnections(int eventLoops) throws IOException {
+        super.acceptConnections(eventLoops);
+    }
+
+    /**
+     * Sets how many messages may wait to be written to a client, and what happens to the next
+     * message when that many are waiting. Applies to connections accepted from now on.
+     *
+     * @param capacity     the number of messages that may wait, at least 1
+     * @param backpressure drop the message, disconnect the client or let the sender wait
+     */
+    @Override
+    public void setOutboundLimit(int capacity, OutboundQueue.Backpressure backpressure) {
+        super.setOutboundLimit(capacity, backpressure);
+    }
+
+    /**
+     * Returns the port on which this server is listening for connections.
+     *
+     * @return the port on which this server is listening for connections
+     */
+    @Override
+    public int getPort() {
+        return super.getPort();
+    }
+
+    /**
+     * Closes the server socket, so the server stops accepting new connections, and stops
+     * matchmaking.
+     */
+    @Override
+    public void close() {
+        super.close();
+        matchmaker.close();
+    }
+
     /**
      * Creates a new connection handler for the given socket.
      *
@@ -77,22 +208,47 @@ public class Server extends SocketServer {
     @Override
     protected void handleConnection(Socket socket) {
         try {
-            new ServerClientHandler(socket, this);
+            new ServerClientHandler(new SocketTransport(socket, getThreadMode(),
+                                                        getOutboundCapacity(),
+                                                        getBackpressure()), this);
         } catch (IOException e) {
             System.out.println("not able to connect");
         }
     }
 
+    /**
+     * Creates a new connection handler for a connection that is served by an event loop.
+     *
+     * @param transport the transport of the connection
+     */
+    @Override
+    protected void handleConnection(LineTransport transport) {
+        new ServerClientHandler(transport, this);
+    }
+
     /**
      * manages the queue of serverClientHandlers,
-     * when one serverClientHandler wants to enter the queue.
+     * when one serverClientHandler wants to enter the queue for a game on the default board.
      *
      * @param serverClientHandler to wants to enter the queue
      */
-    public synchronized void handleQueueEntry(ServerClientHandler serverClientHandler) {
-        if (queue.contains(serverClientHandler)) {
+    public void handleQueueEntry(ServerClientHandler serverClientHandler) {
+        handleQueueEntry(serverClientHandler, Board.DIM);
+    }
+
+    /**
+     * manages the queue of serverClientHandlers,
+     * when one serverClientHandler wants to enter the queue. Only clients that asked for the
+     * same board dimension are matched with each other, unless the pairing policy of the
+     * server says otherwise. The client is paired in the next round of matchmaking.
+     *
+     * @param serverClientHandler to wants to enter the queue
+     * @param dimension           dimension of the board the client wants to play on
+     */
+    public void handleQueueEntry(ServerClientHandler serverClientHandler,
+                                 int dimension) {
+        if (matchmaker.cancel(serverClientHandler)) {
             //client was already in the queue, is now removed from the queue
-            queue.remove(serverClientHandler);
             System.out.println(
                     serverClientHandler.getUsername() + " was already in queue, now removed");
             return;
@@ -101,17 +257,58 @@ public class Server extends SocketServer {
             //client is already playing a game
             return;
         }
-        queue.add(serverClientHandler);
+        String username = serverClientHandler.getUsername();
+        double rating = username == null ? Rating.DEFAULT_RATING :
+                ratings.getRating(username).getRating();
+        matchmaker.enqueue(serverClientHandler, dimension, rating);
         System.out.println(serverClientHandler.getUsername() + " is put in queue");
-        if (queue.size() >= 2) {
-            //start a new game with two waiting clients
-            ServerClientHandler player1 = queue.get(0);
-            ServerClientHandler player2 = queue.get(1);
-            new ServerGameManager(player1, player2);
-            queue.remove(player1);
-            queue.remove(player2);
-            System.out.println("A new game has started between " + player1.getUsername() + " and " +
-                                       player2.getUsername());
+    }
+
+    /**
+     * returns the pairing policy of a server that is not given one: clients that asked for the
+     * same board play the opponent of the nearest rating, within 100 points plus 50 points for
+     * every second they waited.
+     *
+     * @return the default pairing policy
+     */
+    private static PairingPolicy<ServerClientHandler> ratedPairing() {
+        return PairingPolicy.bySize(PairingPolicy.nearestRating(100, 50));
+    }
+
+    /**
+     * starts the game of a match made by the matchmaker. A client that disconnected after it
+     * was matched cancels the match without a rated result, and its opponent goes back in the
+     * queue. The game manager checks the connection of each client and gives it the game in
+     * one step, so a disconnect is either seen by the game or cancels it.
+     *
+     * @param match the clients to play and the board to play on
+     */
+    private void startGame(Match<ServerClientHandler> match) {
+        ServerClientHandler player1 = match.getFirst().getPlayer();
+        ServerClientHandler player2 = match.getSecond().getPlayer();
+        if (!new ServerGameManager(player1, player2, match.getDimension(), ratings)
+                .isStarted()) {
+            requeue(match.getFirst());
+            requeue(match.getSecond());
+            return;
+        }
+        System.out.println("A new game has started between " + player1.getUsername() + " and " +
+                                   player2.getUsername());
+    }
+
+    /**
+     * puts a matched client back in the queue, on the board and with the rating it was matched
+     * with, if it is still connected.
+     *
+     * @param ticket the ticket the client was matched with
+     */
+    private void requeue(Ticket<ServerClientHandler> ticket) {
+        ServerClientHandler serverClientHandler = ticket.getPlayer();
+        if (serverClientHandler.isConnected() &&
+                matchmaker.enqueue(serverClientHandler, ticket.getDimension(),
+                                   ticket.getRating())) {
+            System.out.println(serverClientHandler.getUsername() +
+                                       " is put back in queue, its opponent disconnected");
         }
     }
 
@@ -125,15 +322,23 @@ public class Server extends SocketServer {
      * @return true if there is not a client connected to the server with username,
      * or false if there already is a client connected to the server with this username
      */
-    public synchronized boolean checkUserName(String username,
-                                              ServerClientHandler serverClientHandler) {
-        for (ServerClientHandler handler : serverClientHandlers) {
-            if (!handler.equals(serverClientHandler) && handler.getUsername() != null &&
-                    handler.getUsername().equals(username)) {
-                return false;
-            }
-        }
-        return true;
+    public boolean checkUserName(String username,
+                                 ServerClientHandler serverClientHandler) {
+        return clients.isAvailable(username, serverClientHandler);
+    }
+
+    /**
+     * reserves a username for a client, if no other client has it. Of several clients that
+     * ask for the same username at the same time, exactly one gets it. The previous username of
+     * the client, if any, is released.
+     *
+     * @param username            to reserve
+     * @param serverClientHandler handling the connection with the client that wants to login
+     * @return true if the username is now reserved for this client, false if another client
+     * has it
+     */
+    public boolean reserveUserName(String username, ServerClientHandler serverClientHandler) {
+        return clients.reserve(username, serverClientHandler);
     }
 
     /**
@@ -141,19 +346,16 @@ public class Server extends SocketServer {
      *
      * @return array of usernames of all clients connected to the server
      */
-    public synchronized String[] getUsers() {
-        String[] users = new String[serverClientHandlers.size()];
-        int i = 0;
-        for (ServerClientHandler clientHandler : serverClientHandlers) {
-            users[i++] = clientHandler.getUsername();
-        }
-        return users;
+    public String[] getUsers() {
+        return clients.getUsernames();
     }
 
     /**
-     * Asks for a port and instantiates a server with this port.
+     * Asks for a port and instantiates a server with this port, which serves its clients with
+     * one event loop per processor, or with a platform or virtual thread per client. The ratings
+     * are read from {@value #RATINGS_FILE} and written back every minute.
      *
-     * @param args Unused
+     * @param args optionally the number of event loop threads, or "platform" or "virtual"
      * @throws IOException if an I/O error occurs when opening the socket
      */
     public static void main(String[] args) throws IOException {
@@ -170,8 +372,25 @@ public class Server extends SocketServer {
                 System.out.println("Invalid port.");
             }
         } while (port > 65535 || port < 0);
-        Server server = new Server(port);
+        RatingService ratings = new RatingService();
+        Path ratingsFile = Path.of(RATINGS_FILE);
+        if (Files.exists(ratingsFile)) {
+            ratings.load(ratingsFile);
+            System.out.println("Loaded " + ratings.size() + " ratings.");
+        }
+        ratings.startSnapshots(ratingsFile, SNAPSHOT_PERIOD);
+        Server server = new Server(port, ratedPairing(), ratings);
         System.out.println("Waiting for clients to connect...");
-        server.acceptConnections();
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            ThreadMode mode = ThreadMode.valueOf(args[0].toUpperCase());
+            if (mode == ThreadMode.VIRTUAL && !ThreadMode.isVirtualAvailable()) {
+                System.out.println("Virtual threads need Java 21, using platform threads.");
+            }
+            server.acceptConnections(mode);
+            return;
+        }
+        int eventLoops = args.length > 0 ? Integer.parseInt(args[0]) :
+                Runtime.getRuntime().availableProcessors();
+        server.acceptConnections(eventLoops);
     }
 }
@@ -1,17 +1,26 @@
 package dbproject.server;
 
+import dbproject.game.Board;
 import java.io.IOException;
 import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * manages the communication between a client and the server. Communicates with the
  * ServerGameManager if a game is currently running.
  */
 public class ServerClientHandler {
+    /**
+     * guards the game manager of this client, and is held while a game over is written. It is
+     * never held while calling into the game manager: the game manager takes the locks of both
+     * players while it holds its own, so the other order could deadlock.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
     private final Server server;
     private ServerGameManager serverGameManager;
     private final ServerConnection serverConnection;
-    private String username;
+    private volatile String username;
+    private volatile boolean connected = true;
 
     /**
      * instantiate a serverClientHandler with a socket and a server.
@@ -20,19 +29,40 @@ public class ServerClientHandler {
      * @throws IOException if an I/O error occurs when opening the socket
      */
     public ServerClientHandler(Socket socket, Server server) throws IOException {
+        this(new SocketTransport(socket), server);
+    }
+
+    /**
+     * instantiate a serverClientHandler with a transport and a server.
+     * @param transport to create a serverConnection with, not started yet
+     * @param server that handles certain messages
+     */
+    public ServerClientHandler(LineTransport transport, Server server) {
         this.server = server;
-        serverConnection = new ServerConnection(socket, this);
+        serverConnection = new ServerConnection(transport, this);
         server.addClient(this);
         serverConnection.start();
     }
 
     /**
-     * set serverGameManager of the client.
+     * set serverGameManager of the client. Checking the connection and setting the game
+     * manager happen under one lock, so a client either gets the game before its disconnect
+     * is handled, and the game manager hears of the disconnect, or does not get it at all.
      *
-     * @param serverGameManager to set the serverGameManager of the client to
+     * @param serverGameManager to set the serverGameManager of the client to, or null
+     * @return false if a game manager was given but the client already disconnected
      */
-    public synchronized void setServerGameManager(ServerGameManager serverGameManager) {
-        this.serverGameManager = serverGameManager;
+    public boolean setServerGameManager(ServerGameManager serverGameManager) {
+        lock.lock();
+        try {
+            if (serverGameManager != null && !connected) {
+                return false;
+            }
+            this.serverGameManager = serverGameManager;
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -40,17 +70,39 @@ public class ServerClientHandler {
      *
      * @return true if this client is playing a game, false otherwise
      */
-    public synchronized boolean isInGame() {
-        return serverGameManager != null;
+    public boolean isInGame() {
+        lock.lock();
+        try {
+            return serverGameManager != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * returns whether the connection with this client is still open.
+     *
+     * @return false once the disconnect of this client was handled
+     */
+    public boolean isConnected() {
+        return connected;
     }
 
     /**
      * handles a disconnect from the connection.
      */
-    public synchronized void handleDisconnect() {
+    public void handleDisconnect() {
+        ServerGameManager current;
+        lock.lock();
+        try {
+            connected = false;
+            current = serverGameManager;
+        } finally {
+            lock.unlock();
+        }
         server.removeClient(this);
-        if (serverGameManager != null) {
-            serverGameManager.handleDisconnect(this);
+        if (current != null) {
+            current.handleDisconnect(this);
         }
     }
 
@@ -69,7 +121,8 @@ public class ServerClientHandler {
      * @param gameManager that handles the started game
      */
     public void newGame(ServerGameManager gameManager) {
-        serverConnection.sendNewGame(gameManager.getPlayer1Name(), gameManager.getPlayer2Name());
+        serverConnection.sendNewGame(gameManager.getPlayer1Name(), gameManager.getPlayer2Name(),
+                                     gameManager.getDimension());
     }
 
     /**
@@ -86,9 +139,14 @@ public class ServerClientHandler {
      *
      * @param reason the game has ended
      */
-    public synchronized void gameOver(String reason) {
-        serverConnection.sendGameOver(reason);
-        serverGameManager = null;
+    public void gameOver(String reason) {
+        lock.lock();
+        try {
+            serverConnection.sendGameOver(reason);
+            serverGameManager = null;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -97,9 +155,14 @@ public class ServerClientHandler {
      * @param reason the game has ended
      * @param winner of the game
      */
-    public synchronized void gameOver(String reason, String winner) {
-        serverConnection.sendGameOver(reason, winner);
-        serverGameManager = null;
+    public void gameOver(String reason, String winner) {
+        lock.lock();
+        try {
+            serverConnection.sendGameOver(reason, winner);
+            serverGameManager = null;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -125,7 +188,7 @@ public class ServerClientHandler {
      * @param userName that is included in the login message
      */
     public void receiveLogin(String userName) {
-        if (server.checkUserName(userName, this)) {
+        if (server.reserveUserName(userName, this)) {
             this.username = userName;
             serverConnection.sendLogin();
             return;
@@ -142,9 +205,15 @@ public class ServerClientHandler {
 
     /**
      * handles a queue message received from the server connection.
+     *
+     * @param dimension dimension of the board the client wants to play on
      */
-    public void receiveQueueEntry() {
-        server.handleQueueEntry(this);
+    public void receiveQueueEntry(int dimension) {
+        if (!Board.isValidDimension(dimension)) {
+            sendError();
+            return;
+        }
+        server.handleQueueEntry(this, dimension);
     }
 
     /**
@@ -152,11 +221,18 @@ public class ServerClientHandler {
      *
      * @param location that is included in the move message
      */
-    public synchronized void receiveMove(int location) {
-        if (serverGameManager == null) {
+    public void receiveMove(int location) {
+        ServerGameManager current;
+        lock.lock();
+        try {
+            current = serverGameManager;
+        } finally {
+            lock.unlock();
+        }
+        if (current == null) {
             sendError();
             return;
         }
-        serverGameManager.handleMove(this, location);
+        current.handleMove(this, location);
     }
 }
@@ -1,19 +1,21 @@
 package dbproject.server;
 
+import dbproject.game.Board;
 import dbproject.networking.Protocol;
-import dbproject.networking.SocketConnection;
 import java.io.IOException;
 import java.net.Socket;
 
 /**
- * uses the Protocol to communicate with a client using the framework of SocketConnection.
+ * uses the Protocol to communicate with a client over a {@link LineTransport}: a
+ * {@link SocketTransport} with a thread per connection, or a non-blocking transport served by
+ * an event loop.
  */
-public class ServerConnection extends SocketConnection {
+public class ServerConnection implements LineListener {
+    private final LineTransport transport;
     private final ServerClientHandler serverClientHandler;
 
     /**
-     * Create a new SocketConnection. This is not meant to be used directly.
-     * Instead, the SocketServer and SocketClient classes should be used.
+     * Create a new ServerConnection over a blocking {@link SocketTransport}.
      *
      * @param socket the socket for this connection
      * @param serverClientHandler that handles this serverConnection
@@ -21,7 +23,17 @@ public class ServerConnection extends SocketConnection {
      */
     public ServerConnection(Socket socket, ServerClientHandler serverClientHandler)
             throws IOException {
-        super(socket);
+        this(new SocketTransport(socket), serverClientHandler);
+    }
+
+    /**
+     * Create a new ServerConnection over a transport.
+     *
+     * @param transport           the transport for this connection, not started yet
+     * @param serverClientHandler that handles this serverConnection
+     */
+    public ServerConnection(LineTransport transport, ServerClientHandler serverClientHandler) {
+        this.transport = transport;
         this.serverClientHandler = serverClientHandler;
     }
 
@@ -30,6 +42,7 @@ public class ServerConnection extends SocketConnection {
      *
      * @param message the message received from the connection
      */
+    @Override
     public void handleMessage(String message) {
         String[] splitMessage = message.split(Protocol.SEPARATOR, 2);
         if (splitMessage.length > 2) {
@@ -40,7 +53,8 @@ public class ServerConnection extends SocketConnection {
             case Protocol.HELLO -> serverClientHandler.receiveHello(splitMessage[1]);
             case Protocol.LOGIN -> serverClientHandler.receiveLogin(splitMessage[1]);
             case Protocol.LIST -> serverClientHandler.receiveUserListRequest();
-            case Protocol.QUEUE -> serverClientHandler.receiveQueueEntry();
+            case Protocol.QUEUE -> serverClientHandler.receiveQueueEntry(
+                    splitMessage.length > 1 ? Integer.parseInt(splitMessage[1]) : Board.DIM);
             case Protocol.MOVE ->
                     serverClientHandler.receiveMove(Integer.parseInt(splitMessage[1]));
         }
@@ -50,7 +64,7 @@ public class ServerConnection extends SocketConnection {
      * Handles a disconnect from the connection, i.e., when the connection is closed.
      */
     @Override
-    protected void handleDisconnect() {
+    public void handleDisconnect() {
         serverClientHandler.handleDisconnect();
     }
 
@@ -58,9 +72,18 @@ public class ServerConnection extends SocketConnection {
      * Start receiving messages and call methods of the given handler to handle the messages.
      * This method may only be called once.
      */
-    @Override
     protected void start() {
-        super.start();
+        transport.start(this);
+    }
+
+    /**
+     * Send a message over the transport as a single line.
+     *
+     * @param message the message to send
+     * @return true if the message was sent successfully, false if the connection was closed
+     */
+    private boolean sendMessage(String message) {
+        return transport.sendMessage(message);
     }
 
     /**
@@ -69,21 +92,21 @@ public class ServerConnection extends SocketConnection {
      * @param serverDescription description of the server
      */
     public void sendHello(String serverDescription) {
-        super.sendMessage(Protocol.HELLO + Protocol.SEPARATOR + serverDescription);
+        sendMessage(Protocol.HELLO + Protocol.SEPARATOR + serverDescription);
     }
 
     /**
      * sends login to the connection.
      */
     public void sendLogin() {
-        super.sendMessage(Protocol.LOGIN);
+        sendMessage(Protocol.LOGIN);
     }
 
     /**
      * sends already logged in to the connection.
      */
     public void sendAlreadyLoggedIn() {
-        super.sendMessage(Protocol.ALREADYLOGGEDIN);
+        sendMessage(Protocol.ALREADYLOGGEDIN);
     }
 
     /**
@@ -97,10 +120,10 @@ public class ServerConnection extends SocketConnection {
             result.append(Protocol.SEPARATOR).append(user);
         }
         if (result.isEmpty()) {
-            super.sendMessage(Protocol.LIST);
+            sendMessage(Protocol.LIST);
             return;
         }
-        super.sendMessage(Protocol.LIST + result);
+        sendMessage(Protocol.LIST + result);
     }
 
     /**
@@ -111,10 +134,28 @@ public class ServerConnection extends SocketConnection {
      * @param player2 name of the second player
      */
     public void sendNewGame(String player1, String player2) {
-        super.sendMessage(
+        sendMessage(
                 Protocol.NEWGAME + Protocol.SEPARATOR + player1 + Protocol.SEPARATOR + player2);
     }
 
+    /**
+     * sends a confirmation that a new game on a board of the given dimension is started with
+     * player1 and player2 to the connection. The dimension is only included in the message if
+     * it differs from the default dimension.
+     *
+     * @param player1   name of the first player
+     * @param player2   name of the second player
+     * @param dimension dimension of the board of the game
+     */
+    public void sendNewGame(String player1, String player2, int dimension) {
+        if (dimension == Board.DIM) {
+            sendNewGame(player1, player2);
+            return;
+        }
+        sendMessage(Protocol.NEWGAME + Protocol.SEPARATOR + player1 + Protocol.SEPARATOR +
+                                  player2 + Protocol.SEPARATOR + dimension);
+    }
+
     /**
      * send the next move that is played to the connection.
      * This is sent to all players in the game, including the player who performed the move.
@@ -122,7 +163,7 @@ public class ServerConnection extends SocketConnection {
      * @param location of the next move that is played
      */
     public void sendMove(int location) {
-        super.sendMessage(Protocol.MOVE + Protocol.SEPARATOR + location);
+        sendMessage(Protocol.MOVE + Protocol.SEPARATOR + location);
     }
 
     /**
@@ -131,7 +172,7 @@ public class ServerConnection extends SocketConnection {
      * @param reason of the end of the game
      */
     public void sendGameOver(String reason) {
-        super.sendMessage(Protocol.GAMEOVER + Protocol.SEPARATOR + reason);
+        sendMessage(Protocol.GAMEOVER + Protocol.SEPARATOR + reason);
     }
 
     /**
@@ -141,7 +182,7 @@ public class ServerConnection extends SocketConnection {
      * @param winner of the game
      */
     public void sendGameOver(String reason, String winner) {
-        super.sendMessage(
+        sendMessage(
                 Protocol.GAMEOVER + Protocol.SEPARATOR + reason + Protocol.SEPARATOR + winner);
     }
 
@@ -149,6 +190,6 @@ public class ServerConnection extends SocketConnection {
      * sends error to the connection, when client performed a move that he knew was illegal.
      */
     public void sendError() {
-        super.sendMessage(Protocol.ERROR);
+        sendMessage(Protocol.ERROR);
     }
 }
@@ -1,28 +1,99 @@
 package dbproject.server;
 
+import dbproject.game.Board;
 import dbproject.game.Game;
 import dbproject.networking.Protocol;
+import dbproject.rating.RatingService;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
- * manages a game between two clients.
+ * manages a game between two clients, and records the result with the rating service of the
+ * server, if any.
  */
 public class ServerGameManager {
     private final ServerClientHandler player1;
     private final ServerClientHandler player2;
     private final Game game;
+    private final RatingService ratings;
+    /**
+     * guards the game, and is held while a move is sent to both players.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * true once a player disconnected, which ends the game.
+     */
+    private boolean abandoned;
+    /**
+     * true once both players got the game; a game that did not start has no result.
+     */
+    private boolean started;
 
     /**
-     * instantiate a serverGameManager.
+     * instantiate a serverGameManager for a game on a board of the default dimension.
      * @param player1 serverClientHandler that handles the connection with player1
      * @param player2 serverClientHandler that handles the connection with player2
      */
     public ServerGameManager(ServerClientHandler player1, ServerClientHandler player2) {
+        this(player1, player2, Board.DIM);
+    }
+
+    /**
+     * instantiate a serverGameManager for a game on a board of the given dimension.
+     * @param player1   serverClientHandler that handles the connection with player1
+     * @param player2   serverClientHandler that handles the connection with player2
+     * @param dimension dimension of the board
+     */
+    public ServerGameManager(ServerClientHandler player1, ServerClientHandler player2,
+                             int dimension) {
+        this(player1, player2, dimension, null);
+    }
+
+    /**
+     * instantiate a serverGameManager for a game on a board of the given dimension, that
+     * updates the ratings of both players when the game ends. The game only starts if both
+     * players are still connected, see {@link #isStarted()}.
+     * @param player1   serverClientHandler that handles the connection with player1
+     * @param player2   serverClientHandler that handles the connection with player2
+     * @param dimension dimension of the board
+     * @param ratings   the ratings to update, or null to keep no ratings
+     */
+    public ServerGameManager(ServerClientHandler player1, ServerClientHandler player2,
+                             int dimension, RatingService ratings) {
+        this.ratings = ratings;
         this.player1 = player1;
         this.player2 = player2;
-        game = new Game(player1.getUsername(), player2.getUsername());
-        player1.setServerGameManager(this);
-        player2.setServerGameManager(this);
-        player1.newGame(this);
-        player2.newGame(this);
+        game = new Game(player1.getUsername(), player2.getUsername(), dimension);
+        lock.lock();
+        try {
+            if (!player1.setServerGameManager(this)) {
+                return;
+            }
+            if (!player2.setServerGameManager(this)) {
+                //a disconnect of player1 in the meantime is ignored, the game has not started
+                player1.setServerGameManager(null);
+                return;
+            }
+            started = true;
+            player1.newGame(this);
+            player2.newGame(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * returns whether the game started, which it does unless a player disconnected before it
+     * got the game.
+     *
+     * @return true if both players got the game
+     */
+    public boolean isStarted() {
+        lock.lock();
+        try {
+            return started;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -31,32 +102,40 @@ public class ServerGameManager {
      * @param player   from who the move was received
      * @param location of the move
      */
-    public synchronized void handleMove(ServerClientHandler player, int location) {
-        if (game.gameOver()) {
-            //the client tried to send a move, while the game is over
-            player.sendError();
-        }
-        if (game.getTurn().equals(player.getUsername())) {
-            game.doMove(location);
-            player1.sendMove(location);
-            player2.sendMove(location);
-            //check if the move results in a game over
-            if (game.gameOver()) {
-                if (game.getWinner() != null) {
-                    //there is a winner of the game
-                    System.out.println("GameOver Victory " + game.getWinner());
-                    player1.gameOver(Protocol.VICTORY, game.getWinner());
-                    player2.gameOver(Protocol.VICTORY, game.getWinner());
-                } else {
-                    //game ended in a draw
-                    player1.gameOver(Protocol.DRAW);
-                    player2.gameOver(Protocol.DRAW);
+    public void handleMove(ServerClientHandler player, int location) {
+        lock.lock();
+        try {
+            if (!started || game.gameOver() || abandoned) {
+                //the client tried to send a move, while the game is over. The client handler
+                //does not hold its lock while calling, so a move can race the end of the game
+                player.sendError();
+                return;
+            }
+            if (game.getTurn().equals(player.getUsername())) {
+                game.doMove(location);
+                player1.sendMove(location);
+                player2.sendMove(location);
+                //check if the move results in a game over
+                if (game.gameOver()) {
+                    recordResult(game.getWinner());
+                    if (game.getWinner() != null) {
+                        //there is a winner of the game
+                        System.out.println("GameOver Victory " + game.getWinner());
+                        player1.gameOver(Protocol.VICTORY, game.getWinner());
+                        player2.gameOver(Protocol.VICTORY, game.getWinner());
+                    } else {
+                        //game ended in a draw
+                        player1.gameOver(Protocol.DRAW);
+                        player2.gameOver(Protocol.DRAW);
+                    }
                 }
+                return;
             }
-            return;
+            //client did not have the turn, was not allowed to send a move
+            player.sendError();
+        } finally {
+            lock.unlock();
         }
-        //client did not have the turn, was not allowed to send a move
-        player.sendError();
     }
 
     /**
@@ -64,13 +143,29 @@ public class ServerGameManager {
      *
      * @param serverClientHandler that handles the messages of the client that is disconnected
      */
-    public synchronized void handleDisconnect(ServerClientHandler serverClientHandler) {
-        if (game.gameOver()) {
-            //game is already over
-            return;
+    public void handleDisconnect(ServerClientHandler serverClientHandler) {
+        lock.lock();
+        try {
+            if (!started || game.gameOver() || abandoned) {
+                //game is already over, or never started
+                return;
+            }
+            abandoned = true;
+            recordResult(getOtherPlayer(serverClientHandler).getUsername());
+            player1.gameOver(Protocol.DISCONNECT, getOtherPlayer(serverClientHandler).getUsername());
+            player2.gameOver(Protocol.DISCONNECT, getOtherPlayer(serverClientHandler).getUsername());
+        } finally {
+            lock.unlock();
         }
-        player1.gameOver(Protocol.DISCONNECT, getOtherPlayer(serverClientHandler).getUsername());
-        player2.gameOver(Protocol.DISCONNECT, getOtherPlayer(serverClientHandler).getUsername());
+    }
+
+    /**
+     * returns the dimension of the board of the game.
+     *
+     * @return the dimension of the board
+     */
+    public int getDimension() {
+        return game.getBoard().getDimension();
     }
 
     /**
@@ -105,4 +200,20 @@ public class ServerGameManager {
         }
         return null;
     }
+
+    /**
+     * updates the ratings of both players with the result of the game.
+     *
+     * @param winner name of the player that won, or null for a draw
+     */
+    private void recordResult(String winner) {
+        String name1 = player1.getUsername();
+        String name2 = player2.getUsername();
+        if (ratings == null || name1 == null || name2 == null || name1.equals(name2)) {
+            //players that are not logged in are not rated
+            return;
+        }
+        double score1 = winner == null ? 0.5 : winner.equals(name1) ? 1 : 0;
+        ratings.recordGame(name1, name2, score1);
+    }
 }
@@ -1,15 +1,30 @@
 package dbproject.server;
 
+import dbproject.networking.OutboundQueue;
+import dbproject.networking.ThreadMode;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 
 /**
  * Implements a networking server which accepts connection from clients.
+ * <p>
+ * Connections are served either by a platform or virtual thread per connection, see
+ * {@link #acceptConnections(ThreadMode)}, or by a small pool of event loops that each serve
+ * many connections without blocking, see {@link #acceptConnections(int)}.
  */
 public abstract class SocketServer {
+    private final ServerSocketChannel serverChannel;
     private final ServerSocket serverSocket;
+    private volatile ThreadMode threadMode = ThreadMode.PLATFORM;
+    private volatile int outboundCapacity = OutboundQueue.DEFAULT_CAPACITY;
+    private volatile OutboundQueue.Backpressure backpressure =
+            OutboundQueue.Backpressure.DISCONNECT;
 
     /**
      * Creates a new Server that listens for connections on the given port.
@@ -18,7 +33,10 @@ public abstract class SocketServer {
      * @throws IOException if an I/O error occurs when opening the socket
      */
     protected SocketServer(int port) throws IOException {
-        serverSocket = new ServerSocket(port);
+        //the socket of a channel serves both the blocking and the event loop transport
+        serverChannel = ServerSocketChannel.open();
+        serverSocket = serverChannel.socket();
+        serverSocket.bind(new InetSocketAddress(port));
     }
 
     /**
@@ -35,16 +53,108 @@ public abstract class SocketServer {
      * @throws IOException if an I/O error occurs when waiting for a connection
      */
     protected void acceptConnections() throws IOException {
+        acceptConnections(ThreadMode.PLATFORM);
+    }
+
+    /**
+     * Accepts connections and starts a new thread of the given kind for each connection.
+     * This method will block until the server socket is closed, for example by invoking
+     * closeServerSocket.
+     * @param mode the kind of thread that reads each connection, see {@link #getThreadMode()}
+     * @throws IOException if an I/O error occurs when waiting for a connection
+     */
+    protected void acceptConnections(ThreadMode mode) throws IOException {
+        threadMode = mode;
         while (!serverSocket.isClosed()) {
             try {
                 Socket socket = serverSocket.accept();
                 handleConnection(socket);
-            } catch (SocketException ignored) {
+            } catch (SocketException | ClosedChannelException ignored) {
                 // this can happen if the ServerSocket is closed while accepting, in which case we just ignore the exception
             }
         }
     }
 
+    /**
+     * Returns the kind of thread that should read the connections accepted by
+     * {@link #acceptConnections(ThreadMode)}.
+     * @return the thread mode of the accepted connections
+     */
+    protected ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    /**
+     * Sets how many messages may wait to be written to a client, and what happens to the next
+     * message when that many are waiting because the client stopped reading. Applies to
+     * connections accepted from now on; by default a client is disconnected when
+     * {@link OutboundQueue#DEFAULT_CAPACITY} messages are waiting.
+     * @param capacity the number of messages that may wait, at least 1
+     * @param backpressure what to do with a message when the queue is full
+     */
+    protected void setOutboundLimit(int capacity, OutboundQueue.Backpressure backpressure) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.outboundCapacity = capacity;
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * Returns the number of messages that may wait to be written to a client.
+     * @return the capacity of the outbound queue of new connections
+     */
+    protected int getOutboundCapacity() {
+        return outboundCapacity;
+    }
+
+    /**
+     * Returns what happens to a message for a client whose outbound queue is full.
+     * @return the backpressure of new connections
+     */
+    protected OutboundQueue.Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * Accepts connections and serves them with a fixed number of event loop threads, which
+     * read and write the connections without blocking. The connections are spread over the
+     * loops in turn.
+     * This method will block until the server socket is closed, and then stops the loops and
+     * closes their connections.
+     * @param eventLoops the number of event loop threads, at least 1
+     * @throws IOException if an I/O error occurs when waiting for a connection
+     */
+    protected void acceptConnections(int eventLoops) throws IOException {
+        if (eventLoops < 1) {
+            throw new IllegalArgumentException("at least one event loop is needed");
+        }
+        EventLoop[] loops = new EventLoop[eventLoops];
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop("event-loop-" + i);
+            }
+            int next = 0;
+            while (serverChannel.isOpen()) {
+                try {
+                    SocketChannel channel = serverChannel.accept();
+                    EventLoop loop = loops[next];
+                    next = (next + 1) % loops.length;
+                    handleConnection(new SelectorTransport(channel, loop, outboundCapacity,
+                                                           backpressure));
+                } catch (ClosedChannelException ignored) {
+                    // the server socket was closed while accepting
+                }
+            }
+        } finally {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    loop.shutdown();
+                }
+            }
+        }
+    }
+
     /**
      * Closes the server socket. This will cause the server to stop accepting new connections.
      * If called from a different thread than the one running acceptConnections, then that thread will return from
@@ -52,7 +162,7 @@ public abstract class SocketServer {
      */
     protected synchronized void close() {
         try {
-            if (!serverSocket.isClosed()) serverSocket.close();
+            if (serverChannel.isOpen()) serverChannel.close();
         } catch (IOException ignored) {
             // ignore, we are closing the server socket anyway
         }
@@ -64,4 +174,11 @@ public abstract class SocketServer {
      * @param socket the socket for the connection
      */
     protected abstract void handleConnection(Socket socket);
+
+    /**
+     * Creates a new connection handler for a connection that is served by an event loop.
+     *
+     * @param transport the transport of the connection, not started yet
+     */
+    protected abstract void handleConnection(LineTransport transport);
 }
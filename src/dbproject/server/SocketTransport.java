@@ -0,0 +1,89 @@
+package dbproject.server;
+
+import dbproject.networking.OutboundQueue;
+import dbproject.networking.SocketConnection;
+import dbproject.networking.ThreadMode;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Blocking transport that reads the lines of a client on a thread of its own, a platform or a
+ * virtual thread, using the framework of SocketConnection. Messages are queued and written by a
+ * writer task, so a client that reads slowly does not hold up the thread that sends to it.
+ */
+public class SocketTransport extends SocketConnection implements LineTransport {
+    private final ThreadMode mode;
+    private LineListener listener;
+
+    /**
+     * Create a transport for an accepted socket, read by a platform thread.
+     *
+     * @param socket the socket for this connection
+     * @throws IOException if there is an I/O exception while initializing the Reader/Writer
+     *                     objects
+     */
+    public SocketTransport(Socket socket) throws IOException {
+        this(socket, ThreadMode.PLATFORM);
+    }
+
+    /**
+     * Create a transport for an accepted socket, read by a thread of the given kind, that
+     * disconnects a client with {@link OutboundQueue#DEFAULT_CAPACITY} unsent messages.
+     *
+     * @param socket the socket for this connection
+     * @param mode   the kind of thread that reads the socket
+     * @throws IOException if there is an I/O exception while initializing the Reader/Writer
+     *                     objects
+     */
+    public SocketTransport(Socket socket, ThreadMode mode) throws IOException {
+        this(socket, mode, OutboundQueue.DEFAULT_CAPACITY, OutboundQueue.Backpressure.DISCONNECT);
+    }
+
+    /**
+     * Create a transport for an accepted socket, read by a thread of the given kind and
+     * written by a task on a thread of the same kind.
+     *
+     * @param socket       the socket for this connection
+     * @param mode         the kind of thread that reads and writes the socket
+     * @param capacity     the number of messages that may wait to be written
+     * @param backpressure what to do with a message when that many are waiting
+     * @throws IOException if there is an I/O exception while initializing the Reader/Writer
+     *                     objects
+     */
+    public SocketTransport(Socket socket, ThreadMode mode, int capacity,
+                           OutboundQueue.Backpressure backpressure) throws IOException {
+        super(socket, capacity, backpressure, mode.executor());
+        this.mode = mode;
+    }
+
+    /**
+     * Start the thread that receives messages and passes them to the listener.
+     *
+     * @param listener receives the messages and the disconnect of this transport
+     */
+    @Override
+    public void start(LineListener listener) {
+        this.listener = listener;
+        super.start(mode);
+    }
+
+    @Override
+    public boolean sendMessage(String message) {
+        return super.sendMessage(message);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+    }
+
+    @Override
+    protected void handleMessage(String message) {
+        listener.handleMessage(message);
+    }
+
+    @Override
+    protected void handleDisconnect() {
+        listener.handleDisconnect();
+    }
+}
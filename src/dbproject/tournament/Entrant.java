@@ -0,0 +1,53 @@
+package dbproject.tournament;
+
+import dbproject.players.Strategy;
+import java.util.function.Supplier;
+
+/**
+ * A participant of a {@link Tournament}: a name and a factory for its strategy.
+ * <p>
+ * Strategies may keep state between moves, such as a transposition table or a chain analyzer,
+ * so every game gets a new strategy from the factory.
+ */
+public final class Entrant {
+    private final String name;
+    private final Supplier<Strategy> factory;
+
+    /**
+     * Instantiates an entrant.
+     *
+     * @param name    name shown in the results, unique within a tournament
+     * @param factory creates a new strategy for every game
+     */
+    /*@
+        requires name != null && factory != null;
+    */
+    public Entrant(String name, Supplier<Strategy> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the name of this entrant.
+     *
+     * @return the name
+     */
+    //@ pure;
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns a new strategy for one game.
+     *
+     * @return a strategy that is not shared with any other game
+     */
+    public Strategy newStrategy() {
+        return factory.get();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
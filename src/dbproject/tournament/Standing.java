@@ -0,0 +1,178 @@
+package dbproject.tournament;
+
+/**
+ * Results of one entrant in a tournament: its wins, draws and losses, the Elo rating they
+ * imply relative to its opponents, and the time it took per move.
+ * <p>
+ * Games are recorded by the threads of the tournament while it runs, so recording and reading
+ * are synchronized.
+ */
+public class Standing {
+    /**
+     * Two-sided 95% quantile of the normal distribution, for the Elo error bars.
+     */
+    private static final double Z_95 = 1.96;
+
+    private final Entrant entrant;
+    private int wins;
+    private int draws;
+    private int losses;
+    private int forfeits;
+    private long moves;
+    private long moveNanos;
+
+    /**
+     * Instantiates an empty standing.
+     *
+     * @param entrant the entrant whose results are recorded
+     */
+    Standing(Entrant entrant) {
+        this.entrant = entrant;
+    }
+
+    /**
+     * Records the result of a game.
+     *
+     * @param margin    boxes of the entrant minus boxes of its opponent
+     * @param forfeit   true if the entrant lost by returning an invalid move or failing
+     * @param moves     number of moves the entrant made
+     * @param moveNanos time the entrant took for these moves, in nanoseconds
+     */
+    synchronized void record(int margin, boolean forfeit, int moves, long moveNanos) {
+        if (forfeit) {
+            forfeits++;
+            losses++;
+        } else if (margin > 0) {
+            wins++;
+        } else if (margin < 0) {
+            losses++;
+        } else {
+            draws++;
+        }
+        this.moves += moves;
+        this.moveNanos += moveNanos;
+    }
+
+    /**
+     * Returns the entrant of this standing.
+     *
+     * @return the entrant
+     */
+    //@ pure;
+    public Entrant getEntrant() {
+        return entrant;
+    }
+
+    /**
+     * Returns the number of won games.
+     *
+     * @return the number of wins
+     */
+    public synchronized int getWins() {
+        return wins;
+    }
+
+    /**
+     * Returns the number of drawn games.
+     *
+     * @return the number of draws
+     */
+    public synchronized int getDraws() {
+        return draws;
+    }
+
+    /**
+     * Returns the number of lost games, including forfeits.
+     *
+     * @return the number of losses
+     */
+    public synchronized int getLosses() {
+        return losses;
+    }
+
+    /**
+     * Returns the number of games lost by an invalid move or an exception of the strategy.
+     *
+     * @return the number of forfeits
+     */
+    public synchronized int getForfeits() {
+        return forfeits;
+    }
+
+    /**
+     * Returns the number of played games.
+     *
+     * @return wins, draws and losses together
+     */
+    public synchronized int getGames() {
+        return wins + draws + losses;
+    }
+
+    /**
+     * Returns the score fraction: a win counts 1, a draw one half.
+     *
+     * @return the score per game, from 0 to 1, or 0.5 if no games were played
+     */
+    public synchronized double getScore() {
+        int games = getGames();
+        return games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+    }
+
+    /**
+     * Returns the Elo difference to the average opponent implied by the score fraction. A
+     * score of 0 or 1 is moved half a game away from the extreme, so the estimate stays finite.
+     *
+     * @return the estimated Elo difference
+     */
+    public synchronized double getElo() {
+        return elo(clamp(getScore()));
+    }
+
+    /**
+     * Returns the half-width of the 95% confidence interval of {@link #getElo()}, from the
+     * variance of the results of the individual games.
+     *
+     * @return the error bar of the Elo estimate, or infinity if fewer than two games were
+     * played
+     */
+    public synchronized double getEloError() {
+        int games = getGames();
+        if (games < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double score = getScore();
+        double variance = (wins * square(1 - score) + draws * square(0.5 - score)
+                + losses * square(score)) / games;
+        double error = Z_95 * Math.sqrt(variance / games);
+        return (elo(clamp(score + error)) - elo(clamp(score - error))) / 2;
+    }
+
+    /**
+     * Returns the average time the strategy took per move.
+     *
+     * @return the average move time in milliseconds, 0 if no moves were made
+     */
+    public synchronized double getAverageMoveTime() {
+        return moves == 0 ? 0 : moveNanos / 1e6 / moves;
+    }
+
+    private double clamp(double score) {
+        double margin = 0.5 / Math.max(getGames(), 1);
+        return Math.min(Math.max(score, margin), 1 - margin);
+    }
+
+    private static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%-16s %5d %5d %5d %5d %+8.1f +- %5.1f %10.3f", entrant.getName(),
+                             getGames(), wins, draws, losses, getElo(), getEloError(),
+                             getAverageMoveTime());
+    }
+}
@@ -0,0 +1,233 @@
+package dbproject.tournament;
+
+import dbproject.game.Board;
+import dbproject.game.Game;
+import dbproject.players.EndgameStrategy;
+import dbproject.players.NaiveStrategy;
+import dbproject.players.SmartStrategy;
+import dbproject.players.Strategy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays Dots and Boxes games between strategies in-process, without a server or clients.
+ * <p>
+ * Every pairing plays a fixed number of games, and the entrants take turns playing first. The
+ * games run in parallel on a pool of threads, each driving its own {@link Game} with new
+ * strategies from the factories of the entrants. An entrant that returns an invalid move or
+ * throws an exception forfeits the game.
+ * <p>
+ * Strategies with a time budget per move compete for the processor with the other games, so
+ * they should be given fewer threads than there are cores.
+ */
+public class Tournament {
+    private static final String FIRST = "first";
+    private static final String SECOND = "second";
+
+    private final int dim;
+    private final int gamesPerPairing;
+    private final int threads;
+
+    /**
+     * Instantiates a tournament.
+     *
+     * @param dim             dimension of the board of every game
+     * @param gamesPerPairing number of games between two entrants, half of them with each
+     *                        entrant playing first; an odd number gives the first entrant of the
+     *                        pairing the extra first move
+     * @param threads         number of games played at the same time
+     * @throws IllegalArgumentException if dim is not a valid dimension, or gamesPerPairing or
+     *                                  threads is not positive
+     */
+    /*@
+        requires Board.isValidDimension(dim) && gamesPerPairing > 0 && threads > 0;
+    */
+    public Tournament(int dim, int gamesPerPairing, int threads) {
+        if (!Board.isValidDimension(dim)) {
+            throw new IllegalArgumentException("invalid board dimension " + dim);
+        }
+        if (gamesPerPairing <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("games and threads must be positive");
+        }
+        this.dim = dim;
+        this.gamesPerPairing = gamesPerPairing;
+        this.threads = threads;
+    }
+
+    /**
+     * Plays every entrant against every other entrant.
+     *
+     * @param entrants the entrants, at least two, with unique names
+     * @return the standings of all entrants
+     * @throws InterruptedException     if the thread is interrupted while waiting for the games
+     * @throws IllegalArgumentException if there are fewer than two entrants or names repeat
+     */
+    public TournamentResult roundRobin(List<Entrant> entrants) throws InterruptedException {
+        checkEntrants(entrants);
+        List<Entrant[]> pairings = new ArrayList<>();
+        for (int i = 0; i < entrants.size(); i++) {
+            for (int j = i + 1; j < entrants.size(); j++) {
+                pairings.add(new Entrant[]{entrants.get(i), entrants.get(j)});
+            }
+        }
+        return run(entrants, pairings);
+    }
+
+    /**
+     * Plays a challenger against every opponent, but not the opponents against each other.
+     * The Elo estimate of the challenger is then relative to the opponents as a pool.
+     *
+     * @param challenger entrant to evaluate
+     * @param opponents  entrants to play against, at least one
+     * @return the standings of the challenger and the opponents
+     * @throws InterruptedException     if the thread is interrupted while waiting for the games
+     * @throws IllegalArgumentException if there are no opponents or names repeat
+     */
+    public TournamentResult gauntlet(Entrant challenger, List<Entrant> opponents)
+            throws InterruptedException {
+        List<Entrant> entrants = new ArrayList<>();
+        entrants.add(challenger);
+        entrants.addAll(opponents);
+        checkEntrants(entrants);
+        List<Entrant[]> pairings = new ArrayList<>();
+        for (Entrant opponent : opponents) {
+            pairings.add(new Entrant[]{challenger, opponent});
+        }
+        return run(entrants, pairings);
+    }
+
+    private static void checkEntrants(List<Entrant> entrants) {
+        if (entrants.size() < 2) {
+            throw new IllegalArgumentException("a tournament needs at least two entrants");
+        }
+        Set<String> names = new HashSet<>();
+        for (Entrant entrant : entrants) {
+            if (!names.add(entrant.getName())) {
+                throw new IllegalArgumentException("duplicate entrant " + entrant.getName());
+            }
+        }
+    }
+
+    /**
+     * Plays all games of the pairings on the thread pool and waits for them to finish.
+     *
+     * @param entrants all entrants, in the order of the standings before sorting
+     * @param pairings pairs of entrants that play each other
+     * @return the standings of the entrants
+     * @throws InterruptedException if the thread is interrupted while waiting for the games
+     */
+    private TournamentResult run(List<Entrant> entrants, List<Entrant[]> pairings)
+            throws InterruptedException {
+        Map<Entrant, Standing> standings = new LinkedHashMap<>();
+        for (Entrant entrant : entrants) {
+            standings.put(entrant, new Standing(entrant));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> games = new ArrayList<>();
+            for (Entrant[] pairing : pairings) {
+                for (int i = 0; i < gamesPerPairing; i++) {
+                    //colours alternate, so both entrants play first equally often
+                    Entrant first = pairing[i % 2];
+                    Entrant second = pairing[1 - i % 2];
+                    games.add(pool.submit(() -> play(first, second, standings.get(first),
+                                                     standings.get(second))));
+                }
+            }
+            for (Future<?> game : games) {
+                game.get();
+            }
+            return new TournamentResult(new ArrayList<>(standings.values()), games.size(),
+                                        System.nanoTime() - start);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("a game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game and records it in the standings of both entrants.
+     *
+     * @param first          entrant that moves first
+     * @param second         entrant that moves second
+     * @param firstStanding  standing of first
+     * @param secondStanding standing of second
+     */
+    private void play(Entrant first, Entrant second, Standing firstStanding,
+                      Standing secondStanding) {
+        Game game = new Game(FIRST, SECOND, dim);
+        int[] moves = new int[2];
+        long[] nanos = new long[2];
+        int forfeit = -1;
+        //the strategies are closed after the game, so their search threads do not linger
+        try (Strategy firstStrategy = first.newStrategy();
+             Strategy secondStrategy = second.newStrategy()) {
+            Strategy[] strategies = {firstStrategy, secondStrategy};
+            while (!game.gameOver()) {
+                int side = game.getTurn().equals(FIRST) ? 0 : 1;
+                long start = System.nanoTime();
+                int move;
+                try {
+                    move = strategies[side].determineMove(game);
+                } catch (RuntimeException e) {
+                    move = -1;
+                }
+                nanos[side] += System.nanoTime() - start;
+                moves[side]++;
+                if (!game.getBoard().isLine(move) || !game.isValidMove(move)) {
+                    forfeit = side;
+                    break;
+                }
+                game.doMove(move);
+            }
+        }
+        int margin = game.getPlayerScore(FIRST) - game.getPlayerScore(SECOND);
+        if (forfeit != -1) {
+            //the opponent of a forfeiting entrant wins, whatever the score
+            margin = forfeit == 0 ? -1 : 1;
+        }
+        firstStanding.record(margin, forfeit == 0, moves[0], nanos[0]);
+        secondStanding.record(-margin, forfeit == 1, moves[1], nanos[1]);
+    }
+
+    /**
+     * Plays a round-robin tournament of the built-in strategies and prints the standings.
+     *
+     * @param args optionally the number of games per pairing, the number of threads and the
+     *             board dimension
+     * @throws InterruptedException if the tournament is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int dim = Board.DIM;
+        try {
+            if (args.length > 0) {
+                games = Integer.parseInt(args[0]);
+            }
+            if (args.length > 1) {
+                threads = Integer.parseInt(args[1]);
+            }
+            if (args.length > 2) {
+                dim = Integer.parseInt(args[2]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: Tournament [games per pairing] [threads] [dimension]");
+            return;
+        }
+        List<Entrant> entrants = List.of(new Entrant("naive", NaiveStrategy::new),
+                                         new Entrant("smart", SmartStrategy::new),
+                                         new Entrant("endgame", EndgameStrategy::new));
+        System.out.println(new Tournament(dim, games, threads).roundRobin(entrants));
+    }
+}
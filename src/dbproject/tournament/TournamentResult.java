@@ -0,0 +1,98 @@
+package dbproject.tournament;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Standings of a finished {@link Tournament}, ordered from the highest score to the lowest,
+ * and the speed at which its games were played.
+ */
+public class TournamentResult {
+    private final List<Standing> standings;
+    private final int games;
+    private final long elapsedNanos;
+
+    /**
+     * Instantiates the result of a tournament.
+     *
+     * @param standings    standings of all entrants, in any order
+     * @param games        number of played games
+     * @param elapsedNanos wall-clock time of the tournament in nanoseconds
+     */
+    TournamentResult(List<Standing> standings, int games, long elapsedNanos) {
+        standings.sort(Comparator.comparingDouble(Standing::getScore).reversed());
+        this.standings = Collections.unmodifiableList(standings);
+        this.games = games;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the standings of all entrants.
+     *
+     * @return unmodifiable list of standings, highest score first
+     */
+    //@ pure;
+    public List<Standing> getStandings() {
+        return standings;
+    }
+
+    /**
+     * Returns the standing of an entrant.
+     *
+     * @param name name of the entrant
+     * @return the standing, or null if no entrant has that name
+     */
+    //@ pure;
+    public Standing getStanding(String name) {
+        for (Standing standing : standings) {
+            if (standing.getEntrant().getName().equals(name)) {
+                return standing;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of games of the tournament.
+     *
+     * @return the number of played games
+     */
+    //@ pure;
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the wall-clock time of the tournament.
+     *
+     * @return the elapsed time in seconds
+     */
+    //@ pure;
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    /**
+     * Returns the number of games finished per second of wall-clock time.
+     *
+     * @return the throughput of the tournament
+     */
+    //@ pure;
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(String.format(
+                "%-16s %5s %5s %5s %5s %17s %10s%n", "entrant", "games", "win", "draw", "loss",
+                "elo (95%)", "ms/move"));
+        for (Standing standing : standings) {
+            result.append(standing).append(System.lineSeparator());
+        }
+        result.append(String.format("%d games in %.1f s, %.1f games/s", games,
+                                    getElapsedSeconds(), getGamesPerSecond()));
+        return result.toString();
+    }
+}
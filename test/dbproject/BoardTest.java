@@ -237,6 +237,23 @@ public class BoardTest {
                      () -> board.setLine((DIM - 1) * DIM + (DIM - 1) * DIM, 1));
     }
 
+    /**
+     * test that setLine can overwrite and clear lines, and rejects invalid player numbers.
+     */
+    @Test
+    public void testSetLineOverwrite() {
+        int last = (DIM - 1) * DIM + (DIM - 1) * DIM - 1;
+        board.setLine(last, 2);
+        assertEquals(2, board.getLine(last));
+        board.setLine(last, 1);
+        assertEquals(1, board.getLine(last));
+        board.setLine(last, 0);
+        assertEquals(0, board.getLine(last));
+        assertTrue(board.isEmptyField(last));
+        assertThrows(IllegalArgumentException.class, () -> board.setLine(0, 3));
+        assertThrows(IllegalArgumentException.class, () -> board.setBox(0, -1));
+    }
+
     /**
      * test getHorizontalLine method of board.
      */
@@ -318,6 +335,66 @@ public class BoardTest {
         assertTrue(board.isFull());
     }
 
+    /**
+     * test box valences and the capture, safe and sacrifice lines derived from them.
+     */
+    @Test
+    public void testValence() {
+        int[] buffer = new int[board.getLineCount()];
+        assertEquals(board.getLineCount(), board.getSafeLines(buffer, 0));
+        assertEquals(0, board.getCaptureLines(buffer, 0));
+        assertTrue(board.hasSafeLine());
+
+        board.setLine(0, 1);
+        board.setLine(5, 2);
+        assertEquals(2, board.getValence(0));
+        assertEquals(0, board.getValence(1));
+        //lines 6 and 11 give box 0 its third side
+        assertEquals(2, board.getSacrificeLines(buffer, 0));
+        assertArrayEquals(new int[]{6, 11}, new int[]{buffer[0], buffer[1]});
+        assertEquals(board.getLineCount() - 4, board.getSafeLines(buffer, 0));
+
+        board.setLine(6, 1);
+        assertEquals(3, board.getValence(0));
+        assertEquals(1, board.getCaptureLines(buffer, 0));
+        assertEquals(11, buffer[0]);
+        assertEquals(0, board.getSacrificeLines(buffer, 0));
+
+        //box 1 gets three sides as well, so line 6 would complete both boxes
+        board.setLine(6, 0);
+        board.setLine(11, 1);
+        board.setLine(1, 1);
+        board.setLine(7, 1);
+        board.setLine(12, 2);
+        assertEquals(1, board.getCaptureLines(buffer, 3));
+        assertEquals(6, buffer[3]);
+        board.setLine(12, 0);
+        board.setLine(6, 1);
+        assertEquals(4, board.getValence(0));
+        assertEquals(1, board.getCaptureLines(buffer, 0));
+        assertEquals(12, buffer[0]);
+        assertEquals(3, board.deepCopy().getValence(1));
+        assertThrows(IllegalArgumentException.class, () -> board.getValence(25));
+    }
+
+    /**
+     * test the free-line count and bitset, also when lines are overwritten or removed.
+     */
+    @Test
+    public void testFreeLines() {
+        assertEquals(board.getLineCount(), board.getFreeLineCount());
+        assertEquals((1L << board.getLineCount()) - 1, board.getFreeLineWord(0));
+        board.setLine(3, 1);
+        board.setLine(3, 2);
+        board.setLine(59, 1);
+        assertEquals(board.getLineCount() - 2, board.getFreeLineCount());
+        assertEquals(0, board.getFreeLineWord(0) & (1L << 3 | 1L << 59));
+        board.setLine(3, 0);
+        assertEquals(board.getLineCount() - 1, board.getFreeLineCount());
+        assertEquals(board.getFreeLineCount(), Long.bitCount(board.getFreeLineWord(0)));
+        assertEquals(board.getFreeLineCount(), board.deepCopy().getFreeLineCount());
+    }
+
     /**
      * test completeBoxAbove method of board.
      */
@@ -450,6 +527,30 @@ public class BoardTest {
         assertFalse(board.compareTo(board3));
     }
 
+    /**
+     * test equals and hashCode methods of board.
+     */
+    @Test
+    public void testEqualsAndHashCode() {
+        Board board2 = new Board();
+        assertEquals(board, board2);
+        assertEquals(board.hashCode(), board2.hashCode());
+        board.setLine(7, 1);
+        board.setBox(3, 2);
+        assertNotEquals(board, board2);
+        board2.setBox(3, 2);
+        board2.setLine(7, 2);
+        assertNotEquals(board.getZobristHash(), board2.getZobristHash());
+        assertEquals(board.getLineKey(), board2.getLineKey());
+        board2.setLine(7, 1);
+        assertEquals(board, board2);
+        assertEquals(board.getZobristHash(), board2.getZobristHash());
+        assertEquals(board, board.deepCopy());
+        board.setLine(7, 0);
+        board.setBox(3, 0);
+        assertEquals(new Board().getZobristHash(), board.getZobristHash());
+    }
+
     /**
      * test toString method of board.
      */
@@ -465,4 +566,40 @@ public class BoardTest {
         assertTrue(board.toString().contains(Board.ANSI_BLUE + "|" + Board.ANSI_RESET + " "));
         assertTrue(board.toString().contains(".     ."));
     }
-}
\ No newline at end of file
+
+    /**
+     * test boards of other dimensions than the default one.
+     */
+    @Test
+    public void testDimension() {
+        assertEquals(DIM, board.getDimension());
+        assertThrows(IllegalArgumentException.class, () -> new Board(Board.MIN_DIM - 1));
+        assertThrows(IllegalArgumentException.class, () -> new Board(Board.MAX_DIM + 1));
+
+        Board small = new Board(3);
+        assertEquals(3, small.getDimension());
+        assertEquals(12, small.getLineCount());
+        assertEquals(4, small.getBoxCount());
+        assertTrue(small.isLine(11));
+        assertFalse(small.isLine(12));
+        assertEquals(5, small.horizontalIndex(1, 0));
+        assertEquals(8, small.verticalIndex(1, 1));
+        small.setLine(0, 1);
+        small.setLine(2, 1);
+        small.setLine(5, 1);
+        assertArrayEquals(new int[]{0, -1}, small.completeBox(3));
+        assertTrue(small.toString().contains(" 7      8      9  "));
+        assertFalse(small.compareTo(new Board(4)));
+
+        Board large = new Board(11);
+        assertEquals(220, large.getLineCount());
+        assertEquals(100, large.getBoxCount());
+        for (int i = 0; i < large.getLineCount() - 1; i++) {
+            large.setLine(i, 1);
+        }
+        assertFalse(large.isFull());
+        large.setLine(large.getLineCount() - 1, 2);
+        assertTrue(large.isFull());
+        assertEquals(large, large.deepCopy());
+    }
+}
@@ -0,0 +1,95 @@
+package dbproject;
+
+import dbproject.game.Board;
+import dbproject.game.ChainAnalyzer;
+import dbproject.game.ChainAnalyzer.Component;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test chain and loop decomposition of a Dots and Boxes board.
+ */
+public class ChainAnalyzerTest {
+    private Board board;
+    private ChainAnalyzer analyzer;
+
+    /**
+     * create a new board and analyzer before every test.
+     */
+    @BeforeEach
+    public void setUp() {
+        board = new Board();
+        analyzer = new ChainAnalyzer(board);
+    }
+
+    /**
+     * test that an empty board has no components.
+     */
+    @Test
+    public void testEmptyBoard() {
+        assertTrue(analyzer.getComponents().isEmpty());
+        assertEquals(4, analyzer.getFreeSides(0));
+        assertTrue(analyzer.isSafeLine(0));
+    }
+
+    /**
+     * test a chain of the three top left boxes, and its update when it is opened and undone.
+     */
+    @Test
+    public void testChain() {
+        //top and bottom sides of boxes 0, 1 and 2
+        for (int line : new int[]{0, 1, 2, 11, 12, 13}) {
+            board.setLine(line, 1);
+        }
+        List<Component> components = analyzer.getComponents();
+        assertEquals(1, components.size());
+        Component chain = components.get(0);
+        assertFalse(chain.isLoop());
+        assertFalse(chain.isCapturable());
+        assertEquals(3, chain.getLength());
+        assertEquals(1, chain.getBox(1));
+        //the chain leaves through the left edge and into box 3, in the order of its boxes
+        int exit = chain.getBox(0) == 0 ? 0 : 1;
+        assertEquals(5, chain.getExit(exit));
+        assertEquals(8, chain.getExit(1 - exit));
+        assertFalse(analyzer.isSafeLine(6));
+        assertSame(chain, analyzer.getComponent(2));
+        assertNull(analyzer.getComponent(3));
+
+        board.setLine(5, 1);
+        chain = analyzer.getComponents().get(0);
+        assertEquals(3, chain.getLength());
+        assertTrue(chain.isCapturable());
+        assertEquals(6, analyzer.getFreeLine(0, -1));
+
+        board.setLine(5, 0);
+        assertFalse(analyzer.getComponents().get(0).isCapturable());
+    }
+
+    /**
+     * test a loop of the four top left boxes, which becomes a chain open at both ends.
+     */
+    @Test
+    public void testLoop() {
+        //outer sides of boxes 0, 1, 5 and 6
+        for (int line : new int[]{0, 1, 5, 7, 16, 18, 22, 23}) {
+            board.setLine(line, 2);
+        }
+        List<Component> components = analyzer.getComponents();
+        assertEquals(1, components.size());
+        assertTrue(components.get(0).isLoop());
+        assertEquals(4, components.get(0).getLength());
+        assertEquals(11, analyzer.getSharedLine(0, 5));
+
+        board.setLine(11, 1);
+        Component opened = analyzer.getComponents().get(0);
+        assertFalse(opened.isLoop());
+        assertTrue(opened.isCapturable(0));
+        assertTrue(opened.isCapturable(1));
+    }
+}
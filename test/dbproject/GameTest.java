@@ -3,12 +3,18 @@ package dbproject;
 import dbproject.game.Board;
 import dbproject.game.Game;
 
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * test game class for Dots and Boxes game.
@@ -143,6 +149,25 @@ public class GameTest {
         assertEquals(0, moves.length);
     }
 
+    /**
+     * test that the buffer variant of getValidMoves returns the free lines in ascending order.
+     */
+    @Test
+    public void testValidMovesBuffer() {
+        int[] buffer = new int[game.getBoard().getLineCount()];
+        game.doMove(42);
+        game.doMove(7);
+        int count = game.getValidMoves(buffer);
+        assertEquals(game.getBoard().getLineCount() - 2, count);
+        assertEquals(0, buffer[0]);
+        for (int i = 1; i < count; i++) {
+            assertTrue(buffer[i - 1] < buffer[i]);
+            assertNotEquals(7, buffer[i]);
+            assertNotEquals(42, buffer[i]);
+        }
+        assertArrayEquals(Arrays.copyOf(buffer, count), game.getValidMoves());
+    }
+
     /**
      * test isValidMove method of game.
      */
@@ -200,6 +225,115 @@ public class GameTest {
         assertEquals(player, game.getTurn());
     }
 
+    /**
+     * test that applying moves does not allocate, using the JVM's thread allocation counters.
+     */
+    @Test
+    public void testDoMoveDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        int lineCount = (Board.DIM - 1) * Board.DIM + (Board.DIM - 1) * Board.DIM;
+        Game[] games = new Game[200];
+        for (int i = 0; i < games.length; i++) {
+            games[i] = new Game(player1Name, player2Name);
+        }
+        //warm up, so that the measured run uses compiled code
+        for (int i = 0; i < games.length / 2; i++) {
+            playAllLines(games[i], lineCount);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = games.length / 2; i < games.length; i++) {
+            playAllLines(games[i], lineCount);
+        }
+        long after = threads.getThreadAllocatedBytes(threadId);
+        //the JIT compiler may allocate a few bytes once; a single object per move would
+        //already add up to more than a byte per move
+        assertTrue(after - before < (long) (games.length / 2) * lineCount);
+        assertTrue(games[games.length - 1].gameOver());
+    }
+
+    /**
+     * plays every line of the game in index order.
+     *
+     * @param playedGame game to play the lines on
+     * @param lineCount  number of lines on the board
+     */
+    private static void playAllLines(Game playedGame, int lineCount) {
+        for (int i = 0; i < lineCount; i++) {
+            playedGame.doMove(i);
+        }
+    }
+
+    /**
+     * test undoMove method of game, by undoing a random game and comparing every intermediate
+     * state with a copy taken before the move.
+     */
+    @Test
+    public void testUndoMove() {
+        assertEquals(-1, game.undoMove());
+        List<Game> states = new ArrayList<>();
+        List<Integer> played = new ArrayList<>();
+        while (!game.gameOver()) {
+            int[] movesArray = game.getValidMoves();
+            int move = movesArray[(int) (Math.random() * movesArray.length)];
+            states.add(game.deepCopy());
+            played.add(move);
+            game.doMove(move);
+        }
+        for (int i = states.size() - 1; i >= 0; i--) {
+            assertEquals(played.get(i), game.undoMove());
+            Game expected = states.get(i);
+            assertTrue(expected.getBoard().compareTo(game.getBoard()));
+            assertEquals(expected.getTurn(), game.getTurn());
+            assertEquals(expected.getPlayerScore(player1Name), game.getPlayerScore(player1Name));
+            assertEquals(expected.getPlayerScore(player2Name), game.getPlayerScore(player2Name));
+        }
+        assertEquals(-1, game.undoMove());
+    }
+
+    /**
+     * test that the Zobrist key is updated incrementally and does not depend on move order.
+     */
+    @Test
+    public void testZobristKey() {
+        long start = game.getZobristKey();
+        game.doMove(0);
+        game.doMove(59);
+        game.doMove(5);
+        Game other = new Game(player1Name, player2Name);
+        other.doMove(59);
+        other.doMove(0);
+        other.doMove(5);
+        //same lines, score difference and side to move, but lines drawn by other players
+        assertEquals(game.getZobristKey(), other.getZobristKey());
+        assertNotEquals(game, other);
+        //the side to move is part of the key: the same lines and scores with the other
+        //player on move give another key
+        Game otherSide = new Game(player1Name, player2Name, 0, 0,
+                                  game.getTurn().equals(player1Name) ? player2Name : player1Name,
+                                  game.deepCopy().getBoard());
+        assertNotEquals(game.getZobristKey(), otherSide.getZobristKey());
+        assertEquals(game.getZobristKey(), new Game(player1Name, player2Name, 0, 0,
+                                                    game.getTurn(),
+                                                    game.deepCopy().getBoard()).getZobristKey());
+        //the keys stay equal after the same move, and differ when only one game moves
+        game.doMove(6);
+        other.doMove(6);
+        assertEquals(game.getZobristKey(), other.getZobristKey());
+        game.doMove(11);
+        assertNotEquals(game.getZobristKey(), other.getZobristKey());
+        game.undoMove();
+        game.undoMove();
+        game.undoMove();
+        game.undoMove();
+        game.undoMove();
+        assertEquals(start, game.getZobristKey());
+        assertEquals(new Game(player1Name, player2Name), game);
+        assertEquals(new Game(player1Name, player2Name).hashCode(), game.hashCode());
+    }
+
     /**
      * test a random play of a full game from start to finish.
      */
@@ -270,4 +404,19 @@ public class GameTest {
         assertTrue(game.toString().contains(Integer.toString(game.getPlayerScore(player1Name))));
         assertTrue(game.toString().contains(Integer.toString(game.getPlayerScore(player2Name))));
     }
+
+    /**
+     * test a full game on a 3x3 board.
+     */
+    @Test
+    public void testSmallBoard() {
+        Game small = new Game("player1", "player2", 3);
+        assertEquals(3, small.getBoard().getDimension());
+        assertEquals(12, small.getValidMoves().length);
+        while (!small.gameOver()) {
+            small.doMove(small.getValidMoves()[0]);
+        }
+        assertEquals(4, small.getPlayerScore("player1") + small.getPlayerScore("player2"));
+        assertThrows(IllegalArgumentException.class, () -> new Game("player1", "player2", 1));
+    }
 }
@@ -0,0 +1,171 @@
+package dbproject;
+
+import dbproject.matchmaking.Match;
+import dbproject.matchmaking.Matchmaker;
+import dbproject.matchmaking.PairingPolicy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test the matchmaker and its pairing policies, with a clock the test moves by hand.
+ */
+public class MatchmakerTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private final List<Match<String>> matches = new ArrayList<>();
+    private long now;
+
+    /**
+     * test entering and leaving the queue, and pairing in order of arrival.
+     */
+    @Test
+    public void testFifo() {
+        Matchmaker<String> matchmaker = create(PairingPolicy.fifo());
+        assertTrue(matchmaker.enqueue("a", 6, 1500));
+        assertFalse(matchmaker.enqueue("a", 6, 1500));
+        assertEquals(0, matchmaker.tick());
+        assertTrue(matchmaker.enqueue("b", 4, 1500));
+        assertTrue(matchmaker.enqueue("c", 6, 1500));
+        assertTrue(matchmaker.isWaiting("c"));
+
+        assertEquals(1, matchmaker.tick());
+        assertEquals("a", matches.get(0).getFirst().getPlayer());
+        assertEquals("b", matches.get(0).getSecond().getPlayer());
+        assertEquals(6, matches.get(0).getDimension());
+        assertFalse(matchmaker.isWaiting("a"));
+        assertEquals(1, matchmaker.getQueueDepth());
+
+        assertTrue(matchmaker.cancel("c"));
+        assertFalse(matchmaker.cancel("c"));
+        assertEquals(0, matchmaker.getQueueDepth());
+        assertEquals(3, matchmaker.getMaxQueueDepth());
+    }
+
+    /**
+     * test that only players that asked for the same board are paired.
+     */
+    @Test
+    public void testBySize() {
+        Matchmaker<String> matchmaker = create(PairingPolicy.bySize(PairingPolicy.fifo()));
+        matchmaker.enqueue("a", 4, 1500);
+        matchmaker.enqueue("b", 6, 1500);
+        matchmaker.enqueue("c", 5, 1500);
+        assertEquals(0, matchmaker.tick());
+        matchmaker.enqueue("d", 6, 1500);
+        matchmaker.enqueue("e", 4, 1500);
+
+        assertEquals(2, matchmaker.tick());
+        assertEquals("a", matches.get(0).getFirst().getPlayer());
+        assertEquals("e", matches.get(0).getSecond().getPlayer());
+        assertEquals(4, matches.get(0).getDimension());
+        assertEquals("b", matches.get(1).getFirst().getPlayer());
+        assertEquals("d", matches.get(1).getSecond().getPlayer());
+        assertTrue(matchmaker.isWaiting("c"));
+    }
+
+    /**
+     * test that players of similar rating are paired first, and that the band widens while
+     * players wait.
+     */
+    @Test
+    public void testRatingBand() {
+        Matchmaker<String> matchmaker = create(PairingPolicy.ratingBand(50, 100));
+        matchmaker.enqueue("strong", 6, 1900);
+        matchmaker.enqueue("weak", 6, 1500);
+        now += 1_000_000L;
+        matchmaker.enqueue("middle", 6, 1700);
+        now += SECOND;
+        matchmaker.enqueue("weak2", 6, 1530);
+
+        assertEquals(1, matchmaker.tick());
+        //weak waited longer, so it moves first
+        assertEquals("weak", matches.get(0).getFirst().getPlayer());
+        assertEquals("weak2", matches.get(0).getSecond().getPlayer());
+
+        //after one second the band is 150 wide, not enough for 200 points
+        assertEquals(0, matchmaker.tick());
+        now += SECOND;
+        assertEquals(1, matchmaker.tick());
+        assertEquals("strong", matches.get(1).getFirst().getPlayer());
+        assertEquals("middle", matches.get(1).getSecond().getPlayer());
+        assertThrows(IllegalArgumentException.class, () -> PairingPolicy.ratingBand(-1, 0));
+    }
+
+    /**
+     * test that the player that waited longest gets the opponent with the nearest rating.
+     */
+    @Test
+    public void testNearestRating() {
+        Matchmaker<String> matchmaker = create(PairingPolicy.nearestRating(100, 100));
+        matchmaker.enqueue("first", 6, 1600);
+        matchmaker.enqueue("far", 6, 1900);
+        matchmaker.enqueue("near", 6, 1650);
+        matchmaker.enqueue("nearer", 6, 1590);
+        //a player that left the queue is no longer in the index
+        matchmaker.enqueue("gone", 6, 1600);
+        assertTrue(matchmaker.cancel("gone"));
+
+        assertEquals(1, matchmaker.tick());
+        assertEquals("first", matches.get(0).getFirst().getPlayer());
+        assertEquals("nearer", matches.get(0).getSecond().getPlayer());
+        //far is 250 points away from near, which takes 1.5 seconds of waiting
+        now += SECOND;
+        assertEquals(0, matchmaker.tick());
+        now += SECOND;
+        assertEquals(1, matchmaker.tick());
+        assertEquals("far", matches.get(1).getFirst().getPlayer());
+        assertEquals("near", matches.get(1).getSecond().getPlayer());
+    }
+
+    /**
+     * test that a login storm of players with the same rating is paired in one round, without
+     * every lookup stepping over the players paired before it.
+     */
+    @Test
+    public void testNearestRatingStorm() {
+        Matchmaker<String> matchmaker = create(
+                PairingPolicy.bySize(PairingPolicy.nearestRating(100, 50)));
+        int players = 50_000;
+        for (int i = 0; i < players; i++) {
+            matchmaker.enqueue("player" + i, 6, 1500);
+        }
+        assertTimeout(Duration.ofSeconds(10), () -> assertEquals(players / 2, matchmaker.tick()));
+        assertEquals(0, matchmaker.getQueueDepth());
+        //the index follows the queue: a new pair is matched with each other only
+        matchmaker.enqueue("late1", 6, 1500);
+        matchmaker.enqueue("late2", 6, 1500);
+        assertEquals(1, matchmaker.tick());
+    }
+
+    /**
+     * test the percentiles of the time to match.
+     */
+    @Test
+    public void testTimeToMatch() {
+        Matchmaker<String> matchmaker = create(PairingPolicy.fifo());
+        assertEquals(-1, matchmaker.getTimeToMatch(50));
+        for (int i = 0; i < 50; i++) {
+            matchmaker.enqueue("a" + i, 6, 1500);
+            now += i * 1_000_000L;
+            matchmaker.enqueue("b" + i, 6, 1500);
+            matchmaker.tick();
+        }
+        assertEquals(50, matchmaker.getMatchCount());
+        //the first players waited 0 to 49 ms, the second players no time at all
+        assertEquals(0, matchmaker.getTimeToMatch(50));
+        assertEquals(49, matchmaker.getTimeToMatch(100));
+        assertEquals(39, matchmaker.getTimeToMatch(90));
+        assertEquals(0, matchmaker.getTimeToMatch(0));
+        assertThrows(IllegalArgumentException.class, () -> matchmaker.getTimeToMatch(101));
+    }
+
+    private Matchmaker<String> create(PairingPolicy<String> policy) {
+        return new Matchmaker<>(policy, matches::add, () -> now);
+    }
+}
@@ -0,0 +1,122 @@
+package dbproject;
+
+import dbproject.game.Board;
+import dbproject.game.Game;
+import dbproject.game.Symmetry;
+import dbproject.players.OpeningBook;
+import dbproject.players.OpeningBookStrategy;
+import dbproject.players.SmartStrategy;
+import dbproject.players.Strategy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test building, mapping and probing an opening book.
+ */
+public class OpeningBookTest {
+
+    /**
+     * test that the book move is the best scored move with enough games, in any frame.
+     *
+     * @param dir temporary directory for the book
+     * @throws IOException if the book cannot be written
+     */
+    @Test
+    public void testProbe(@TempDir Path dir) throws IOException {
+        OpeningBook.Builder builder = new OpeningBook.Builder(Board.DIM, 4);
+        Game empty = new Game("player1", "player2");
+        builder.add(empty, 0, 1);
+        builder.add(empty, 0, 2);
+        builder.add(empty, 30, 5);
+        Game game = new Game("player1", "player2");
+        game.doMove(0);
+        builder.add(game, 12, 3);
+        assertEquals(3, builder.size());
+
+        Path path = dir.resolve("book.bin");
+        builder.write(path);
+        OpeningBook book = OpeningBook.open(path);
+        assertEquals(Board.DIM, book.getDimension());
+        assertEquals(3, book.size());
+        assertEquals(3, book.getCount(empty));
+        assertEquals(30, book.getMove(empty, 1));
+        assertEquals(0, book.getMove(empty, 2));
+        assertEquals(-1, book.getMove(empty, 3));
+        assertEquals(12, book.getMove(game, 1));
+
+        //a rotation of a book position gets the rotated book move
+        Board board = game.getBoard();
+        Game rotated = new Game("player1", "player2");
+        rotated.doMove(Symmetry.ROTATE_90.map(board, 0));
+        assertEquals(Symmetry.ROTATE_90.map(board, 12), book.getMove(rotated, 1));
+
+        Game other = new Game("player1", "player2");
+        other.doMove(1);
+        assertEquals(0, book.getCount(other));
+        assertEquals(-1, book.getMove(other, 1));
+        assertEquals(-1, book.getMove(new Game("player1", "player2", 4), 1));
+
+        Strategy strategy = new OpeningBookStrategy(book, new SmartStrategy());
+        assertEquals(30, strategy.determineMove(empty));
+        assertTrue(other.isValidMove(strategy.determineMove(other)));
+    }
+
+    /**
+     * test that self-play records the first plies of every game.
+     *
+     * @param dir temporary directory for the book
+     * @throws IOException if the book cannot be written
+     */
+    @Test
+    public void testSelfPlay(@TempDir Path dir) throws IOException {
+        OpeningBook.Builder builder = new OpeningBook.Builder(4, 6);
+        builder.addSelfPlay(new SmartStrategy(), 20, 2, new Random(17));
+        Path path = dir.resolve("book.bin");
+        builder.write(path);
+        OpeningBook book = OpeningBook.open(path);
+        assertEquals(builder.size(), book.size());
+        Game game = new Game("player1", "player2", 4);
+        assertEquals(20, book.getCount(game));
+        //follow the book as long as it has moves
+        int plies = 0;
+        for (int move = book.getMove(game, 1); move != -1; move = book.getMove(game, 1)) {
+            game.doMove(move);
+            plies++;
+        }
+        assertEquals(6, plies);
+    }
+
+    /**
+     * test that files that are not complete opening books are rejected.
+     *
+     * @param dir temporary directory for the files
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public void testInvalidFile(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("book.bin");
+        Files.write(path, new byte[64]);
+        assertThrows(IOException.class, () -> OpeningBook.open(path));
+
+        OpeningBook.Builder builder = new OpeningBook.Builder(Board.DIM, 1);
+        builder.add(new Game("player1", "player2"), 0, 1);
+        builder.write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> OpeningBook.open(path));
+        assertThrows(IllegalArgumentException.class, () -> new OpeningBook.Builder(1, 1));
+        //the largest margin of a bigger board does not fit the short score of a record
+        assertEquals(19, OpeningBook.MAX_DIM);
+        assertThrows(IllegalArgumentException.class,
+                     () -> new OpeningBook.Builder(OpeningBook.MAX_DIM + 1, 1));
+    }
+}
@@ -0,0 +1,141 @@
+package dbproject;
+
+import dbproject.networking.OutboundQueue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test the outbound queue of a connection, with a writer task that only runs when the test
+ * says so.
+ */
+public class OutboundQueueTest {
+    private StringWriter written;
+    private int flushes;
+    private BufferedWriter out;
+    private List<Runnable> tasks;
+    private AtomicBoolean failed;
+
+    /**
+     * set up a writer that counts its flushes, and an executor that keeps its tasks.
+     */
+    @BeforeEach
+    public void setUp() {
+        written = new StringWriter();
+        flushes = 0;
+        out = new BufferedWriter(written) {
+            @Override
+            public void flush() throws IOException {
+                super.flush();
+                flushes++;
+            }
+        };
+        tasks = new ArrayList<>();
+        failed = new AtomicBoolean();
+    }
+
+    /**
+     * test that queued lines are written in order with a single flush, by a single task.
+     */
+    @Test
+    public void testCoalescing() {
+        OutboundQueue queue = create(8, OutboundQueue.Backpressure.DROP);
+        assertTrue(queue.offer("a"));
+        assertTrue(queue.offer("b"));
+        assertTrue(queue.offer("c"));
+        assertEquals(1, tasks.size());
+        assertEquals(3, queue.size());
+        runTasks();
+        assertEquals("a" + System.lineSeparator() + "b" + System.lineSeparator() + "c" +
+                             System.lineSeparator(), written.toString());
+        assertEquals(1, flushes);
+        assertEquals(0, queue.size());
+
+        assertTrue(queue.offer("d"));
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(2, flushes);
+    }
+
+    /**
+     * test that a full queue drops the next line and keeps the connection.
+     */
+    @Test
+    public void testDrop() {
+        OutboundQueue queue = create(2, OutboundQueue.Backpressure.DROP);
+        assertTrue(queue.offer("a"));
+        assertTrue(queue.offer("b"));
+        assertFalse(queue.offer("c"));
+        assertFalse(failed.get());
+        runTasks();
+        assertTrue(queue.offer("c"));
+        runTasks();
+        assertEquals("a" + System.lineSeparator() + "b" + System.lineSeparator() + "c" +
+                             System.lineSeparator(), written.toString());
+    }
+
+    /**
+     * test that a full queue closes the connection and discards what was queued.
+     */
+    @Test
+    public void testDisconnect() {
+        OutboundQueue queue = create(2, OutboundQueue.Backpressure.DISCONNECT);
+        assertTrue(queue.offer("a"));
+        assertTrue(queue.offer("b"));
+        assertFalse(queue.offer("c"));
+        assertTrue(failed.get());
+        assertEquals(0, queue.size());
+        assertFalse(queue.offer("d"));
+        runTasks();
+        assertEquals("", written.toString());
+    }
+
+    /**
+     * test that a full queue lets the sender wait until the writer made room.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testBlock() throws InterruptedException {
+        OutboundQueue queue = create(1, OutboundQueue.Backpressure.BLOCK);
+        assertTrue(queue.offer("a"));
+        AtomicBoolean sent = new AtomicBoolean();
+        Thread sender = new Thread(() -> sent.set(queue.offer("b")));
+        sender.start();
+        sender.join(200);
+        assertTrue(sender.isAlive());
+        runTasks();
+        sender.join(5000);
+        assertTrue(sent.get());
+        runTasks();
+        assertEquals("a" + System.lineSeparator() + "b" + System.lineSeparator(),
+                     written.toString());
+
+        //closing the connection releases a waiting sender
+        assertTrue(queue.offer("c"));
+        Thread waiting = new Thread(() -> sent.set(queue.offer("d")));
+        waiting.start();
+        queue.close();
+        waiting.join(5000);
+        assertFalse(sent.get());
+    }
+
+    private OutboundQueue create(int capacity, OutboundQueue.Backpressure backpressure) {
+        return new OutboundQueue(out, capacity, backpressure, tasks::add, () -> failed.set(true));
+    }
+
+    private void runTasks() {
+        List<Runnable> current = new ArrayList<>(tasks);
+        tasks.clear();
+        current.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,130 @@
+package dbproject;
+
+import dbproject.rating.Rating;
+import dbproject.rating.RatingIndex;
+import dbproject.rating.RatingService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test the Glicko-2 ratings, the rating service and the index by rating.
+ */
+public class RatingTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * test the update against the example of Glickman, "Example of the Glicko-2 system".
+     */
+    @Test
+    public void testGlickmanExample() {
+        Rating player = new Rating(1500, 200, 0.06, 0);
+        Rating updated = player.update(new Rating[]{new Rating(1400, 30, 0.06, 0),
+                                               new Rating(1550, 100, 0.06, 0),
+                                               new Rating(1700, 300, 0.06, 0)},
+                                       new double[]{1, 0, 0});
+        assertEquals(1464.06, updated.getRating(), 0.01);
+        assertEquals(151.52, updated.getDeviation(), 0.01);
+        assertEquals(0.05999, updated.getVolatility(), 0.00001);
+        assertEquals(3, updated.getGames());
+
+        //a period without games only makes the rating less certain
+        Rating idle = player.update(new Rating[0], new double[0]);
+        assertEquals(1500, idle.getRating());
+        assertTrue(idle.getDeviation() > 200);
+        assertThrows(IllegalArgumentException.class, () -> player.update(player, 2));
+    }
+
+    /**
+     * test that games move the ratings of both players, and that the nearest rated player is
+     * found.
+     */
+    @Test
+    public void testService() {
+        RatingService ratings = new RatingService();
+        assertEquals(Rating.INITIAL, ratings.getRating("alice"));
+        assertNull(ratings.findNearest("alice"));
+
+        ratings.recordGame("alice", "bob", 1);
+        double alice = ratings.getRating("alice").getRating();
+        double bob = ratings.getRating("bob").getRating();
+        assertTrue(alice > Rating.DEFAULT_RATING);
+        assertEquals(Rating.DEFAULT_RATING - alice, bob - Rating.DEFAULT_RATING, 0.001);
+        assertTrue(ratings.getRating("bob").getDeviation() < Rating.DEFAULT_DEVIATION);
+
+        ratings.recordGame("carol", "dave", 0.5);
+        assertEquals(Rating.DEFAULT_RATING, ratings.getRating("carol").getRating(), 0.001);
+        assertEquals(4, ratings.size());
+        //alice and bob are both nearer to the players of the draw than to each other
+        assertTrue(ratings.findNearest("alice").equals("carol") ||
+                           ratings.findNearest("alice").equals("dave"));
+        assertTrue(ratings.findNearest("bob").equals("carol") ||
+                           ratings.findNearest("bob").equals("dave"));
+        assertEquals("dave", ratings.findNearest("carol"));
+        assertThrows(IllegalArgumentException.class, () -> ratings.recordGame("bob", "bob", 1));
+    }
+
+    /**
+     * test that a snapshot restores the ratings.
+     *
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testSnapshot() throws IOException {
+        RatingService ratings = new RatingService();
+        ratings.recordGame("alice", "bob with spaces", 0);
+        ratings.recordGame("alice", "carol", 1);
+        Path file = directory.resolve("ratings.txt");
+        ratings.save(file);
+        ratings.save(file);
+
+        RatingService loaded = new RatingService();
+        loaded.load(file);
+        assertEquals(3, loaded.size());
+        for (String player : new String[]{"alice", "bob with spaces", "carol"}) {
+            Rating expected = ratings.getRating(player);
+            Rating actual = loaded.getRating(player);
+            assertEquals(expected.getRating(), actual.getRating());
+            assertEquals(expected.getDeviation(), actual.getDeviation());
+            assertEquals(expected.getVolatility(), actual.getVolatility());
+            assertEquals(expected.getGames(), actual.getGames());
+        }
+
+        Files.writeString(file, "not a snapshot\n");
+        assertThrows(IOException.class, () -> loaded.load(file));
+    }
+
+    /**
+     * test the lookup of the nearest rating.
+     */
+    @Test
+    public void testIndex() {
+        RatingIndex<String> index = new RatingIndex<>();
+        assertNull(index.nearest(1500, null));
+        index.put("a", 1400);
+        index.put("b", 1500);
+        index.put("c", 1650);
+        assertEquals("b", index.nearest(1540, null));
+        assertEquals("c", index.nearest(1600, null));
+        assertEquals("a", index.nearest(0, null));
+        assertEquals("a", index.nearest(1500, "b"));
+        assertEquals("c", index.nearest(1580, "b"));
+
+        index.put("a", 1700);
+        assertEquals(3, index.size());
+        assertEquals("a", index.nearest(1690, null));
+        assertTrue(index.remove("a"));
+        assertFalse(index.remove("a"));
+        assertEquals("c", index.nearest(1690, null));
+        index.put("d", 1650);
+        assertEquals(3, index.size());
+        assertEquals("d", index.nearest(1650, "c"));
+    }
+}
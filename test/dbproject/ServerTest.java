@@ -0,0 +1,276 @@
+package dbproject;
+
+import dbproject.networking.Protocol;
+import dbproject.networking.ThreadMode;
+import dbproject.server.LineListener;
+import dbproject.server.LineTransport;
+import dbproject.server.Server;
+import dbproject.server.ServerClientHandler;
+import dbproject.server.ServerGameManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test the server over real connections, with both transports.
+ */
+public class ServerTest {
+    private Server server;
+    private final List<Socket> sockets = new ArrayList<>();
+
+    /**
+     * close the connections and the server after every test.
+     *
+     * @throws IOException if a socket cannot be closed
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        server.close();
+    }
+
+    /**
+     * test a game between two clients over event loop connections.
+     *
+     * @throws IOException if a connection fails
+     */
+    @Test
+    public void testEventLoopTransport() throws IOException {
+        start(null);
+        playGame();
+    }
+
+    /**
+     * test a game between two clients over connections with a thread each.
+     *
+     * @throws IOException if a connection fails
+     */
+    @Test
+    public void testSocketTransport() throws IOException {
+        start(ThreadMode.PLATFORM);
+        playGame();
+    }
+
+    /**
+     * test a game between two clients over connections with a virtual thread each, which are
+     * platform threads on runtimes without virtual threads.
+     *
+     * @throws IOException if a connection fails
+     */
+    @Test
+    public void testVirtualThreads() throws IOException {
+        start(ThreadMode.VIRTUAL);
+        playGame();
+    }
+
+    /**
+     * test that an event loop keeps serving its other clients when a client sends a message
+     * the server cannot parse, and that many clients share a few loops.
+     *
+     * @throws IOException if a connection fails
+     */
+    @Test
+    public void testManyClients() throws IOException {
+        start(null);
+        Client broken = connect();
+        broken.send(Protocol.MOVE + Protocol.SEPARATOR + "not a number");
+        assertNull(broken.in.readLine());
+
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Client client = connect();
+            client.send(Protocol.HELLO + Protocol.SEPARATOR + "client " + i);
+            clients.add(client);
+        }
+        for (Client client : clients) {
+            assertTrue(client.in.readLine().startsWith(Protocol.HELLO));
+        }
+    }
+
+    /**
+     * test that of many clients that log in with the same name at once, exactly one gets it,
+     * and that the name is free again when that client disconnects.
+     *
+     * @throws IOException if a connection fails
+     */
+    @Test
+    public void testLoginStorm() throws IOException {
+        start(null);
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            clients.add(connect());
+        }
+        for (Client client : clients) {
+            client.send(Protocol.LOGIN + Protocol.SEPARATOR + "storm");
+        }
+        Client winner = null;
+        for (Client client : clients) {
+            String reply = client.in.readLine();
+            if (reply.equals(Protocol.LOGIN)) {
+                assertNull(winner);
+                winner = client;
+            } else {
+                assertEquals(Protocol.ALREADYLOGGEDIN, reply);
+            }
+        }
+        assertNotNull(winner);
+
+        Client other = clients.get(clients.get(0) == winner ? 1 : 0);
+        other.send(Protocol.LIST);
+        String list = other.in.readLine();
+        assertTrue(list.startsWith(Protocol.LIST + Protocol.SEPARATOR));
+        assertTrue(list.contains("storm"));
+
+        winner.socket.close();
+        //the name is released once the server handled the disconnect
+        String reply;
+        do {
+            other.send(Protocol.LOGIN + Protocol.SEPARATOR + "storm");
+            reply = other.in.readLine();
+        } while (reply.equals(Protocol.ALREADYLOGGEDIN));
+        assertEquals(Protocol.LOGIN, reply);
+    }
+
+    private void playGame() throws IOException {
+        Client first = connect();
+        Client second = connect();
+        first.send(Protocol.HELLO + Protocol.SEPARATOR + "first");
+        assertTrue(first.in.readLine().startsWith(Protocol.HELLO));
+        first.send(Protocol.LOGIN + Protocol.SEPARATOR + "alice");
+        assertEquals(Protocol.LOGIN, first.in.readLine());
+        second.send(Protocol.LOGIN + Protocol.SEPARATOR + "alice");
+        assertEquals(Protocol.ALREADYLOGGEDIN, second.in.readLine());
+        second.send(Protocol.LOGIN + Protocol.SEPARATOR + "bob");
+        assertEquals(Protocol.LOGIN, second.in.readLine());
+
+        first.send(Protocol.QUEUE);
+        second.send(Protocol.QUEUE);
+        //the queue entries may arrive in either order, the first player in the queue starts
+        String newGame = first.in.readLine();
+        assertEquals(newGame, second.in.readLine());
+        Client mover = newGame.equals(Protocol.NEWGAME + Protocol.SEPARATOR + "alice" +
+                                              Protocol.SEPARATOR + "bob") ? first : second;
+        Client other = mover == first ? second : first;
+        assertTrue(newGame.startsWith(Protocol.NEWGAME + Protocol.SEPARATOR));
+
+        mover.send(Protocol.MOVE + Protocol.SEPARATOR + "0");
+        assertEquals(Protocol.MOVE + Protocol.SEPARATOR + "0", mover.in.readLine());
+        assertEquals(Protocol.MOVE + Protocol.SEPARATOR + "0", other.in.readLine());
+        mover.send(Protocol.MOVE + Protocol.SEPARATOR + "1");
+        assertEquals(Protocol.ERROR, mover.in.readLine());
+
+        other.socket.close();
+        assertEquals(Protocol.GAMEOVER + Protocol.SEPARATOR + Protocol.DISCONNECT +
+                             Protocol.SEPARATOR + (mover == first ? "alice" : "bob"),
+                     mover.in.readLine());
+        //leaving the game costs rating points
+        assertTrue(server.getRatings().getRating(mover == first ? "alice" : "bob").getRating() >
+                           server.getRatings().getRating(mover == first ? "bob" : "alice")
+                                   .getRating());
+    }
+
+    /**
+     * test that a game only starts for clients that are still connected, so a client that
+     * disconnects after it was matched can never leave its opponent in a game without end.
+     *
+     * @throws IOException if the server socket cannot be opened
+     */
+    @Test
+    public void testDisconnectBeforeStart() throws IOException {
+        server = new Server(0);
+        ServerClientHandler gone = new ServerClientHandler(new SilentTransport(), server);
+        ServerClientHandler waiting = new ServerClientHandler(new SilentTransport(), server);
+        gone.handleDisconnect();
+        assertFalse(new ServerGameManager(waiting, gone).isStarted());
+        assertFalse(waiting.isInGame());
+        assertFalse(gone.isInGame());
+
+        ServerClientHandler other = new ServerClientHandler(new SilentTransport(), server);
+        ServerGameManager game = new ServerGameManager(waiting, other);
+        assertTrue(game.isStarted());
+        assertTrue(waiting.isInGame());
+        other.handleDisconnect();
+        assertFalse(waiting.isInGame());
+    }
+
+    /**
+     * start a server in the background.
+     *
+     * @param mode the kind of thread per connection, or null to use two event loops
+     * @throws IOException if the server socket cannot be opened
+     */
+    private void start(ThreadMode mode) throws IOException {
+        server = new Server(0);
+        Thread thread = new Thread(() -> {
+            try {
+                if (mode == null) {
+                    server.acceptConnections(2);
+                } else {
+                    server.acceptConnections(mode);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private Client connect() throws IOException {
+        Socket socket = new Socket("localhost", server.getPort());
+        socket.setSoTimeout(5000);
+        sockets.add(socket);
+        return new Client(socket);
+    }
+
+    /**
+     * A client that speaks the protocol line by line.
+     */
+    private static final class Client {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        private Client(Socket socket) throws IOException {
+            this.socket = socket;
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                          StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        private void send(String message) {
+            out.println(message);
+        }
+    }
+
+    /**
+     * A transport that drops every message, for clients that are driven by hand.
+     */
+    private static final class SilentTransport implements LineTransport {
+        @Override
+        public void start(LineListener listener) {
+        }
+
+        @Override
+        public boolean sendMessage(String message) {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package dbproject;
+
+import dbproject.game.Game;
+import dbproject.players.AlphaBetaStrategy;
+import dbproject.players.EndgameStrategy;
+import dbproject.players.MonteCarloStrategy;
+import dbproject.players.SmartStrategy;
+import dbproject.players.Strategy;
+import dbproject.players.TranspositionTable;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test strategies used by the AI player for Dots and Boxes game.
+ */
+public class StrategyTest {
+    private Game game;
+
+    /**
+     * create a new game before every test.
+     */
+    @BeforeEach
+    public void setUp() {
+        game = new Game("player1", "player2");
+    }
+
+    /**
+     * plays a full game between two strategies and checks that every move is valid.
+     *
+     * @param first  strategy of player1
+     * @param second strategy of player2
+     */
+    private void playGame(Strategy first, Strategy second) {
+        while (!game.gameOver()) {
+            Strategy strategy = game.getTurn().equals(game.getPlayer1()) ? first : second;
+            int move = strategy.determineMove(game);
+            assertTrue(game.isValidMove(move));
+            game.doMove(move);
+        }
+    }
+
+    /**
+     * test that the alpha-beta strategy takes a free box and does not give one away.
+     */
+    @Test
+    public void testAlphaBetaCapturesAndAvoidsSacrifice() {
+        Strategy strategy = new AlphaBetaStrategy(200);
+        //box 0 has three sides, the player on move should complete it with line 11
+        game.doMove(0);
+        game.doMove(5);
+        game.doMove(6);
+        assertEquals(11, strategy.determineMove(game));
+        game.doMove(11);
+        //box 1 now has two sides (6 and 1 after this move), so 7 and 12 give it away
+        game.doMove(1);
+        int move = strategy.determineMove(game);
+        assertNotEquals(7, move);
+        assertNotEquals(12, move);
+    }
+
+    /**
+     * test that the alpha-beta strategy plays a full game with a short time budget.
+     */
+    @Test
+    public void testAlphaBetaFullGame() {
+        playGame(new AlphaBetaStrategy(20), new AlphaBetaStrategy(20));
+        assertTrue(game.gameOver());
+    }
+
+    /**
+     * test that the alpha-beta strategy in Lazy SMP mode, with helper threads sharing the
+     * transposition table, takes a free box and plays only valid moves.
+     */
+    @Test
+    public void testAlphaBetaParallel() {
+        try (AlphaBetaStrategy strategy = new AlphaBetaStrategy(
+                200, Integer.MAX_VALUE, new TranspositionTable(
+                        16, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED), 4);
+             AlphaBetaStrategy opponent = new AlphaBetaStrategy(
+                     20, Integer.MAX_VALUE, new TranspositionTable(
+                             16, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED), 2)) {
+            //box 0 has three sides, the player on move should complete it with line 11
+            game.doMove(0);
+            game.doMove(5);
+            game.doMove(6);
+            assertEquals(11, strategy.determineMove(game));
+            assertTrue(strategy.getLastNodeCount() > 0);
+
+            playGame(opponent, opponent);
+            assertTrue(game.gameOver());
+        }
+    }
+
+    /**
+     * test that the Monte Carlo strategy plays a full game, reusing its tree between moves.
+     */
+    @Test
+    public void testMonteCarloFullGame() {
+        MonteCarloStrategy strategy = new MonteCarloStrategy(1000, 300);
+        playGame(strategy, new AlphaBetaStrategy(5));
+        assertTrue(game.gameOver());
+        assertTrue(strategy.getLastIterationCount() > 0);
+    }
+
+    /**
+     * test both parallel modes of the Monte Carlo strategy: every iteration visits a root
+     * exactly once, also when threads race on the atomic node statistics, and full games with
+     * reused trees only contain valid moves.
+     */
+    @Test
+    public void testMonteCarloParallel() {
+        for (MonteCarloStrategy.Parallelism parallelism : MonteCarloStrategy.Parallelism.values()) {
+            setUp();
+            try (MonteCarloStrategy strategy = new MonteCarloStrategy(60_000, 3000, 3,
+                                                                       parallelism)) {
+                assertTrue(game.isValidMove(strategy.determineMove(game)));
+                assertEquals(3000, strategy.getLastIterationCount());
+                assertEquals(3000, strategy.getLastRootVisits());
+            }
+
+            setUp();
+            try (MonteCarloStrategy strategy = new MonteCarloStrategy(20, 300, 2, parallelism)) {
+                playGame(strategy, new AlphaBetaStrategy(5));
+                assertTrue(game.gameOver());
+            }
+        }
+    }
+
+    /**
+     * test that the endgame strategy plays a full game, keeping its analyzer between moves.
+     */
+    @Test
+    public void testEndgameFullGame() {
+        EndgameStrategy strategy = new EndgameStrategy();
+        playGame(strategy, new SmartStrategy());
+        assertTrue(game.gameOver());
+    }
+}
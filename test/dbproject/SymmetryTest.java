@@ -0,0 +1,71 @@
+package dbproject;
+
+import dbproject.game.Board;
+import dbproject.game.Game;
+import dbproject.game.Symmetry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test symmetries and canonical keys of a Dots and Boxes board.
+ */
+public class SymmetryTest {
+
+    /**
+     * test that every symmetry is a permutation of the lines and is undone by its inverse.
+     */
+    @Test
+    public void testMapping() {
+        Board board = new Board();
+        for (Symmetry symmetry : Symmetry.values()) {
+            boolean[] hit = new boolean[board.getLineCount()];
+            for (int i = 0; i < board.getLineCount(); i++) {
+                int mapped = symmetry.map(board, i);
+                assertFalse(hit[mapped]);
+                hit[mapped] = true;
+                assertEquals(i, symmetry.inverse().map(board, mapped));
+            }
+        }
+        //the top left line turns into the top right line
+        assertEquals(10, Symmetry.ROTATE_90.map(board, 0));
+        assertEquals(4, Symmetry.FLIP_HORIZONTAL.map(board, 0));
+        assertEquals(5, Symmetry.TRANSPOSE.map(board, 0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> Symmetry.IDENTITY.map(board, board.getLineCount()));
+    }
+
+    /**
+     * test that symmetric positions share a canonical key and agree on the canonical lines.
+     */
+    @Test
+    public void testCanonicalKey() {
+        Random random = new Random(15);
+        for (int dim : new int[]{3, Board.DIM, 7}) {
+            for (Symmetry symmetry : Symmetry.values()) {
+                Game game = new Game("player1", "player2", dim);
+                Game mirrored = new Game("player1", "player2", dim);
+                Board board = game.getBoard();
+                for (int i = 0; i < board.getLineCount() / 2; i++) {
+                    int[] moves = game.getValidMoves();
+                    int move = moves[random.nextInt(moves.length)];
+                    game.doMove(move);
+                    mirrored.doMove(symmetry.map(board, move));
+                }
+                assertEquals(game.getCanonicalZobristKey(), mirrored.getCanonicalZobristKey());
+                assertEquals(board.getCanonicalLineKey(),
+                             mirrored.getBoard().getCanonicalLineKey());
+                Symmetry frame = board.getCanonicalSymmetry();
+                Symmetry mirroredFrame = mirrored.getBoard().getCanonicalSymmetry();
+                for (int i = 0; i < board.getLineCount(); i++) {
+                    assertEquals(board.isEmptyField(i), mirrored.getBoard().isEmptyField(
+                            mirroredFrame.inverse().map(board, frame.map(board, i))));
+                }
+            }
+        }
+        assertEquals(new Board().getCanonicalLineKey(), new Board().getLineKey());
+    }
+}
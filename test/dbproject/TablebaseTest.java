@@ -0,0 +1,130 @@
+package dbproject;
+
+import dbproject.game.Board;
+import dbproject.game.Game;
+import dbproject.game.Tablebase;
+import dbproject.players.SmartStrategy;
+import dbproject.players.Strategy;
+import dbproject.players.TablebaseStrategy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test the retrograde tablebase and the strategy playing from it.
+ */
+public class TablebaseTest {
+
+    /**
+     * test that the solved values agree with a full search of the game tree.
+     */
+    @Test
+    public void testSolve() {
+        Tablebase tablebase = Tablebase.solveInMemory(3);
+        Random random = new Random(16);
+        for (int i = 0; i < 50; i++) {
+            Game game = new Game("player1", "player2", 3);
+            //at least four lines, so the search stays small
+            int moves = 4 + random.nextInt(game.getBoard().getLineCount() - 4);
+            for (int j = 0; j < moves; j++) {
+                int[] valid = game.getValidMoves();
+                game.doMove(valid[random.nextInt(valid.length)]);
+            }
+            assertEquals(search(game), tablebase.getValue(game.getBoard()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> tablebase.getValue(new Board()));
+        assertThrows(IllegalArgumentException.class, () -> Tablebase.solve(Board.DIM));
+    }
+
+    /**
+     * test that a written tablebase is mapped back with the same values, and that other files
+     * are rejected.
+     *
+     * @param dir temporary directory for the files
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public void testFile(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("tablebase3.bin");
+        Tablebase.write(3, path);
+        Tablebase tablebase = Tablebase.open(path);
+        assertEquals(3, tablebase.getDimension());
+        byte[] values = Tablebase.solve(3);
+        Board board = new Board(3);
+        for (int line = 0; line < board.getLineCount(); line += 2) {
+            board.setLine(line, 1);
+            assertEquals(values[(int) board.getLineWord(0)], tablebase.getValue(board));
+        }
+
+        Path truncated = dir.resolve("truncated.bin");
+        Files.write(truncated, new byte[100]);
+        assertThrows(IOException.class, () -> Tablebase.open(truncated));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> Tablebase.open(truncated));
+    }
+
+    /**
+     * test that the strategy reaches the value of the empty board against itself, and at least
+     * that value against another strategy.
+     */
+    @Test
+    public void testStrategy() {
+        Tablebase tablebase = Tablebase.solveInMemory(3);
+        int value = tablebase.getValue(new Board(3));
+        Strategy perfect = new TablebaseStrategy(tablebase);
+        assertEquals(value, play(perfect, perfect));
+        for (int i = 0; i < 20; i++) {
+            assertTrue(play(perfect, new SmartStrategy()) >= value);
+            assertTrue(play(new SmartStrategy(), perfect) <= value);
+        }
+        //a board the tablebase does not cover is played by the fallback
+        Game game = new Game("player1", "player2");
+        assertTrue(game.isValidMove(perfect.determineMove(game)));
+    }
+
+    /**
+     * Plays a game on a board of dimension 3.
+     *
+     * @return the score of the first player minus the score of the second player
+     */
+    private static int play(Strategy first, Strategy second) {
+        Game game = new Game("player1", "player2", 3);
+        while (!game.gameOver()) {
+            Strategy strategy = game.getTurn().equals("player1") ? first : second;
+            game.doMove(strategy.determineMove(game));
+        }
+        return game.getPlayerScore("player1") - game.getPlayerScore("player2");
+    }
+
+    /**
+     * Searches the whole game tree of a position.
+     *
+     * @return the boxes the player on move wins from now on minus those of the other player
+     */
+    private static int search(Game game) {
+        if (game.gameOver()) {
+            return 0;
+        }
+        String player = game.getTurn();
+        int before = game.getScoreDifference();
+        int best = Integer.MIN_VALUE;
+        for (int move : game.getValidMoves()) {
+            game.doMove(move);
+            int value = game.getTurn().equals(player)
+                    ? game.getScoreDifference() - before + search(game)
+                    : -search(game);
+            game.undoMove();
+            best = Math.max(best, value);
+        }
+        return best;
+    }
+}
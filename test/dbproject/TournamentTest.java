@@ -0,0 +1,77 @@
+package dbproject;
+
+import dbproject.players.NaiveStrategy;
+import dbproject.players.SmartStrategy;
+import dbproject.tournament.Entrant;
+import dbproject.tournament.Standing;
+import dbproject.tournament.Tournament;
+import dbproject.tournament.TournamentResult;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test the in-process tournament runner.
+ */
+public class TournamentTest {
+
+    /**
+     * test that a round robin plays every pairing and that the results add up.
+     *
+     * @throws InterruptedException if the tournament is interrupted
+     */
+    @Test
+    public void testRoundRobin() throws InterruptedException {
+        Entrant naive = new Entrant("naive", NaiveStrategy::new);
+        Entrant smart = new Entrant("smart", SmartStrategy::new);
+        Entrant other = new Entrant("other", SmartStrategy::new);
+        TournamentResult result = new Tournament(4, 10, 2).roundRobin(
+                List.of(naive, smart, other));
+        assertEquals(30, result.getGames());
+        int wins = 0;
+        int losses = 0;
+        for (Standing standing : result.getStandings()) {
+            assertEquals(20, standing.getGames());
+            assertEquals(0, standing.getForfeits());
+            assertTrue(standing.getAverageMoveTime() >= 0);
+            wins += standing.getWins();
+            losses += standing.getLosses();
+        }
+        assertEquals(wins, losses);
+        assertTrue(result.getGamesPerSecond() > 0);
+        assertEquals("naive", result.getStandings().get(2).getEntrant().getName());
+        assertTrue(result.getStanding("naive").getElo() < 0);
+        assertNull(result.getStanding("nobody"));
+        assertTrue(result.toString().contains("games/s"));
+    }
+
+    /**
+     * test a gauntlet against an entrant that forfeits every game.
+     *
+     * @throws InterruptedException if the tournament is interrupted
+     */
+    @Test
+    public void testGauntlet() throws InterruptedException {
+        Entrant smart = new Entrant("smart", SmartStrategy::new);
+        Entrant broken = new Entrant("broken", () -> game -> -1);
+        Entrant failing = new Entrant("failing", () -> game -> {
+            throw new IllegalStateException();
+        });
+        TournamentResult result = new Tournament(3, 4, 1).gauntlet(smart,
+                                                                   List.of(broken, failing));
+        Standing standing = result.getStanding("smart");
+        assertEquals(8, standing.getWins());
+        assertEquals(4, result.getStanding("broken").getForfeits());
+        assertEquals(4, result.getStanding("failing").getLosses());
+        //a perfect score keeps a finite estimate
+        assertTrue(standing.getElo() > 0 && Double.isFinite(standing.getElo()));
+        assertEquals(0, standing.getEloError(), 1e-9);
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> new Tournament(4, 1, 1).roundRobin(List.of(smart, smart)));
+        assertThrows(IllegalArgumentException.class, () -> new Tournament(4, 0, 1));
+    }
+}
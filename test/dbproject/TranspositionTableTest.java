@@ -0,0 +1,62 @@
+package dbproject;
+
+import dbproject.players.TranspositionTable;
+import dbproject.players.TranspositionTable.ReplacementPolicy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test transposition table used by the search strategies.
+ */
+public class TranspositionTableTest {
+
+    /**
+     * test that stored entries can be probed and decoded.
+     */
+    @Test
+    public void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1, ReplacementPolicy.ALWAYS_REPLACE);
+        assertEquals(1 << 16, table.capacity());
+        assertEquals(TranspositionTable.MISS, table.probe(12345L));
+        table.store(12345L, 7, TranspositionTable.LOWER_BOUND, -13, 59);
+        long entry = table.probe(12345L);
+        assertNotEquals(TranspositionTable.MISS, entry);
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+        assertEquals(-13, TranspositionTable.value(entry));
+        assertEquals(59, TranspositionTable.move(entry));
+        table.store(1L, 0, TranspositionTable.EXACT, 0, -1);
+        assertEquals(-1, TranspositionTable.move(table.probe(1L)));
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(12345L));
+    }
+
+    /**
+     * test the depth-preferred and always-replace policies on colliding keys.
+     */
+    @Test
+    public void testReplacementPolicy() {
+        long key = 42L;
+        long collision = key + (1L << 32);
+        TranspositionTable depthPreferred =
+                new TranspositionTable(1, ReplacementPolicy.DEPTH_PREFERRED);
+        depthPreferred.store(key, 5, TranspositionTable.EXACT, 1, 2);
+        depthPreferred.store(collision, 3, TranspositionTable.EXACT, 1, 2);
+        assertNotEquals(TranspositionTable.MISS, depthPreferred.probe(key));
+        assertEquals(TranspositionTable.MISS, depthPreferred.probe(collision));
+        //entries of an earlier search can be replaced by shallower ones
+        depthPreferred.newSearch();
+        depthPreferred.store(collision, 3, TranspositionTable.EXACT, 1, 2);
+        assertEquals(TranspositionTable.MISS, depthPreferred.probe(key));
+        assertNotEquals(TranspositionTable.MISS, depthPreferred.probe(collision));
+
+        TranspositionTable alwaysReplace =
+                new TranspositionTable(1, ReplacementPolicy.ALWAYS_REPLACE);
+        alwaysReplace.store(key, 5, TranspositionTable.EXACT, 1, 2);
+        alwaysReplace.store(collision, 3, TranspositionTable.EXACT, 1, 2);
+        assertEquals(TranspositionTable.MISS, alwaysReplace.probe(key));
+        assertNotEquals(TranspositionTable.MISS, alwaysReplace.probe(collision));
+    }
+}